@@ -0,0 +1,107 @@
+package br.louiz.path;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention benchmarks comparing {@link ConcurrentPathIndex} with a synchronized
+ * {@link HashMap}, the usual baseline for a shared path registry. The thread count
+ * is set with {@code -t}, so scaling is measured by running the same selection with
+ * {@code -t 1}, {@code -t 2}, ... up to {@code -t max}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentPathIndexBenchmark {
+
+    /**
+     * Registry shared by every benchmark thread. Half of the keys are registered
+     * up front, so lookups are a mix of hits and misses.
+     */
+    @State(Scope.Benchmark)
+    public static class Registry {
+
+        @Param({"10000"})
+        public int keys;
+
+        PathSegment[] paths;
+        ConcurrentPathIndex<PathSegment> index;
+        Map<PathSegment, PathSegment> synchronizedMap;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            paths = new PathSegment[keys];
+            index = new ConcurrentPathIndex<>();
+            synchronizedMap = Collections.synchronizedMap(new HashMap<>());
+            for (int i = 0; i < keys; i++) {
+                paths[i] = PathSegment.create("schemas").append(i % 100).append("fields").append("field" + i);
+                if (i % 2 == 0) {
+                    index.put(paths[i], paths[i]);
+                    synchronizedMap.put(paths[i], paths[i]);
+                }
+            }
+        }
+
+        PathSegment next() {
+            return paths[ThreadLocalRandom.current().nextInt(paths.length)];
+        }
+    }
+
+    @Benchmark
+    public PathSegment indexGet(Registry registry) {
+        return registry.index.get(registry.next());
+    }
+
+    @Benchmark
+    public PathSegment synchronizedMapGet(Registry registry) {
+        return registry.synchronizedMap.get(registry.next());
+    }
+
+    @Benchmark
+    public PathSegment indexComputeIfAbsent(Registry registry) {
+        return registry.index.computeIfAbsent(registry.next(), path -> path);
+    }
+
+    @Benchmark
+    public PathSegment synchronizedMapComputeIfAbsent(Registry registry) {
+        return registry.synchronizedMap.computeIfAbsent(registry.next(), path -> path);
+    }
+
+    /**
+     * Nine lookups for each registration, the usual shape of a schema registry.
+     */
+    @Benchmark
+    public PathSegment indexMixed(Registry registry) {
+        PathSegment path = registry.next();
+        if (ThreadLocalRandom.current().nextInt(10) == 0) return registry.index.putIfAbsent(path, path);
+        return registry.index.get(path);
+    }
+
+    /**
+     * Nine lookups for each registration, the usual shape of a schema registry.
+     */
+    @Benchmark
+    public PathSegment synchronizedMapMixed(Registry registry) {
+        PathSegment path = registry.next();
+        if (ThreadLocalRandom.current().nextInt(10) == 0) return registry.synchronizedMap.putIfAbsent(path, path);
+        return registry.synchronizedMap.get(path);
+    }
+}
@@ -0,0 +1,86 @@
+package br.louiz.path;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading {@code /order/lines/3/price} through a compiled
+ * {@link PathAccessorCompiler.Accessor} with the equivalent hand-written code.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathAccessorBenchmark {
+
+    public static class Root {
+        private final Order order = new Order();
+
+        public Order getOrder() {
+            return order;
+        }
+    }
+
+    public static class Order {
+        private final List<Line> lines = new ArrayList<>();
+
+        public List<Line> getLines() {
+            return lines;
+        }
+    }
+
+    public static class Line {
+        private final long price;
+
+        Line(long price) {
+            this.price = price;
+        }
+
+        public long getPrice() {
+            return price;
+        }
+    }
+
+    private final PathAccessorCompiler compiler = new PathAccessorCompiler();
+    private final PathSegment path = PathParser.INDEXES.parse("/order/lines/3/price");
+    private Root root;
+    private PathAccessorCompiler.Accessor accessor;
+
+    @Setup
+    public void setUp() {
+        root = new Root();
+        for (int i = 0; i < 10; i++) {
+            root.getOrder().getLines().add(new Line(i * 100L));
+        }
+        accessor = compiler.compile(Root.class, path);
+    }
+
+    @Benchmark
+    public long handWritten() {
+        return root.getOrder().getLines().get(3).getPrice();
+    }
+
+    @Benchmark
+    public Object compiled() {
+        return accessor.get(root);
+    }
+
+    @Benchmark
+    public Object cachedLookup() {
+        return compiler.compile(Root.class, path).get(root);
+    }
+}
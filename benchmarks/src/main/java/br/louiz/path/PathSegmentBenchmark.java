@@ -0,0 +1,112 @@
+package br.louiz.path;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and latency benchmarks covering the whole {@link PathSegment} API.
+ * Allocation rates are reported when running with {@code -prof gc}.
+ *
+ * @see PathState
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathSegmentBenchmark {
+
+    @Benchmark
+    public PathSegment appendName(PathState state) {
+        return state.path.append(state.name);
+    }
+
+    @Benchmark
+    public PathSegment appendIndex(PathState state) {
+        return state.path.append(state.depth);
+    }
+
+    @Benchmark
+    public PathSegment fromString(PathState state) {
+        return PathSegment.fromString(state.string);
+    }
+
+    @Benchmark
+    public PathSegment parse(PathState state) {
+        return PathParser.INDEXES.parse(state.string);
+    }
+
+    @Benchmark
+    public boolean equalsEqual(PathState state) {
+        return state.path.equals(state.equalPath);
+    }
+
+    @Benchmark
+    public boolean equalsSibling(PathState state) {
+        return state.path.equals(state.siblingPath);
+    }
+
+    @Benchmark
+    public int hash(PathState state) {
+        return state.path.hashCode();
+    }
+
+    @Benchmark
+    public int compareTo(PathState state) {
+        return state.path.compareTo(state.siblingPath);
+    }
+
+    @Benchmark
+    public PathSegment find(PathState state) {
+        return state.path.find(state.rootValue);
+    }
+
+    @Benchmark
+    public PathSegment getRoot(PathState state) {
+        return state.path.get(0);
+    }
+
+    @Benchmark
+    public PathSegment getRootWithJumpPointers(PathState state) {
+        return state.jumpPath.get(0);
+    }
+
+    @Benchmark
+    public boolean containsPath(PathState state) {
+        return state.path.contains(state.prefix);
+    }
+
+    @Benchmark
+    public PathSegment[] toArray(PathState state) {
+        return state.path.toArray();
+    }
+
+    @Benchmark
+    public void iterator(PathState state, Blackhole blackhole) {
+        for (PathSegment segment : state.path) {
+            blackhole.consume(segment);
+        }
+    }
+
+    @Benchmark
+    public void forEach(PathState state, Blackhole blackhole) {
+        state.path.forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void reverseIterator(PathState state, Blackhole blackhole) {
+        Iterator<PathSegment> iterator = state.path.reverseIterator();
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package br.louiz.path;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Shared fixture for the {@link PathSegment} benchmarks.
+ * <p>
+ * Paths are built from deterministic pseudo-random names so results are
+ * comparable between runs. Every path has {@link #depth} + 1 segments alternating
+ * between names and indexes, and every name has {@link #segmentLength} characters,
+ * of which roughly {@link #escapeDensity} are either {@code '~'} or {@code '/'}.
+ */
+@State(Scope.Benchmark)
+public class PathState {
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    public int depth;
+
+    @Param({"4", "32"})
+    public int segmentLength;
+
+    @Param({"0.0", "0.1", "0.5"})
+    public double escapeDensity;
+
+    /**
+     * The path under test.
+     */
+    public PathSegment path;
+
+    /**
+     * {@link #path} with {@link PathSegment#withJumpPointers() jump pointers}.
+     */
+    public PathSegment jumpPath;
+
+    /**
+     * A path equal to {@link #path} but built from distinct instances.
+     */
+    public PathSegment equalPath;
+
+    /**
+     * A path with the same depth as {@link #path} that only differs on its last segment.
+     */
+    public PathSegment siblingPath;
+
+    /**
+     * The first two segments of {@link #path}, built from distinct instances.
+     */
+    public PathSegment prefix;
+
+    /**
+     * The {@link PathSegment#toString() string form} of {@link #path}.
+     */
+    public String string;
+
+    /**
+     * The value of the root segment of {@link #path}, the worst case for {@link PathSegment#find(String)}.
+     */
+    public String rootValue;
+
+    /**
+     * A name to be appended on {@link #path}.
+     */
+    public String name;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        String[] values = new String[depth + 1];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 2 == 0 ? name(random) : String.valueOf(random.nextInt(1024));
+        }
+
+        path = build(values);
+        jumpPath = path.withJumpPointers();
+        equalPath = build(values);
+        PathSegment parent = build(Arrays.copyOf(values, depth));
+        siblingPath = depth % 2 == 0
+                ? parent.append(values[depth] + "x")
+                : parent.append(Integer.parseInt(values[depth]) + 1);
+        prefix = build(Arrays.copyOf(values, Math.min(2, depth + 1)));
+        string = path.toString();
+        rootValue = values[0];
+        name = name(random);
+    }
+
+    private String name(Random random) {
+        char[] chars = new char[segmentLength];
+        for (int i = 0; i < chars.length; i++) {
+            if (random.nextDouble() < escapeDensity) {
+                chars[i] = random.nextBoolean() ? '~' : '/';
+            } else {
+                chars[i] = (char) ('a' + random.nextInt(26));
+            }
+        }
+        return new String(chars);
+    }
+
+    private static PathSegment build(String[] values) {
+        PathSegment result = MissingSegment.INSTANCE;
+        for (int i = 0; i < values.length; i++) {
+            result = i % 2 == 0 ? result.append(values[i]) : result.append(Integer.parseInt(values[i]));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,438 @@
+package br.louiz.path;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A thread-safe map keyed by {@link PathSegment}s, stored as a trie of their
+ * segments, for registries that are written and read by many threads at once.
+ * <p>
+ * Children are kept in a {@link ConcurrentHashMap} per node, created on demand,
+ * and values are set with compare-and-swap, so lookups never block and writers
+ * only contend when they touch the same node. Removing a key unlinks the nodes
+ * left without a value or children, so the trie only holds the keys that are
+ * mapped and their ancestors, however many keys come and go.
+ * <p>
+ * A node is unlinked from within {@link ConcurrentHashMap#computeIfPresent} on its
+ * parent's children, the same lock that is held to give it a new child, and its value
+ * is swapped for a tombstone, so writers that still reach it start over from the root.
+ * <p>
+ * Keys follow {@link PathSegment#equals(Object)}, so {@code /a/3} stored as an
+ * {@link IndexSegment} is found with {@code /a/3} as a {@link NameSegment}, and
+ * keys are yielded with the type they were first inserted with.
+ * <p>
+ * Iteration is weakly consistent, like the views of a {@link ConcurrentHashMap}:
+ * it never throws {@link java.util.ConcurrentModificationException}, yields each
+ * key at most once, and may or may not reflect changes made after it started.
+ * Keys are yielded before their descendants, with siblings in no particular order.
+ * Values can not be null.
+ *
+ * @param <V> the type of the mapped values.
+ * @see PathTrie
+ */
+public final class ConcurrentPathIndex<V> implements Iterable<PathSegment> {
+
+    /**
+     * Value of a node that was unlinked. Writers that find it look the key up again.
+     */
+    private static final Object REMOVED = new Object();
+
+    private static final AtomicReferenceFieldUpdater<Node, Object> VALUE =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "value");
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Node, ConcurrentHashMap> CHILDREN =
+            AtomicReferenceFieldUpdater.newUpdater(Node.class, ConcurrentHashMap.class, "children");
+
+    private final Node root = new Node(MissingSegment.INSTANCE);
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * Creates an empty {@link ConcurrentPathIndex}.
+     */
+    public ConcurrentPathIndex() {
+    }
+
+    /**
+     * @param key a non-null {@link PathSegment}.
+     * @return the value mapped to the given key, or null if there is none.
+     * @throws IllegalArgumentException if key is null.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(PathSegment key) {
+        Node node = find(key);
+        return node == null ? null : (V) node.value();
+    }
+
+    /**
+     * @param key a non-null {@link PathSegment}.
+     * @return {@code true} if there is a value mapped to the given key.
+     * @throws IllegalArgumentException if key is null.
+     */
+    public boolean containsKey(PathSegment key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the given key to the given value.
+     *
+     * @param key   a non-null {@link PathSegment}. A {@link MissingSegment} maps the root.
+     * @param value a non-null value.
+     * @return the value previously mapped to the given key, or null if there was none.
+     * @throws IllegalArgumentException if key or value is null.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(PathSegment key, V value) {
+        if (value == null) throw new IllegalArgumentException("parameter value should not be null");
+        while (true) {
+            Node node = findOrCreate(key);
+            Object previous = node.value;
+            while (previous != REMOVED && !VALUE.compareAndSet(node, previous, value)) {
+                previous = node.value;
+            }
+            if (previous == REMOVED) continue;
+            if (previous == null) size.increment();
+            return (V) previous;
+        }
+    }
+
+    /**
+     * Maps the given key to the given value, unless it is already mapped.
+     *
+     * @param key   a non-null {@link PathSegment}. A {@link MissingSegment} maps the root.
+     * @param value a non-null value.
+     * @return the value already mapped to the given key, or null if the given value was mapped.
+     * @throws IllegalArgumentException if key or value is null.
+     */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(PathSegment key, V value) {
+        if (value == null) throw new IllegalArgumentException("parameter value should not be null");
+        Node node = findOrCreate(key);
+        while (true) {
+            Object current = node.value;
+            if (current == REMOVED) {
+                node = findOrCreate(key);
+            } else if (current != null) {
+                return (V) current;
+            } else if (VALUE.compareAndSet(node, null, value)) {
+                size.increment();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Returns the value mapped to the given key, computing and mapping it first if
+     * there is none.
+     * <p>
+     * Unlike {@link ConcurrentHashMap#computeIfAbsent}, no lock is held while the
+     * function runs, so threads racing on the same key may each compute a value.
+     * Only one of them is mapped, and it is returned to every racing thread.
+     *
+     * @param key      a non-null {@link PathSegment}. A {@link MissingSegment} maps the root.
+     * @param function a non-null function computing the value for the given key.
+     * @return the mapped value, or null if the function returned null.
+     * @throws IllegalArgumentException if key or function is null.
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(PathSegment key, Function<? super PathSegment, ? extends V> function) {
+        if (function == null) throw new IllegalArgumentException("parameter function should not be null");
+        V current = get(key);
+        if (current != null) return current;
+
+        V computed = function.apply(key);
+        if (computed == null) return null;
+        V previous = putIfAbsent(key, computed);
+        return previous == null ? computed : previous;
+    }
+
+    /**
+     * Removes the value mapped to the given key, if any, and unlinks the nodes it
+     * leaves without a value or children.
+     *
+     * @param key a non-null {@link PathSegment}.
+     * @return the value previously mapped to the given key, or null if there was none.
+     * @throws IllegalArgumentException if key is null.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(PathSegment key) {
+        Node node = find(key);
+        if (node == null) return null;
+        Object previous;
+        do {
+            previous = node.value;
+            if (previous == null || previous == REMOVED) return null;
+        } while (!VALUE.compareAndSet(node, previous, null));
+        size.decrement();
+        prune(key);
+        return (V) previous;
+    }
+
+    /**
+     * @return the number of mapped keys. Exact only while no other thread changes this index.
+     */
+    public int size() {
+        return size.intValue();
+    }
+
+    /**
+     * @return {@code true} if there are no mapped keys. Exact only while no other thread changes this index.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Performs the given action for each mapped key and value, with weakly consistent semantics.
+     *
+     * @param action a non-null action.
+     */
+    public void forEach(BiConsumer<? super PathSegment, ? super V> action) {
+        forEach(MissingSegment.INSTANCE, action);
+    }
+
+    /**
+     * Performs the given action for each mapped key that starts with the given prefix
+     * (including the prefix itself), with weakly consistent semantics.
+     *
+     * @param prefix a non-null {@link PathSegment}.
+     * @param action a non-null action.
+     * @throws IllegalArgumentException if prefix or action is null.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(PathSegment prefix, BiConsumer<? super PathSegment, ? super V> action) {
+        if (action == null) throw new IllegalArgumentException("parameter action should not be null");
+        Node start = find(prefix);
+        if (start == null) return;
+
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(start);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            Object value = node.value();
+            if (value != null) action.accept(node.key, (V) value);
+            ConcurrentHashMap<String, Node> children = node.children;
+            if (children != null) {
+                for (Node child : children.values()) pending.push(child);
+            }
+        }
+    }
+
+    /**
+     * Weakly consistent iterator over the mapped keys.
+     */
+    @Override
+    public Iterator<PathSegment> iterator() {
+        return iterator(MissingSegment.INSTANCE);
+    }
+
+    /**
+     * Weakly consistent iterator over the mapped keys that start with the given prefix,
+     * including the prefix itself.
+     *
+     * @param prefix a non-null {@link PathSegment}.
+     * @throws IllegalArgumentException if prefix is null.
+     */
+    public Iterator<PathSegment> iterator(PathSegment prefix) {
+        return new IndexIterator(find(prefix));
+    }
+
+    /**
+     * @return the number of nodes in the trie, including the root.
+     */
+    int nodeCount() {
+        int count = 0;
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            count++;
+            ConcurrentHashMap<String, Node> children = node.children;
+            if (children != null) {
+                for (Node child : children.values()) pending.push(child);
+            }
+        }
+        return count;
+    }
+
+    private Node find(PathSegment key) {
+        if (key == null) throw new IllegalArgumentException("parameter key should not be null");
+        Node node = root;
+        for (PathSegment segment : key) {
+            node = node.child(segment.getValue());
+            if (node == null) return null;
+        }
+        return node;
+    }
+
+    /**
+     * Finds the node of the given key, creating the missing ones. Children of a node other
+     * than the root are created under the lock of its entry in its parent, and the lookup
+     * starts over if the node was unlinked meanwhile.
+     */
+    private Node findOrCreate(PathSegment key) {
+        if (key == null) throw new IllegalArgumentException("parameter key should not be null");
+        if (key.isMissing()) return root;
+        PathSegment[] segments = key.toArray();
+        retry:
+        while (true) {
+            Node parent = null;
+            Node node = root;
+            for (PathSegment segment : segments) {
+                Node child = node.child(segment.getValue());
+                if (child == null) {
+                    child = parent == null ? node.childOrCreate(segment) : parent.childOrCreate(node, segment);
+                    if (child == null) continue retry;
+                }
+                parent = node;
+                node = child;
+            }
+            return node;
+        }
+    }
+
+    /**
+     * Unlinks the nodes of the given key, from the deepest up, while they have no value
+     * and no children. Stops at the first node that is still in use.
+     */
+    private void prune(PathSegment key) {
+        PathSegment[] segments = key.toArray();
+        Node[] nodes = new Node[segments.length + 1];
+        nodes[0] = root;
+        for (int i = 0; i < segments.length; i++) {
+            nodes[i + 1] = nodes[i].child(segments[i].getValue());
+            if (nodes[i + 1] == null) return;
+        }
+        for (int i = segments.length; i > 0; i--) {
+            if (!nodes[i - 1].unlink(nodes[i])) return;
+        }
+    }
+
+    private static final class Node {
+        /**
+         * The segment this node was created for, yielded as the key of its value.
+         */
+        final PathSegment key;
+        volatile Object value;
+        volatile ConcurrentHashMap<String, Node> children;
+
+        Node(PathSegment key) {
+            this.key = key;
+        }
+
+        /**
+         * @return the mapped value, or null if there is none or this node was unlinked.
+         */
+        Object value() {
+            Object result = value;
+            return result == REMOVED ? null : result;
+        }
+
+        Node child(String value) {
+            ConcurrentHashMap<String, Node> map = children;
+            return map == null ? null : map.get(value);
+        }
+
+        @SuppressWarnings("unchecked")
+        Node childOrCreate(PathSegment segment) {
+            ConcurrentHashMap<String, Node> map = children;
+            if (map == null) {
+                CHILDREN.compareAndSet(this, null, new ConcurrentHashMap<String, Node>(4));
+                map = children;
+            }
+            String value = segment.getValue();
+            Node child = map.get(value);
+            if (child == null) {
+                Node created = new Node(segment);
+                child = map.putIfAbsent(value, created);
+                if (child == null) child = created;
+            }
+            return child;
+        }
+
+        /**
+         * Creates the child of one of this node's children while holding the lock of its
+         * entry, so that {@link #unlink(Node)} can not remove it meanwhile.
+         *
+         * @return the child, or null if the given node is no longer linked to this one.
+         */
+        Node childOrCreate(Node node, PathSegment segment) {
+            Node[] result = new Node[1];
+            children.computeIfPresent(node.key.getValue(), (value, current) -> {
+                if (current == node) result[0] = node.childOrCreate(segment);
+                return current;
+            });
+            return result[0];
+        }
+
+        /**
+         * Unlinks the given child if it has no value and no children, swapping its value
+         * for {@link #REMOVED} so writers still holding it start over.
+         *
+         * @return true if the child was unlinked.
+         */
+        boolean unlink(Node child) {
+            boolean[] unlinked = new boolean[1];
+            children.computeIfPresent(child.key.getValue(), (value, current) -> {
+                ConcurrentHashMap<String, Node> grandchildren = current.children;
+                if (current != child || (grandchildren != null && !grandchildren.isEmpty())) return current;
+                if (!VALUE.compareAndSet(child, null, REMOVED)) return current;
+                unlinked[0] = true;
+                return null;
+            });
+            return unlinked[0];
+        }
+    }
+
+    /**
+     * Depth-first, pre-order traversal over the nodes that hold a value.
+     */
+    private static final class IndexIterator implements Iterator<PathSegment> {
+        private final Deque<Iterator<Node>> stack = new ArrayDeque<>();
+        private Node start;
+        private PathSegment next;
+
+        IndexIterator(Node start) {
+            this.start = start;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                Node node;
+                if (start != null) {
+                    node = start;
+                    start = null;
+                } else {
+                    while (!stack.isEmpty() && !stack.peek().hasNext()) stack.pop();
+                    if (stack.isEmpty()) return false;
+                    node = stack.peek().next();
+                }
+                ConcurrentHashMap<String, Node> children = node.children;
+                if (children != null) stack.push(children.values().iterator());
+                if (node.value() != null) next = node.key;
+            }
+            return true;
+        }
+
+        @Override
+        public PathSegment next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            PathSegment result = next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove operation is not supported");
+        }
+    }
+}
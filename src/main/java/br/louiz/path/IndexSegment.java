@@ -3,9 +3,14 @@ package br.louiz.path;
 /**
  * A {@link PathSegment} with a backing {@code int} for type safety when dealing
  * with indexes.
+ * <p>
+ * Only the {@code int} is kept. Its {@link String} form is produced on demand by
+ * {@link #getValue()}, from a shared cache for small indexes.
  */
 public final class IndexSegment extends PathSegment {
 
+    private static final String[] SMALL_VALUES = new String[1024];
+
     private final transient int index;
 
     /**
@@ -16,7 +21,20 @@ public final class IndexSegment extends PathSegment {
      * @param parent the parent of this segment.
      */
     IndexSegment(int index, PathSegment parent) {
-        super(String.valueOf(index), parent);
+        this(index, parent, false);
+    }
+
+    /**
+     * Internal constructor used on {@link PathSegment#append(int)} and
+     * {@link PathSegment#withJumpPointers()}.
+     *
+     * @param index        the index this segment will represent.
+     * @param parent       the parent of this segment.
+     * @param jumpPointers true if this segment keeps a jump pointer, in which case the parent
+     *                     must have jump pointers or be a {@link MissingSegment}.
+     */
+    IndexSegment(int index, PathSegment parent, boolean jumpPointers) {
+        super(null, parent, parent != null ? parent.getDepth() + 1 : 0, valueHash(index), jumpPointers);
         if (index < 0) {
             throw new IllegalArgumentException("Index " + index + " should not be negative.");
         }
@@ -40,6 +58,23 @@ public final class IndexSegment extends PathSegment {
         return index;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Indexes below 1024 share a cached {@link String}, larger ones get a new
+     * {@link String} on every call.
+     */
+    @Override
+    public String getValue() {
+        if (index >= SMALL_VALUES.length) return String.valueOf(index);
+        String value = SMALL_VALUES[index];
+        if (value == null) {
+            value = String.valueOf(index);
+            SMALL_VALUES[index] = value;
+        }
+        return value;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -72,5 +107,21 @@ public final class IndexSegment extends PathSegment {
         return false;
     }
 
+    /**
+     * Computes the {@link String#hashCode()} of the decimal form of the given index
+     * without building it, so indexes hash like names with the same value.
+     */
+    static int valueHash(int index) {
+        int divisor = 1;
+        while (index / divisor >= 10) {
+            divisor *= 10;
+        }
+        int result = 0;
+        for (; divisor > 0; divisor /= 10) {
+            result = 31 * result + '0' + (index / divisor) % 10;
+        }
+        return result;
+    }
+
 
 }
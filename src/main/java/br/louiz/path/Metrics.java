@@ -0,0 +1,55 @@
+package br.louiz.path;
+
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * Holds the {@link PathMetrics} in use. {@link #ENABLED} is a constant once this
+ * class is initialized, so when no implementation is installed every guarded
+ * measurement is dead code for the JIT compiler.
+ */
+final class Metrics {
+
+    static final PathMetrics ACTIVE = load();
+    static final boolean ENABLED = ACTIVE != PathMetrics.NOOP;
+
+    private Metrics() {
+    }
+
+    /**
+     * Loads the first {@link PathMetrics} implementation found. A broken provider must
+     * not break path operations, so it is ignored and {@link PathMetrics#NOOP} is used.
+     */
+    private static PathMetrics load() {
+        try {
+            Iterator<PathMetrics> providers = ServiceLoader.load(PathMetrics.class, PathMetrics.class.getClassLoader()).iterator();
+            return providers.hasNext() ? providers.next() : PathMetrics.NOOP;
+        } catch (ServiceConfigurationError e) {
+            return PathMetrics.NOOP;
+        }
+    }
+
+    /**
+     * @return the start time of an operation, or 0 when metrics are disabled.
+     */
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    static void end(PathMetrics.Operation operation, long start) {
+        if (ENABLED) ACTIVE.recordOperation(operation, System.nanoTime() - start);
+    }
+
+    static void depth(int depth) {
+        if (ENABLED) ACTIVE.recordDepth(depth);
+    }
+
+    static void segmentLength(int length) {
+        if (ENABLED) ACTIVE.recordSegmentLength(length);
+    }
+
+    static void lookup(PathMetrics.Lookup lookup, boolean hit) {
+        if (ENABLED) ACTIVE.recordLookup(lookup, hit);
+    }
+}
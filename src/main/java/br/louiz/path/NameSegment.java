@@ -17,6 +17,20 @@ public final class NameSegment extends PathSegment {
         super(name, parent);
     }
 
+    /**
+     * Internal constructor used on {@link PathSegment#append(String)} and
+     * {@link PathSegment#withJumpPointers()}.
+     *
+     * @param name         the non-null name of the field that this segment will represent.
+     * @param parent       the parent of this segment.
+     * @param jumpPointers true if this segment keeps a jump pointer, in which case the parent
+     *                     must have jump pointers or be a {@link MissingSegment}.
+     * @throws IllegalArgumentException if name is null.
+     */
+    NameSegment(String name, PathSegment parent, boolean jumpPointers) {
+        super(name, parent, jumpPointers);
+    }
+
     /**
      * {@link NameSegment}'s created with this constructor will always have {@link MissingSegment}
      * as its {@link #getParent() parent} and zero as its {@link #getDepth() depth}.
@@ -0,0 +1,330 @@
+package br.louiz.path;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A compact, immutable path for bulk storage. Instead of one object per segment,
+ * all segment values are packed in a single array (one byte per character when
+ * every character is Latin-1, otherwise one {@code char}), along with an array of
+ * offsets and a bit set marking which segments are indexes.
+ * <p>
+ * Ancestors are views sharing the same arrays, so {@link #get(int)} and
+ * {@link #getParent()} are O(1). Values are only materialized as {@link String}s
+ * when requested through {@link #getValue()}.
+ * <p>
+ * Equality and ordering are compatible with {@link PathSegment}: a {@link PackedPath}
+ * is equal to the {@link PathSegment} it was packed from, and both have the same
+ * {@link #hashCode()}.
+ *
+ * @see #of(PathSegment)
+ * @see #toPathSegment()
+ */
+public final class PackedPath implements Segment<String, PackedPath> {
+
+    /**
+     * The empty path, used as the {@link #getParent() parent} of root segments.
+     * It has -1 {@link #getDepth() depth}, like a {@link MissingSegment}.
+     */
+    public static final PackedPath EMPTY = new PackedPath(new byte[0], null, new int[]{0}, new long[0], -1);
+
+    private final byte[] latin1;
+    private final char[] chars;
+    private final int[] offsets;
+    private final long[] indexes;
+    private final int depth;
+    private int hash;
+
+    private PackedPath(byte[] latin1, char[] chars, int[] offsets, long[] indexes, int depth) {
+        this.latin1 = latin1;
+        this.chars = chars;
+        this.offsets = offsets;
+        this.indexes = indexes;
+        this.depth = depth;
+    }
+
+    /**
+     * Packs the given {@link PathSegment}.
+     *
+     * @param path a non-null {@link PathSegment}.
+     * @return a {@link PackedPath} equal to the given path, or {@link #EMPTY} if it is a {@link MissingSegment}.
+     * @throws IllegalArgumentException if path is null.
+     */
+    public static PackedPath of(PathSegment path) {
+        if (path == null) throw new IllegalArgumentException("parameter path should not be null");
+        if (path.isMissing()) return EMPTY;
+
+        int depth = path.getDepth();
+        int[] offsets = new int[depth + 2];
+        long[] indexes = new long[(depth >> 6) + 1];
+        boolean compact = true;
+        for (PathSegment current = path; !current.isMissing(); current = current.getParent()) {
+            String value = current.getValue();
+            int segment = current.getDepth();
+            offsets[segment + 1] = value.length();
+            if (current.isIndex()) indexes[segment >> 6] |= 1L << segment;
+            for (int i = 0; compact && i < value.length(); i++) {
+                compact = value.charAt(i) <= 0xFF;
+            }
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] += offsets[i - 1];
+        }
+
+        byte[] latin1 = compact ? new byte[offsets[depth + 1]] : null;
+        char[] chars = compact ? null : new char[offsets[depth + 1]];
+        for (PathSegment current = path; !current.isMissing(); current = current.getParent()) {
+            String value = current.getValue();
+            int offset = offsets[current.getDepth()];
+            if (compact) {
+                for (int i = 0; i < value.length(); i++) {
+                    latin1[offset + i] = (byte) value.charAt(i);
+                }
+            } else {
+                value.getChars(0, value.length(), chars, offset);
+            }
+        }
+        return new PackedPath(latin1, chars, offsets, indexes, depth);
+    }
+
+    /**
+     * Unpacks this path into a new chain of {@link PathSegment}s, keeping the type of each segment.
+     *
+     * @return a {@link PathSegment} equal to this path, or a {@link MissingSegment} if this path is empty.
+     */
+    public PathSegment toPathSegment() {
+        PathSegment result = MissingSegment.INSTANCE;
+        for (int segment = 0; segment <= depth; segment++) {
+            result = isIndex(segment)
+                    ? result.append(PathParser.canonicalIndex(valueOf(segment)))
+                    : result.append(valueOf(segment));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the value of the last segment. A new {@link String} is built on every call.
+     *
+     * @return the value of the last segment, or an empty {@link String} if this path is empty.
+     */
+    @Override
+    public String getValue() {
+        return depth < 0 ? "" : valueOf(depth);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned path shares the arrays of this one.
+     *
+     * @return the parent of this path, or {@link #EMPTY} if there is none.
+     */
+    @Override
+    public PackedPath getParent() {
+        return depth <= 0 ? EMPTY : new PackedPath(latin1, chars, offsets, indexes, depth - 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the ancestor (or itself) at the given {@link #getDepth() depth} in O(1).
+     * The returned path shares the arrays of this one.
+     *
+     * @throws IndexOutOfBoundsException if the given depth is negative or greater
+     *                                   than {@code this}.{@link #getDepth()}.
+     * @see PathSegment#get(int)
+     */
+    public PackedPath get(int depth) {
+        if (depth < 0 || depth > this.depth) {
+            String message = "Given depth " + depth + " is out of bounds (0 to " + this.depth + ")";
+            throw new IndexOutOfBoundsException(message);
+        }
+        return depth == this.depth ? this : new PackedPath(latin1, chars, offsets, indexes, depth);
+    }
+
+    /**
+     * @return {@code true} if the last segment is an index.
+     * @see PathSegment#isIndex()
+     */
+    public boolean isIndex() {
+        return depth >= 0 && isIndex(depth);
+    }
+
+    /**
+     * @return {@code true} if this path is empty.
+     * @see PathSegment#isMissing()
+     */
+    public boolean isMissing() {
+        return depth < 0;
+    }
+
+    /**
+     * Iterator for iterating from the ancestor with {@link #getDepth() depth} 0 to {@code this} instance.
+     */
+    @Override
+    public Iterator<PackedPath> iterator() {
+        return new Iterator<PackedPath>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next <= depth;
+            }
+
+            @Override
+            public PackedPath next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return get(next++);
+            }
+        };
+    }
+
+    /**
+     * Compares with the same ordering as {@link PathSegment#compareTo(PathSegment)}.
+     */
+    @Override
+    public int compareTo(PackedPath other) {
+        if (this == other) return 0;
+        int commonDepth = Math.min(depth, other.depth);
+        for (int segment = 0; segment <= commonDepth; segment++) {
+            if (!sameValue(segment, other, segment)) {
+                return Integer.compare(PathSegment.compareValues(valueOf(segment), other.valueOf(segment)), 0);
+            }
+        }
+        return Integer.compare(depth, other.depth);
+    }
+
+    /**
+     * Compares with a {@link PathSegment}, with the same ordering as {@link PathSegment#compareTo(PathSegment)}.
+     *
+     * @param other a non-null {@link PathSegment}.
+     */
+    public int compareTo(PathSegment other) {
+        int commonDepth = Math.min(depth, other.getDepth());
+        int difference = -1;
+        PathSegment current = commonDepth < 0 ? MissingSegment.INSTANCE : other.get(commonDepth);
+        for (; !current.isMissing(); current = current.getParent()) {
+            if (!sameValue(current.getDepth(), current.getValue())) difference = current.getDepth();
+        }
+        if (difference < 0) return Integer.compare(depth, other.getDepth());
+        String value = other.get(difference).getValue();
+        return Integer.compare(PathSegment.compareValues(valueOf(difference), value), 0);
+    }
+
+    /**
+     * Equal to other {@link PackedPath}s and {@link PathSegment}s with the same
+     * {@link #getValue() values} on every segment.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o instanceof PackedPath) {
+            PackedPath that = (PackedPath) o;
+            if (depth != that.depth || hashCode() != that.hashCode()) return false;
+            for (int segment = depth; segment >= 0; segment--) {
+                if (!sameValue(segment, that, segment)) return false;
+            }
+            return true;
+        }
+        if (o instanceof PathSegment) {
+            PathSegment that = (PathSegment) o;
+            if (depth != that.getDepth() || hashCode() != that.hashCode()) return false;
+            for (PathSegment current = that; !current.isMissing(); current = current.getParent()) {
+                if (!sameValue(current.getDepth(), current.getValue())) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Computed with the same formula as {@link PathSegment#hashCode()}, without
+     * materializing any value.
+     */
+    @Override
+    public int hashCode() {
+        int result = hash;
+        if (result == 0 && depth >= 0) {
+            for (int segment = 0; segment <= depth; segment++) {
+                int valueHash = 0;
+                for (int i = offsets[segment]; i < offsets[segment + 1]; i++) {
+                    valueHash = 31 * valueHash + charAt(i);
+                }
+                result = 31 * result + valueHash;
+            }
+            hash = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a {@link String} representation of this path, compatible with
+     * {@link PathSegment#toString()}.
+     */
+    @Override
+    public String toString() {
+        if (depth < 0) return "";
+        StringBuilder builder = new StringBuilder(offsets[depth + 1] + depth + 1);
+        for (int segment = 0; segment <= depth; segment++) {
+            builder.append('/');
+            for (int i = offsets[segment]; i < offsets[segment + 1]; i++) {
+                char c = charAt(i);
+                switch (c) {
+                    case '~':
+                        builder.append("~0");
+                        break;
+                    case '/':
+                        builder.append("~1");
+                        break;
+                    default:
+                        builder.append(c);
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    private boolean isIndex(int segment) {
+        return (indexes[segment >> 6] & (1L << segment)) != 0;
+    }
+
+    private char charAt(int i) {
+        return latin1 != null ? (char) (latin1[i] & 0xFF) : chars[i];
+    }
+
+    private String valueOf(int segment) {
+        int offset = offsets[segment];
+        int length = offsets[segment + 1] - offset;
+        return latin1 != null
+                ? new String(latin1, offset, length, StandardCharsets.ISO_8859_1)
+                : new String(chars, offset, length);
+    }
+
+    private boolean sameValue(int segment, String value) {
+        int offset = offsets[segment];
+        int length = offsets[segment + 1] - offset;
+        if (length != value.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (charAt(offset + i) != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private boolean sameValue(int segment, PackedPath other, int otherSegment) {
+        int offset = offsets[segment];
+        int otherOffset = other.offsets[otherSegment];
+        int length = offsets[segment + 1] - offset;
+        if (length != other.offsets[otherSegment + 1] - otherOffset) return false;
+        for (int i = 0; i < length; i++) {
+            if (charAt(offset + i) != other.charAt(otherOffset + i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,362 @@
+package br.louiz.path;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Applies JSON Patches (RFC 6902) to documents made of nested {@link Map}s and
+ * {@link List}s, as resolved by {@link PointerResolver}.
+ * <p>
+ * Patches are applied atomically: every change is recorded in an undo log, and
+ * when an operation fails the log is replayed backwards, leaving the document as
+ * it was. Operations are consumed one at a time, so a patch can be streamed from
+ * an {@link Iterator} without holding the whole operation list; only the undo log
+ * grows with the patch.
+ * <p>
+ * The container targeted by an operation is kept until the next one, so a run of
+ * operations on the same parent, such as the usual batches of sibling updates,
+ * resolves it only once. It is resolved again whenever a change could have moved it.
+ * <p>
+ * Lists are mutated in place, so they must be modifiable, and maps must accept the
+ * added keys. Arrays can be traversed and replaced into, but not added to or removed from.
+ */
+public final class PatchEngine {
+
+    private PatchEngine() {
+    }
+
+    /**
+     * Applies the given patch.
+     *
+     * @param document the document to be patched, mutated in place.
+     * @param patch    a non-null sequence of non-null operations.
+     * @return the patched document, which is only a different instance if the root was added or replaced.
+     * @throws IllegalArgumentException if patch is null, has a null operation, or if any operation
+     *                                  can not be applied. The document is left unchanged.
+     */
+    public static Object apply(Object document, Iterable<? extends PatchOperation> patch) {
+        if (patch == null) throw new IllegalArgumentException("parameter patch should not be null");
+        return apply(document, patch.iterator());
+    }
+
+    /**
+     * Applies the operations of the given iterator as a single patch, consuming them one at a time.
+     *
+     * @param document the document to be patched, mutated in place.
+     * @param patch    a non-null iterator of non-null operations.
+     * @return the patched document, which is only a different instance if the root was added or replaced.
+     * @throws IllegalArgumentException if patch is null, has a null operation, or if any operation
+     *                                  can not be applied. The document is left unchanged.
+     */
+    public static Object apply(Object document, Iterator<? extends PatchOperation> patch) {
+        if (patch == null) throw new IllegalArgumentException("parameter patch should not be null");
+        Application application = new Application(document);
+        int count = 0;
+        try {
+            while (patch.hasNext()) {
+                PatchOperation operation = patch.next();
+                if (operation == null) throw new IllegalArgumentException("patch should not have null operations");
+                try {
+                    application.apply(operation);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Operation " + count + " " + operation + " failed: " + e.getMessage(), e);
+                }
+                count++;
+            }
+        } catch (RuntimeException | Error e) {
+            application.rollback();
+            throw e;
+        }
+        return application.root;
+    }
+
+    /**
+     * The state of a single patch application.
+     */
+    private static final class Application {
+        private Object root;
+        private final Deque<Runnable> undo = new ArrayDeque<>();
+
+        /**
+         * Single entry memo of the last resolved container.
+         */
+        private PathSegment cachedPath;
+        private Object cachedContainer;
+
+        Application(Object root) {
+            this.root = root;
+        }
+
+        void apply(PatchOperation operation) {
+            PathSegment path = operation.getPath();
+            switch (operation.getType()) {
+                case ADD:
+                    add(path, operation.getValue());
+                    break;
+                case REMOVE:
+                    remove(path);
+                    break;
+                case REPLACE:
+                    replace(path, operation.getValue());
+                    break;
+                case MOVE: {
+                    PathSegment from = operation.getFrom();
+                    if (from.equals(path)) {
+                        get(from);
+                        break;
+                    }
+                    if (path.getDepth() > from.getDepth() && path.get(from.getDepth()).equals(from)) {
+                        throw new IllegalArgumentException("can not move " + from + " into its own child " + path);
+                    }
+                    Object value = get(from);
+                    remove(from);
+                    add(path, value);
+                    break;
+                }
+                case COPY:
+                    add(path, deepCopy(get(operation.getFrom())));
+                    break;
+                default:
+                    Object actual = get(path);
+                    if (!deepEquals(actual, operation.getValue())) {
+                        throw new IllegalArgumentException("value at " + path + " is " + actual + ", not " + operation.getValue());
+                    }
+            }
+        }
+
+        void rollback() {
+            while (!undo.isEmpty()) {
+                undo.pop().run();
+            }
+            cachedPath = null;
+            cachedContainer = null;
+        }
+
+        private Object get(PathSegment path) {
+            if (path.isMissing()) return root;
+            Object container = container(path);
+            if (container instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) container;
+                if (!map.containsKey(path.getValue())) throw notFound(path);
+                return map.get(path.getValue());
+            }
+            if (container instanceof List) {
+                List<?> list = (List<?>) container;
+                int index = indexOf(path);
+                if (index < 0 || index >= list.size()) throw notFound(path);
+                return list.get(index);
+            }
+            int index = indexOf(path);
+            if (index < 0 || index >= Array.getLength(container)) throw notFound(path);
+            return Array.get(container, index);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void add(PathSegment path, Object value) {
+            if (path.isMissing()) {
+                setRoot(value);
+                return;
+            }
+            Object container = container(path);
+            if (container instanceof Map) {
+                Map<String, Object> map = (Map<String, Object>) container;
+                String key = path.getValue();
+                boolean existed = map.containsKey(key);
+                Object previous = map.put(key, value);
+                undo.push(existed ? () -> map.put(key, previous) : () -> map.remove(key));
+            } else if (container instanceof List) {
+                List<Object> list = (List<Object>) container;
+                int index = path.isName() && path.getValue().equals("-") ? list.size() : indexOf(path);
+                if (index < 0 || index > list.size()) throw notFound(path);
+                list.add(index, value);
+                undo.push(() -> list.remove(index));
+            } else {
+                throw new IllegalArgumentException("can not add to an array at " + path);
+            }
+            changed(path);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void remove(PathSegment path) {
+            if (path.isMissing()) {
+                setRoot(null);
+                return;
+            }
+            Object container = container(path);
+            if (container instanceof Map) {
+                Map<String, Object> map = (Map<String, Object>) container;
+                String key = path.getValue();
+                if (!map.containsKey(key)) throw notFound(path);
+                Object previous = map.remove(key);
+                undo.push(() -> map.put(key, previous));
+            } else if (container instanceof List) {
+                List<Object> list = (List<Object>) container;
+                int index = indexOf(path);
+                if (index < 0 || index >= list.size()) throw notFound(path);
+                Object previous = list.remove(index);
+                undo.push(() -> list.add(index, previous));
+            } else {
+                throw new IllegalArgumentException("can not remove from an array at " + path);
+            }
+            changed(path);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void replace(PathSegment path, Object value) {
+            if (path.isMissing()) {
+                setRoot(value);
+                return;
+            }
+            Object container = container(path);
+            if (container instanceof Map) {
+                Map<String, Object> map = (Map<String, Object>) container;
+                String key = path.getValue();
+                if (!map.containsKey(key)) throw notFound(path);
+                Object previous = map.put(key, value);
+                undo.push(() -> map.put(key, previous));
+            } else if (container instanceof List) {
+                List<Object> list = (List<Object>) container;
+                int index = indexOf(path);
+                if (index < 0 || index >= list.size()) throw notFound(path);
+                Object previous = list.set(index, value);
+                undo.push(() -> list.set(index, previous));
+            } else {
+                int index = indexOf(path);
+                if (index < 0 || index >= Array.getLength(container)) throw notFound(path);
+                Object previous = Array.get(container, index);
+                Array.set(container, index, value);
+                undo.push(() -> Array.set(container, index, previous));
+            }
+            changed(path);
+        }
+
+        private void setRoot(Object value) {
+            Object previous = root;
+            root = value;
+            undo.push(() -> root = previous);
+            cachedPath = null;
+            cachedContainer = null;
+        }
+
+        /**
+         * Returns the container holding the given path, reusing the last one when
+         * both share the same parent.
+         */
+        private Object container(PathSegment path) {
+            PathSegment parent = path.getParent();
+            if (cachedPath != null && cachedPath.equals(parent)) return cachedContainer;
+
+            Object container = PointerResolver.resolve(root, parent);
+            boolean valid = container instanceof Map || container instanceof List
+                    || (container != null && container.getClass().isArray());
+            if (!valid) throw new IllegalArgumentException("no container at " + parent);
+            cachedPath = parent;
+            cachedContainer = container;
+            return container;
+        }
+
+        /**
+         * Drops the memo if the change at the given path could have replaced or shifted
+         * the cached container, in other words, if the changed container is one of its ancestors.
+         */
+        private void changed(PathSegment path) {
+            if (cachedPath == null) return;
+            int depth = path.getDepth();
+            if (cachedPath.getDepth() >= depth && cachedPath.get(depth).getParent().equals(path.getParent())) {
+                cachedPath = null;
+                cachedContainer = null;
+            }
+        }
+
+        private static IllegalArgumentException notFound(PathSegment path) {
+            return new IllegalArgumentException("no value at " + path);
+        }
+    }
+
+    private static int indexOf(PathSegment segment) {
+        return segment.isIndex()
+                ? ((IndexSegment) segment).getIndex()
+                : PathParser.canonicalIndex(segment.getValue());
+    }
+
+    /**
+     * Copies maps, lists and arrays recursively, sharing every other value.
+     */
+    private static Object deepCopy(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.put(entry.getKey(), deepCopy(entry.getValue()));
+            }
+            return copy;
+        }
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>(((List<?>) value).size());
+            for (Object element : (List<?>) value) {
+                copy.add(deepCopy(element));
+            }
+            return copy;
+        }
+        if (value != null && value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+            for (int i = 0; i < length; i++) {
+                Array.set(copy, i, deepCopy(Array.get(value, i)));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    /**
+     * @return false for NaN and infinite {@link Double}s and {@link Float}s, which have no {@link BigDecimal} form.
+     */
+    private static boolean isFinite(Number number) {
+        if (number instanceof Double || number instanceof Float) {
+            double value = number.doubleValue();
+            return !Double.isNaN(value) && !Double.isInfinite(value);
+        }
+        return true;
+    }
+
+    /**
+     * Structural equality as defined by RFC 6902 for the {@code test} operation:
+     * numbers are equal by value, lists element by element and maps entry by entry.
+     */
+    private static boolean deepEquals(Object first, Object second) {
+        if (first instanceof Number && second instanceof Number) {
+            if (!isFinite((Number) first) || !isFinite((Number) second)) {
+                return Double.compare(((Number) first).doubleValue(), ((Number) second).doubleValue()) == 0;
+            }
+            return new BigDecimal(first.toString()).compareTo(new BigDecimal(second.toString())) == 0;
+        }
+        if (first instanceof Map && second instanceof Map) {
+            Map<?, ?> firstMap = (Map<?, ?>) first;
+            Map<?, ?> secondMap = (Map<?, ?>) second;
+            if (firstMap.size() != secondMap.size()) return false;
+            for (Map.Entry<?, ?> entry : firstMap.entrySet()) {
+                if (!secondMap.containsKey(entry.getKey())) return false;
+                if (!deepEquals(entry.getValue(), secondMap.get(entry.getKey()))) return false;
+            }
+            return true;
+        }
+        if (first instanceof List && second instanceof List) {
+            List<?> firstList = (List<?>) first;
+            List<?> secondList = (List<?>) second;
+            if (firstList.size() != secondList.size()) return false;
+            for (int i = 0; i < firstList.size(); i++) {
+                if (!deepEquals(firstList.get(i), secondList.get(i))) return false;
+            }
+            return true;
+        }
+        return Objects.deepEquals(first, second);
+    }
+}
@@ -0,0 +1,127 @@
+package br.louiz.path;
+
+import java.util.Locale;
+
+/**
+ * A single JSON Patch (RFC 6902) operation, targeting {@link PathSegment}s.
+ * <p>
+ * Instances are immutable and created through the static factories, one per
+ * operation type.
+ *
+ * @see PatchEngine
+ */
+public final class PatchOperation {
+
+    /**
+     * The operation types defined by RFC 6902.
+     */
+    public enum Type {
+        ADD, REMOVE, REPLACE, MOVE, COPY, TEST
+    }
+
+    private final Type type;
+    private final PathSegment path;
+    private final PathSegment from;
+    private final Object value;
+
+    private PatchOperation(Type type, PathSegment path, PathSegment from, Object value) {
+        if (path == null) throw new IllegalArgumentException("parameter path should not be null");
+        this.type = type;
+        this.path = path;
+        this.from = from;
+        this.value = value;
+    }
+
+    /**
+     * Adds the given value at the given path. On a list, {@code -} appends and an
+     * index inserts before the element at that index.
+     *
+     * @throws IllegalArgumentException if path is null.
+     */
+    public static PatchOperation add(PathSegment path, Object value) {
+        return new PatchOperation(Type.ADD, path, null, value);
+    }
+
+    /**
+     * Removes the value at the given path.
+     *
+     * @throws IllegalArgumentException if path is null.
+     */
+    public static PatchOperation remove(PathSegment path) {
+        return new PatchOperation(Type.REMOVE, path, null, null);
+    }
+
+    /**
+     * Replaces the value at the given path, which must exist.
+     *
+     * @throws IllegalArgumentException if path is null.
+     */
+    public static PatchOperation replace(PathSegment path, Object value) {
+        return new PatchOperation(Type.REPLACE, path, null, value);
+    }
+
+    /**
+     * Removes the value at {@code from} and adds it at {@code path}.
+     *
+     * @throws IllegalArgumentException if from or path is null.
+     */
+    public static PatchOperation move(PathSegment from, PathSegment path) {
+        if (from == null) throw new IllegalArgumentException("parameter from should not be null");
+        return new PatchOperation(Type.MOVE, path, from, null);
+    }
+
+    /**
+     * Adds a deep copy of the value at {@code from} at {@code path}.
+     *
+     * @throws IllegalArgumentException if from or path is null.
+     */
+    public static PatchOperation copy(PathSegment from, PathSegment path) {
+        if (from == null) throw new IllegalArgumentException("parameter from should not be null");
+        return new PatchOperation(Type.COPY, path, from, null);
+    }
+
+    /**
+     * Checks that the value at the given path is equal to the given value.
+     *
+     * @throws IllegalArgumentException if path is null.
+     */
+    public static PatchOperation test(PathSegment path, Object value) {
+        return new PatchOperation(Type.TEST, path, null, value);
+    }
+
+    /**
+     * @return the type of this operation.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the target of this operation.
+     */
+    public PathSegment getPath() {
+        return path;
+    }
+
+    /**
+     * @return the source of a {@link Type#MOVE} or {@link Type#COPY} operation, null for other types.
+     */
+    public PathSegment getFrom() {
+        return from;
+    }
+
+    /**
+     * @return the value of an {@link Type#ADD}, {@link Type#REPLACE} or {@link Type#TEST} operation.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        String result = "{op=" + type.name().toLowerCase(Locale.ROOT) + ", path=" + path;
+        if (from != null) result += ", from=" + from;
+        if (type == Type.ADD || type == Type.REPLACE || type == Type.TEST) result += ", value=" + value;
+        return result + "}";
+    }
+}
@@ -0,0 +1,499 @@
+package br.louiz.path;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.lang.reflect.WildcardType;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiles {@link PathSegment}s into accessors for the properties of Java objects,
+ * so a path such as {@code /order/lines/3/price} is read or written without
+ * reflection on every step.
+ * <p>
+ * Each segment is resolved once, at compile time, against the static type reached
+ * by the previous segments:
+ * <ul>
+ * <li>on a {@link List} or an array, an {@link IndexSegment} (or a canonical integer
+ * name) is an element, and the element type is taken from the generic type arguments;</li>
+ * <li>on a {@link Map}, the {@link PathSegment#getValue() value} is a key;</li>
+ * <li>on any other class, a name is a property, in other words a public {@code getX},
+ * {@code isX} or {@code x} method, or else a field, along with its {@code setX} method
+ * or field for writing.</li>
+ * </ul>
+ * The resolved steps are composed into a single {@link MethodHandle}. Steps on a type
+ * that is not known at compile time, such as {@link Object}, an interface or an abstract
+ * class without the property, are resolved against the runtime class, once per class.
+ * <p>
+ * Compiled accessors are cached per root class and path. Instances are thread-safe.
+ */
+public final class PathAccessorCompiler {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final MethodHandle LIST_GET;
+    private static final MethodHandle LIST_SET;
+    private static final MethodHandle MAP_GET;
+    private static final MethodHandle MAP_PUT;
+    private static final MethodHandle IS_NULL;
+    private static final MethodHandle DYNAMIC_GET;
+    private static final MethodHandle DYNAMIC_SET;
+
+    static {
+        try {
+            LIST_GET = LOOKUP.findVirtual(List.class, "get", MethodType.methodType(Object.class, int.class));
+            LIST_SET = LOOKUP.findVirtual(List.class, "set", MethodType.methodType(Object.class, int.class, Object.class));
+            MAP_GET = LOOKUP.findVirtual(Map.class, "get", MethodType.methodType(Object.class, Object.class));
+            MAP_PUT = LOOKUP.findVirtual(Map.class, "put", MethodType.methodType(Object.class, Object.class, Object.class));
+            IS_NULL = LOOKUP.findStatic(Objects.class, "isNull", MethodType.methodType(boolean.class, Object.class));
+            DYNAMIC_GET = LOOKUP.findVirtual(DynamicStep.class, "get", GETTER);
+            DYNAMIC_SET = LOOKUP.findVirtual(DynamicStep.class, "set", SETTER);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final ConcurrentHashMap<Key, Accessor> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the accessor for the given path on the given root class, compiling it
+     * on the first call.
+     *
+     * @param rootType a non-null class, the type of the objects the path is evaluated on.
+     * @param path     a non-null {@link PathSegment}. A {@link MissingSegment} refers to the root itself.
+     * @return the compiled {@link Accessor}.
+     * @throws IllegalArgumentException if any parameter is null, or if a segment can not be
+     *                                  resolved on the type reached by the previous ones.
+     */
+    public Accessor compile(Class<?> rootType, PathSegment path) {
+        if (rootType == null) throw new IllegalArgumentException("parameter rootType should not be null");
+        if (path == null) throw new IllegalArgumentException("parameter path should not be null");
+        Key key = new Key(rootType, path);
+        Accessor accessor = cache.get(key);
+        if (accessor == null) {
+            accessor = cache.computeIfAbsent(key, k -> build(rootType, path));
+        }
+        return accessor;
+    }
+
+    /**
+     * @return the number of cached accessors.
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    private static Accessor build(Class<?> rootType, PathSegment path) {
+        MethodHandle getter = MethodHandles.identity(Object.class);
+        MethodHandle parentGetter = getter;
+        Step last = null;
+        Type type = rootType;
+        for (PathSegment segment : path) {
+            last = Step.resolve(type, segment, true);
+            parentGetter = getter;
+            getter = MethodHandles.filterReturnValue(getter, nullSafe(last.getter));
+            type = last.type;
+        }
+        MethodHandle setter = last == null ? null : last.setter;
+        return new Accessor(rootType, path, rawType(type), getter, parentGetter, setter);
+    }
+
+    /**
+     * Guards the given getter so a null target gives null instead of throwing.
+     */
+    private static MethodHandle nullSafe(MethodHandle getter) {
+        MethodHandle constantNull = MethodHandles.dropArguments(MethodHandles.constant(Object.class, null), 0, Object.class);
+        return MethodHandles.guardWithTest(IS_NULL, constantNull, getter);
+    }
+
+    /**
+     * A compiled accessor for a path on a root class.
+     */
+    public static final class Accessor {
+        private final Class<?> rootType;
+        private final PathSegment path;
+        private final Class<?> valueType;
+        private final MethodHandle getter;
+        private final MethodHandle parentGetter;
+        private final MethodHandle setter;
+
+        private Accessor(Class<?> rootType, PathSegment path, Class<?> valueType,
+                         MethodHandle getter, MethodHandle parentGetter, MethodHandle setter) {
+            this.rootType = rootType;
+            this.path = path;
+            this.valueType = valueType;
+            this.getter = getter;
+            this.parentGetter = parentGetter;
+            this.setter = setter;
+        }
+
+        /**
+         * Reads the value at the path.
+         *
+         * @param root a non-null instance of the root class.
+         * @return the value at the path, or null if it or any value on the way is null.
+         * @throws IllegalArgumentException  if root is null or not an instance of the root class.
+         * @throws IndexOutOfBoundsException if an index is out of the bounds of its list or array.
+         */
+        public Object get(Object root) {
+            checkRoot(root);
+            try {
+                return getter.invokeExact(root);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        }
+
+        /**
+         * Writes the value at the path.
+         *
+         * @param root  a non-null instance of the root class.
+         * @param value the value to be written, converted to primitive types when needed.
+         * @throws IllegalArgumentException      if root is null or not an instance of the root class.
+         * @throws IllegalStateException         if a value on the way to the last segment is null.
+         * @throws UnsupportedOperationException if the last segment is read-only, or the path is empty.
+         */
+        public void set(Object root, Object value) {
+            checkRoot(root);
+            if (setter == null) throw new UnsupportedOperationException("Path " + path + " is read-only on " + rootType.getName());
+            try {
+                Object parent = parentGetter.invokeExact(root);
+                if (parent == null) throw new IllegalStateException("Parent of " + path + " is null");
+                setter.invokeExact(parent, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        }
+
+        /**
+         * @return {@code true} if the last segment can be written.
+         */
+        public boolean isWritable() {
+            return setter != null;
+        }
+
+        /**
+         * @return the root class the path is evaluated on.
+         */
+        public Class<?> getRootType() {
+            return rootType;
+        }
+
+        /**
+         * @return the compiled path.
+         */
+        public PathSegment getPath() {
+            return path;
+        }
+
+        /**
+         * @return the static type of the value at the path, {@link Object} if it is only known at runtime.
+         */
+        public Class<?> getValueType() {
+            return valueType;
+        }
+
+        @Override
+        public String toString() {
+            return "Accessor{" + rootType.getName() + path + "}";
+        }
+
+        private void checkRoot(Object root) {
+            if (root == null) throw new IllegalArgumentException("parameter root should not be null");
+            if (!rootType.isInstance(root)) {
+                throw new IllegalArgumentException("Root " + root.getClass().getName() + " is not a " + rootType.getName());
+            }
+        }
+    }
+
+    /**
+     * A single resolved segment: a getter typed {@code (Object)Object}, a setter typed
+     * {@code (Object,Object)void} (or null if read-only) and the static type of the value.
+     */
+    private static final class Step {
+        final MethodHandle getter;
+        final MethodHandle setter;
+        final Type type;
+
+        Step(MethodHandle getter, MethodHandle setter, Type type) {
+            this.getter = getter.asType(GETTER);
+            this.setter = setter == null ? null : setter.asType(SETTER);
+            this.type = type;
+        }
+
+        static Step resolve(Type ownerType, PathSegment segment, boolean allowDynamic) {
+            Class<?> owner = rawType(ownerType);
+            try {
+                if (List.class.isAssignableFrom(owner) || owner.isArray()) {
+                    int index = segment.isIndex()
+                            ? ((IndexSegment) segment).getIndex()
+                            : PathParser.canonicalIndex(segment.getValue());
+                    if (index < 0) throw noProperty(owner, segment);
+                    if (owner.isArray()) {
+                        MethodHandle getter = MethodHandles.insertArguments(MethodHandles.arrayElementGetter(owner), 1, index);
+                        MethodHandle setter = MethodHandles.insertArguments(MethodHandles.arrayElementSetter(owner), 1, index);
+                        Type element = ownerType instanceof GenericArrayType
+                                ? ((GenericArrayType) ownerType).getGenericComponentType()
+                                : owner.getComponentType();
+                        return new Step(getter, setter, element);
+                    }
+                    return new Step(MethodHandles.insertArguments(LIST_GET, 1, index),
+                            MethodHandles.insertArguments(LIST_SET, 1, index),
+                            typeArgument(ownerType, List.class, 0));
+                }
+                if (Map.class.isAssignableFrom(owner)) {
+                    String key = segment.getValue();
+                    return new Step(MethodHandles.insertArguments(MAP_GET, 1, key),
+                            MethodHandles.insertArguments(MAP_PUT, 1, key),
+                            typeArgument(ownerType, Map.class, 1));
+                }
+
+                Step property = property(ownerType, owner, segment.getValue());
+                if (property != null) return property;
+                if (allowDynamic && (owner == Object.class || owner.isInterface() || Modifier.isAbstract(owner.getModifiers()))) {
+                    DynamicStep dynamic = new DynamicStep(segment);
+                    return new Step(DYNAMIC_GET.bindTo(dynamic), DYNAMIC_SET.bindTo(dynamic), Object.class);
+                }
+                throw noProperty(owner, segment);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("Property '" + segment.getValue() + "' of " + owner.getName() + " is not accessible", e);
+            }
+        }
+
+        private static Step property(Type ownerType, Class<?> owner, String name) throws IllegalAccessException {
+            if (name.isEmpty()) return null;
+            String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            Method getter = publicMethod(owner, "get" + capitalized);
+            if (getter == null) getter = publicMethod(owner, "is" + capitalized);
+            if (getter != null && getter.getName().startsWith("is") && getter.getReturnType() != boolean.class) getter = null;
+            if (getter == null) getter = publicMethod(owner, name);
+
+            Field field = field(owner, name);
+            if (getter == null && field == null) return null;
+
+            Type type = resolveVariable(getter != null ? getter.getGenericReturnType() : field.getGenericType(), ownerType);
+            Class<?> rawType = getter != null ? getter.getReturnType() : field.getType();
+            MethodHandle read = getter != null ? LOOKUP.unreflect(accessible(getter)) : LOOKUP.unreflectGetter(accessible(field));
+
+            MethodHandle write = null;
+            Method setter = setter(owner, "set" + capitalized, rawType);
+            if (setter != null) {
+                write = LOOKUP.unreflect(accessible(setter));
+            } else if (field != null && !Modifier.isFinal(field.getModifiers())) {
+                write = LOOKUP.unreflectSetter(accessible(field));
+            }
+            return new Step(read, write, type);
+        }
+
+        private static Method publicMethod(Class<?> owner, String name) {
+            try {
+                Method method = owner.getMethod(name);
+                boolean valid = !Modifier.isStatic(method.getModifiers())
+                        && method.getReturnType() != void.class
+                        && method.getDeclaringClass() != Object.class;
+                return valid ? method : null;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+        private static Method setter(Class<?> owner, String name, Class<?> type) {
+            Method candidate = null;
+            for (Method method : owner.getMethods()) {
+                if (method.getName().equals(name) && method.getParameterCount() == 1 && !Modifier.isStatic(method.getModifiers())) {
+                    if (method.getParameterTypes()[0] == type) return method;
+                    if (candidate == null) candidate = method;
+                }
+            }
+            return candidate;
+        }
+
+        private static Field field(Class<?> owner, String name) {
+            for (Class<?> current = owner; current != null && current != Object.class; current = current.getSuperclass()) {
+                try {
+                    Field field = current.getDeclaredField(name);
+                    if (!Modifier.isStatic(field.getModifiers())) return field;
+                } catch (NoSuchFieldException ignored) {
+                    // keeps looking on the superclass
+                }
+            }
+            return null;
+        }
+
+        private static <T extends AccessibleObject> T accessible(T member) {
+            try {
+                member.setAccessible(true);
+            } catch (RuntimeException ignored) {
+                // not open to this module, the lookup reports whether it is accessible anyway
+            }
+            return member;
+        }
+
+        private static IllegalArgumentException noProperty(Class<?> owner, PathSegment segment) {
+            return new IllegalArgumentException("Segment '" + segment.getValue() + "' can not be resolved on " + owner.getName());
+        }
+    }
+
+    /**
+     * A step on a type only known at runtime, resolved once per runtime class.
+     */
+    private static final class DynamicStep {
+        private final ClassValue<Step> steps;
+
+        DynamicStep(PathSegment segment) {
+            this.steps = new ClassValue<Step>() {
+                @Override
+                protected Step computeValue(Class<?> type) {
+                    return Step.resolve(type, segment, false);
+                }
+            };
+        }
+
+        @SuppressWarnings("unused")
+        Object get(Object target) throws Throwable {
+            return steps.get(target.getClass()).getter.invokeExact(target);
+        }
+
+        @SuppressWarnings("unused")
+        void set(Object target, Object value) throws Throwable {
+            MethodHandle setter = steps.get(target.getClass()).setter;
+            if (setter == null) throw new UnsupportedOperationException("Segment is read-only on " + target.getClass().getName());
+            setter.invokeExact(target, value);
+        }
+    }
+
+    /**
+     * @return the raw class of the given type, {@link Object} if it can not be determined.
+     */
+    private static Class<?> rawType(Type type) {
+        if (type instanceof Class) return (Class<?>) type;
+        if (type instanceof ParameterizedType) return rawType(((ParameterizedType) type).getRawType());
+        if (type instanceof GenericArrayType) {
+            return Array.newInstance(rawType(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+        }
+        if (type instanceof TypeVariable) {
+            Type[] bounds = ((TypeVariable<?>) type).getBounds();
+            return bounds.length == 0 ? Object.class : rawType(bounds[0]);
+        }
+        if (type instanceof WildcardType) {
+            Type[] bounds = ((WildcardType) type).getUpperBounds();
+            return bounds.length == 0 ? Object.class : rawType(bounds[0]);
+        }
+        return Object.class;
+    }
+
+    /**
+     * Resolves the type argument of the given generic class as seen from the given type,
+     * following the generic supertypes, such as {@code E} of {@link List} from an
+     * {@code ArrayList<String>}.
+     *
+     * @return the type argument, or {@link Object} if it can not be determined.
+     */
+    private static Type typeArgument(Type type, Class<?> target, int index) {
+        Class<?> raw = rawType(type);
+        if (!target.isAssignableFrom(raw)) return Object.class;
+        if (raw == target) {
+            return type instanceof ParameterizedType ? ((ParameterizedType) type).getActualTypeArguments()[index] : Object.class;
+        }
+        Type superclass = raw.getGenericSuperclass();
+        if (superclass != null && target.isAssignableFrom(rawType(superclass))) {
+            return resolveVariable(typeArgument(substitute(superclass, type), target, index), type);
+        }
+        for (Type supertype : raw.getGenericInterfaces()) {
+            if (target.isAssignableFrom(rawType(supertype))) {
+                return resolveVariable(typeArgument(substitute(supertype, type), target, index), type);
+            }
+        }
+        return Object.class;
+    }
+
+    /**
+     * Replaces the type variables among the arguments of the given supertype with the
+     * arguments of the given subtype.
+     */
+    private static Type substitute(Type supertype, Type subtype) {
+        if (!(supertype instanceof ParameterizedType) || !(subtype instanceof ParameterizedType)) return supertype;
+        ParameterizedType parameterized = (ParameterizedType) supertype;
+        Type[] arguments = parameterized.getActualTypeArguments().clone();
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = resolveVariable(arguments[i], subtype);
+        }
+        Type raw = parameterized.getRawType();
+        return new ParameterizedType() {
+            @Override
+            public Type[] getActualTypeArguments() {
+                return arguments.clone();
+            }
+
+            @Override
+            public Type getRawType() {
+                return raw;
+            }
+
+            @Override
+            public Type getOwnerType() {
+                return parameterized.getOwnerType();
+            }
+        };
+    }
+
+    /**
+     * Resolves a type variable declared by the given owner type into its actual type argument.
+     */
+    private static Type resolveVariable(Type type, Type ownerType) {
+        if (!(type instanceof TypeVariable)) return type;
+        TypeVariable<?> variable = (TypeVariable<?>) type;
+        if (!(variable.getGenericDeclaration() instanceof Class)) return type;
+        Class<?> declaring = (Class<?>) variable.getGenericDeclaration();
+        TypeVariable<?>[] parameters = declaring.getTypeParameters();
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i].equals(variable)) {
+                Type resolved = typeArgument(ownerType, declaring, i);
+                return resolved == Object.class ? type : resolved;
+            }
+        }
+        return type;
+    }
+
+    private static final class Key {
+        private final Class<?> type;
+        private final PathSegment path;
+
+        Key(Class<?> type, PathSegment path) {
+            this.type = type;
+            this.path = path;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            return type == that.type && path.equals(that.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + path.hashCode();
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package br.louiz.path;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores path segments off-heap, in direct {@link ByteBuffer} chunks, and refers to
+ * them through {@code long} handles instead of objects, so keeping a very large number
+ * of paths adds nothing for the garbage collector to trace.
+ * <p>
+ * Each segment is a record holding the handle of its parent, its depth, the same
+ * structural hash as {@link PathSegment#hashCode()}, its kind and either its index
+ * or its UTF-8 encoded name. Like {@link PathSegment}, paths share the records of
+ * their common ancestors, and the empty path is {@link #MISSING}.
+ * <p>
+ * Records are never freed one by one. {@link #clear()} drops every record at once
+ * while keeping the chunks for reuse, and {@link #release()} drops the chunks too,
+ * leaving their memory to be reclaimed along with the buffers. Either way, every
+ * handle obtained before becomes invalid.
+ * <p>
+ * This class is not thread-safe.
+ */
+public final class PathArena {
+
+    /**
+     * The handle of the empty path, the parent of root segments.
+     */
+    public static final long MISSING = -1L;
+
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private static final int PARENT = 0;
+    private static final int DEPTH = 8;
+    private static final int HASH = 12;
+    private static final int KIND = 16;
+    private static final int VALUE = 20;
+    private static final int BYTES = 24;
+
+    private static final int NAME = 0;
+    private static final int INDEX = 1;
+
+    private final int chunkSize;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private int current = -1;
+
+    public PathArena() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize the size in bytes of each direct buffer. Names too long to fit get a chunk of their own.
+     * @throws IllegalArgumentException if chunkSize is smaller than 64 bytes.
+     */
+    public PathArena(int chunkSize) {
+        if (chunkSize < 64) throw new IllegalArgumentException("parameter chunkSize should be at least 64");
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Appends a name segment.
+     *
+     * @param parent the handle of the parent path, or {@link #MISSING} for a root segment.
+     * @param name   a non-null name.
+     * @return the handle of the new segment.
+     * @throws IllegalArgumentException if parent is not a valid handle or name is null.
+     */
+    public long append(long parent, String name) {
+        if (name == null) throw new IllegalArgumentException("parameter name should not be null");
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        long handle = allocate(parent, NAME, name.hashCode(), BYTES + bytes.length);
+        ByteBuffer chunk = chunk(handle);
+        int offset = (int) handle;
+        chunk.putInt(offset + VALUE, bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            chunk.put(offset + BYTES + i, bytes[i]);
+        }
+        return handle;
+    }
+
+    /**
+     * Appends an index segment.
+     *
+     * @param parent the handle of the parent path, or {@link #MISSING} for a root segment.
+     * @param index  a non-negative index.
+     * @return the handle of the new segment.
+     * @throws IllegalArgumentException if parent is not a valid handle or index is negative.
+     */
+    public long append(long parent, int index) {
+        if (index < 0) throw new IllegalArgumentException("parameter index should not be negative");
+        long handle = allocate(parent, INDEX, IndexSegment.valueHash(index), BYTES);
+        chunk(handle).putInt((int) handle + VALUE, index);
+        return handle;
+    }
+
+    /**
+     * Appends every segment of the given path, keeping their types.
+     *
+     * @param parent the handle of the parent path, or {@link #MISSING} to copy the path as is.
+     * @param path   a non-null {@link PathSegment}.
+     * @return the handle of the last appended segment, or parent if path is a {@link MissingSegment}.
+     * @throws IllegalArgumentException if parent is not a valid handle or path is null.
+     */
+    public long append(long parent, PathSegment path) {
+        if (path == null) throw new IllegalArgumentException("parameter path should not be null");
+        checkHandle(parent);
+        long handle = parent;
+        for (PathSegment segment : path) {
+            handle = segment.isIndex()
+                    ? append(handle, ((IndexSegment) segment).getIndex())
+                    : append(handle, segment.getValue());
+        }
+        return handle;
+    }
+
+    /**
+     * @return the handle of the parent of the given segment, or {@link #MISSING} for a root segment.
+     * @throws IllegalArgumentException if handle is not a valid handle or is {@link #MISSING}.
+     */
+    public long getParent(long handle) {
+        return chunk(handle).getLong((int) handle + PARENT);
+    }
+
+    /**
+     * @return the depth of the given segment, or -1 for {@link #MISSING}.
+     * @throws IllegalArgumentException if handle is not a valid handle.
+     * @see PathSegment#getDepth()
+     */
+    public int getDepth(long handle) {
+        if (handle == MISSING) return -1;
+        return chunk(handle).getInt((int) handle + DEPTH);
+    }
+
+    /**
+     * @return true if the given segment was appended as an index.
+     * @throws IllegalArgumentException if handle is not a valid handle or is {@link #MISSING}.
+     */
+    public boolean isIndex(long handle) {
+        return chunk(handle).getInt((int) handle + KIND) == INDEX;
+    }
+
+    /**
+     * @return the value of the given segment, the decimal form of its index for index segments.
+     * @throws IllegalArgumentException if handle is not a valid handle or is {@link #MISSING}.
+     * @see PathSegment#getValue()
+     */
+    public String getValue(long handle) {
+        ByteBuffer chunk = chunk(handle);
+        int offset = (int) handle;
+        if (chunk.getInt(offset + KIND) == INDEX) return String.valueOf(chunk.getInt(offset + VALUE));
+
+        byte[] bytes = new byte[chunk.getInt(offset + VALUE)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = chunk.get(offset + BYTES + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the same hash as {@link PathSegment#hashCode()} for an equal path, 0 for {@link #MISSING}.
+     * @throws IllegalArgumentException if handle is not a valid handle.
+     */
+    public int hashCode(long handle) {
+        if (handle == MISSING) return 0;
+        return chunk(handle).getInt((int) handle + HASH);
+    }
+
+    /**
+     * Compares two paths of this arena the same way as {@link PathSegment#equals(Object)},
+     * so an index segment is equal to a name segment with the same value. Paths sharing
+     * their records are compared without reading the shared part.
+     *
+     * @return true if both handles refer to equal paths.
+     * @throws IllegalArgumentException if any handle is not a valid handle.
+     */
+    public boolean equals(long first, long second) {
+        if (first == second) return true;
+        if (getDepth(first) != getDepth(second) || hashCode(first) != hashCode(second)) return false;
+        while (first != second) {
+            if (!sameValue(first, second)) return false;
+            first = getParent(first);
+            second = getParent(second);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the given handle refers to a path equal to the given {@link PathSegment}.
+     * @throws IllegalArgumentException if handle is not a valid handle or path is null.
+     */
+    public boolean equals(long handle, PathSegment path) {
+        if (path == null) throw new IllegalArgumentException("parameter path should not be null");
+        if (getDepth(handle) != path.getDepth() || hashCode(handle) != path.hashCode()) return false;
+        for (PathSegment segment = path; !segment.isMissing(); segment = segment.getParent()) {
+            if (!sameValue(handle, segment)) return false;
+            handle = getParent(handle);
+        }
+        return true;
+    }
+
+    /**
+     * Builds the {@link PathSegment} of the given handle, with the same segment types.
+     *
+     * @return a new {@link PathSegment}, or {@link MissingSegment#INSTANCE} for {@link #MISSING}.
+     * @throws IllegalArgumentException if handle is not a valid handle.
+     */
+    public PathSegment toPathSegment(long handle) {
+        long[] handles = new long[getDepth(handle) + 1];
+        for (int depth = handles.length - 1; depth >= 0; depth--) {
+            handles[depth] = handle;
+            handle = getParent(handle);
+        }
+        PathSegment result = MissingSegment.INSTANCE;
+        for (long segment : handles) {
+            ByteBuffer chunk = chunk(segment);
+            result = chunk.getInt((int) segment + KIND) == INDEX
+                    ? result.append(chunk.getInt((int) segment + VALUE))
+                    : result.append(getValue(segment));
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of off-heap bytes held by this arena, used or not.
+     */
+    public long allocatedBytes() {
+        long result = 0;
+        for (ByteBuffer chunk : chunks) {
+            result += chunk.capacity();
+        }
+        return result;
+    }
+
+    /**
+     * Drops every record, keeping the chunks to be filled again.
+     * Every handle obtained before becomes invalid.
+     */
+    public void clear() {
+        for (ByteBuffer chunk : chunks) {
+            chunk.clear();
+        }
+        current = chunks.isEmpty() ? -1 : 0;
+    }
+
+    /**
+     * Drops every record and every chunk, whose memory is reclaimed once the buffers are collected.
+     * The arena can still be used afterwards. Every handle obtained before becomes invalid.
+     */
+    public void release() {
+        chunks.clear();
+        current = -1;
+    }
+
+    private long allocate(long parent, int kind, int valueHash, int length) {
+        int depth = getDepth(parent) + 1;
+        int hash = 31 * hashCode(parent) + valueHash;
+        int size = (length + 7) & ~7;
+
+        while (current >= 0 && chunks.get(current).remaining() < size && current < chunks.size() - 1) {
+            current++;
+        }
+        if (current < 0 || chunks.get(current).remaining() < size) {
+            chunks.add(ByteBuffer.allocateDirect(Math.max(chunkSize, size)).order(ByteOrder.nativeOrder()));
+            current = chunks.size() - 1;
+        }
+        ByteBuffer chunk = chunks.get(current);
+        int offset = chunk.position();
+        chunk.position(offset + size);
+        chunk.putLong(offset + PARENT, parent);
+        chunk.putInt(offset + DEPTH, depth);
+        chunk.putInt(offset + HASH, hash);
+        chunk.putInt(offset + KIND, kind);
+        return (long) current << 32 | offset;
+    }
+
+    private boolean sameValue(long first, long second) {
+        ByteBuffer firstChunk = chunk(first);
+        ByteBuffer secondChunk = chunk(second);
+        int firstOffset = (int) first;
+        int secondOffset = (int) second;
+        int firstKind = firstChunk.getInt(firstOffset + KIND);
+        int secondKind = secondChunk.getInt(secondOffset + KIND);
+        if (firstKind != secondKind) return getValue(first).equals(getValue(second));
+
+        // Holds the index of index segments and the byte length of names.
+        int length = firstChunk.getInt(firstOffset + VALUE);
+        if (length != secondChunk.getInt(secondOffset + VALUE)) return false;
+        if (firstKind == INDEX) return true;
+        for (int i = 0; i < length; i++) {
+            if (firstChunk.get(firstOffset + BYTES + i) != secondChunk.get(secondOffset + BYTES + i)) return false;
+        }
+        return true;
+    }
+
+    private boolean sameValue(long handle, PathSegment segment) {
+        ByteBuffer chunk = chunk(handle);
+        if (segment.isIndex() && chunk.getInt((int) handle + KIND) == INDEX) {
+            return chunk.getInt((int) handle + VALUE) == ((IndexSegment) segment).getIndex();
+        }
+        return getValue(handle).equals(segment.getValue());
+    }
+
+    private ByteBuffer chunk(long handle) {
+        checkHandle(handle);
+        if (handle == MISSING) throw new IllegalArgumentException("handle should not be MISSING");
+        return chunks.get((int) (handle >>> 32));
+    }
+
+    private void checkHandle(long handle) {
+        if (handle == MISSING) return;
+        int chunk = (int) (handle >>> 32);
+        int offset = (int) handle;
+        if (chunk < 0 || chunk >= chunks.size() || offset < 0 || offset + BYTES > chunks.get(chunk).position()) {
+            throw new IllegalArgumentException("Handle " + handle + " is not valid in this arena");
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package br.louiz.path;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A thread-safe, bounded cache of parsed {@link PathSegment}s keyed by their
+ * {@link String} form. Since {@link PathSegment}s are immutable, hot paths
+ * resolve to the same already built chain in a single hash lookup.
+ * <p>
+ * Hits never block: they are a lookup on a {@link ConcurrentHashMap} plus
+ * setting a "referenced" flag. Misses are parsed outside of any lock and then
+ * inserted following the CLOCK (second chance) policy, which approximates LRU:
+ * the clock hand evicts the first entry that was not referenced since the hand
+ * last passed over it.
+ */
+public final class PathCache {
+
+    /**
+     * The initial length of the clock, which doubles as it fills up to the maximum size,
+     * so a large maximum size costs nothing until paths are actually cached.
+     */
+    private static final int INITIAL_CLOCK_LENGTH = 16;
+
+    private final ConcurrentMap<String, Node> entries;
+    private final Function<? super String, ? extends PathSegment> parser;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final int maximumSize;
+
+    /**
+     * The clock, guarded by {@code this}. Slots are filled in order, so it is full once
+     * the hand reaches its end, and it is only walked round once it has grown to the
+     * maximum size.
+     */
+    private Node[] clock;
+    private int hand;
+
+    /**
+     * Creates a {@link PathCache} in front of {@link PathSegment#fromString(String)}.
+     *
+     * @param maximumSize the maximum number of cached paths.
+     * @throws IllegalArgumentException if maximumSize is negative.
+     */
+    public PathCache(int maximumSize) {
+        this(maximumSize, PathSegment::fromString);
+    }
+
+    /**
+     * Creates a {@link PathCache} in front of the given parser, such as
+     * {@code PathParser.INDEXES::parse}.
+     *
+     * @param maximumSize the maximum number of cached paths.
+     * @param parser      a non-null function that never returns null.
+     * @throws IllegalArgumentException if maximumSize is negative or parser is null.
+     */
+    public PathCache(int maximumSize, Function<? super String, ? extends PathSegment> parser) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Maximum size " + maximumSize + " should not be negative.");
+        }
+        if (parser == null) throw new IllegalArgumentException("parameter parser should not be null");
+        this.entries = new ConcurrentHashMap<>(Math.min(maximumSize, 1 << 16));
+        this.maximumSize = maximumSize;
+        this.clock = new Node[Math.min(maximumSize, INITIAL_CLOCK_LENGTH)];
+        this.parser = parser;
+    }
+
+    /**
+     * Returns the cached {@link PathSegment} for the given path, parsing and caching
+     * it first if needed.
+     *
+     * @param path a non-null path to be parsed.
+     * @return the parsed {@link PathSegment}.
+     * @throws IllegalArgumentException if path is null, or if the parser rejects it.
+     */
+    public PathSegment get(String path) {
+        if (path == null) throw new IllegalArgumentException("parameter path should not be null");
+        Node node = entries.get(path);
+        if (node != null) {
+            if (!node.referenced) node.referenced = true;
+            hits.increment();
+            Metrics.lookup(PathMetrics.Lookup.CACHE, true);
+            return node.segment;
+        }
+
+        misses.increment();
+        Metrics.lookup(PathMetrics.Lookup.CACHE, false);
+        PathSegment segment = parser.apply(path);
+        if (segment == null) throw new IllegalStateException("parser should never return null.");
+        return maximumSize == 0 ? segment : insert(path, segment);
+    }
+
+    /**
+     * @return the number of lookups that found a cached path.
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that had to parse the path.
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the ratio of lookups that found a cached path, or 1.0 if there were no lookups.
+     */
+    public double hitRate() {
+        long hitCount = hits.sum();
+        long requestCount = hitCount + misses.sum();
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * @return the number of paths evicted to make room for new ones.
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of cached paths.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the maximum number of cached paths.
+     */
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Removes every cached path. Statistics are kept.
+     */
+    public synchronized void clear() {
+        clock = new Node[Math.min(maximumSize, INITIAL_CLOCK_LENGTH)];
+        entries.clear();
+        hand = 0;
+    }
+
+    private synchronized PathSegment insert(String path, PathSegment segment) {
+        Node existing = entries.get(path);
+        if (existing != null) return existing.segment;
+
+        Node victim;
+        while ((victim = clock[hand]) != null && victim.referenced) {
+            victim.referenced = false;
+            hand = (hand + 1) % clock.length;
+        }
+        if (victim != null) {
+            entries.remove(victim.path, victim);
+            evictions.increment();
+        }
+
+        Node node = new Node(path, segment);
+        clock[hand++] = node;
+        if (hand == clock.length) {
+            if (clock.length < maximumSize) {
+                clock = Arrays.copyOf(clock, (int) Math.min(maximumSize, 2L * clock.length));
+            } else {
+                hand = 0;
+            }
+        }
+        entries.put(path, node);
+        return segment;
+    }
+
+    private static final class Node {
+        final String path;
+        final PathSegment segment;
+
+        /**
+         * Set on every hit and cleared by the clock hand. Races only affect which
+         * entry gets evicted, so it is not volatile.
+         */
+        boolean referenced;
+
+        Node(String path, PathSegment segment) {
+            this.path = path;
+            this.segment = segment;
+        }
+    }
+}
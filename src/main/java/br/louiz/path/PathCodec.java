@@ -0,0 +1,355 @@
+package br.louiz.path;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A streaming binary codec for sequences of {@link PathSegment}s that only encodes
+ * what changed from one path to the next.
+ * <p>
+ * Each record holds the number of leading segments shared with the previous path,
+ * the number of new segments, and then each new segment as a type tag followed by
+ * either a varint index or a varint length and the UTF-8 bytes of a name. Sorted
+ * path sets share long prefixes, so most records only hold their last segment.
+ * <p>
+ * The {@link Reader} rebuilds each path on top of the previous one, so decoded
+ * paths share their common ancestors instead of copying them.
+ */
+public final class PathCodec {
+
+    private static final int NAME = 0;
+    private static final int INDEX = 1;
+    private static final int BUFFER_SIZE = 8192;
+
+    private PathCodec() {
+    }
+
+    /**
+     * @param out a non-null {@link OutputStream}, closed along with the returned writer.
+     * @return a new {@link Writer} over the given stream.
+     */
+    public static Writer newWriter(OutputStream out) {
+        if (out == null) throw new IllegalArgumentException("parameter out should not be null");
+        return new Writer(out);
+    }
+
+    /**
+     * Records are written into the given buffer when the writer is flushed or closed.
+     *
+     * @param buffer a non-null {@link ByteBuffer}, written from its current position.
+     * @return a new {@link Writer} over the given buffer.
+     */
+    public static Writer newWriter(ByteBuffer buffer) {
+        if (buffer == null) throw new IllegalArgumentException("parameter buffer should not be null");
+        return new Writer(new ByteBufferOutputStream(buffer));
+    }
+
+    /**
+     * @param in a non-null {@link InputStream}, closed along with the returned reader.
+     * @return a new {@link Reader} over the given stream.
+     */
+    public static Reader newReader(InputStream in) {
+        if (in == null) throw new IllegalArgumentException("parameter in should not be null");
+        return new Reader(in);
+    }
+
+    /**
+     * @param buffer a non-null {@link ByteBuffer}, read from its current position up to its limit.
+     * @return a new {@link Reader} over the given buffer.
+     */
+    public static Reader newReader(ByteBuffer buffer) {
+        if (buffer == null) throw new IllegalArgumentException("parameter buffer should not be null");
+        return new Reader(new ByteBufferInputStream(buffer));
+    }
+
+    /**
+     * Writes paths as records relative to the previously written path. Records are
+     * buffered internally, so the underlying stream does not need to be buffered.
+     * <p>
+     * This class is not thread-safe.
+     */
+    public static final class Writer implements Flushable, Closeable {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int count;
+        private PathSegment previous = MissingSegment.INSTANCE;
+
+        private Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * Writes the given path.
+         *
+         * @param path a non-null {@link PathSegment}.
+         * @throws IOException if the underlying stream fails.
+         */
+        public void write(PathSegment path) throws IOException {
+            if (path == null) throw new IllegalArgumentException("parameter path should not be null");
+            int shared = sharedSegments(previous, path);
+            PathSegment[] added = new PathSegment[path.getDepth() + 1 - shared];
+            PathSegment current = path;
+            for (int i = added.length - 1; i >= 0; i--) {
+                added[i] = current;
+                current = current.getParent();
+            }
+
+            writeVarint(shared);
+            writeVarint(added.length);
+            for (PathSegment segment : added) {
+                if (segment.isIndex()) {
+                    writeByte(INDEX);
+                    writeVarint(((IndexSegment) segment).getIndex());
+                } else {
+                    byte[] bytes = segment.getValue().getBytes(StandardCharsets.UTF_8);
+                    writeByte(NAME);
+                    writeVarint(bytes.length);
+                    writeBytes(bytes);
+                }
+            }
+            previous = path;
+        }
+
+        /**
+         * Writes every buffered record to the underlying stream and flushes it.
+         */
+        @Override
+        public void flush() throws IOException {
+            drain();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                out.close();
+            }
+        }
+
+        /**
+         * Counts the leading segments shared with the previous path, taking the
+         * segment types into account so they are preserved by the {@link Reader}.
+         */
+        private static int sharedSegments(PathSegment previous, PathSegment path) {
+            PathSegment common = previous.commonAncestor(path);
+            int shared = common.getDepth() + 1;
+            if (shared == 0) return 0;
+
+            PathSegment current = common;
+            PathSegment other = path.get(common.getDepth());
+            while (current != other && !current.isMissing()) {
+                if (current.isIndex() != other.isIndex()) {
+                    shared = current.getDepth();
+                }
+                current = current.getParent();
+                other = other.getParent();
+            }
+            return shared;
+        }
+
+        private void writeVarint(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        private void writeByte(int value) throws IOException {
+            if (count == buffer.length) drain();
+            buffer[count++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.length - count) {
+                drain();
+                if (bytes.length > buffer.length) {
+                    out.write(bytes);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, 0, buffer, count, bytes.length);
+            count += bytes.length;
+        }
+
+        private void drain() throws IOException {
+            if (count > 0) {
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+        }
+    }
+
+    /**
+     * Reads the paths written by a {@link Writer}, in the same order. Input is
+     * buffered internally, so the underlying stream does not need to be buffered.
+     * <p>
+     * {@link IOException}s thrown by the underlying stream, or for malformed input,
+     * are rethrown as {@link UncheckedIOException}s. This class is not thread-safe.
+     */
+    public static final class Reader implements Iterator<PathSegment>, Closeable {
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private PathSegment previous = MissingSegment.INSTANCE;
+
+        private Reader(InputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return position < limit || fill();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * @return the next path, sharing its common ancestors with the previously read path.
+         */
+        @Override
+        public PathSegment next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            try {
+                return read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove operation is not supported");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private PathSegment read() throws IOException {
+            int shared = readVarint();
+            int added = readVarint();
+            if (shared < 0 || shared > previous.getDepth() + 1 || added < 0) {
+                throw new IOException("Malformed record: " + shared + " shared segments on a path of depth " + previous.getDepth());
+            }
+
+            PathSegment result = shared == 0 ? MissingSegment.INSTANCE : previous.get(shared - 1);
+            for (int i = 0; i < added; i++) {
+                int tag = readByte();
+                if (tag == INDEX) {
+                    int index = readVarint();
+                    if (index < 0) throw new IOException("Malformed record: negative index " + index);
+                    result = result.append(index);
+                } else if (tag == NAME) {
+                    result = result.append(readName(readVarint()));
+                } else {
+                    throw new IOException("Malformed record: unknown segment tag " + tag);
+                }
+            }
+            previous = result;
+            return result;
+        }
+
+        private String readName(int length) throws IOException {
+            if (length < 0) throw new IOException("Malformed record: negative name length " + length);
+            if (length <= limit - position) {
+                String name = new String(buffer, position, length, StandardCharsets.UTF_8);
+                position += length;
+                return name;
+            }
+            // Grows with the bytes actually read, so a corrupt length cannot allocate it upfront.
+            byte[] bytes = new byte[Math.min(length, 2 * BUFFER_SIZE)];
+            int read = 0;
+            while (read < length) {
+                if (position == limit && !fill()) {
+                    throw new EOFException("Malformed record: name of " + length + " bytes ends after " + read + " bytes");
+                }
+                int chunk = Math.min(length - read, limit - position);
+                if (read + chunk > bytes.length) {
+                    bytes = Arrays.copyOf(bytes, (int) Math.min(length, Math.max(read + chunk, 2L * bytes.length)));
+                }
+                System.arraycopy(buffer, position, bytes, read, chunk);
+                position += chunk;
+                read += chunk;
+            }
+            return new String(bytes, 0, read, StandardCharsets.UTF_8);
+        }
+
+        private int readVarint() throws IOException {
+            int result = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                result |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+            throw new IOException("Malformed record: varint is too long");
+        }
+
+        private int readByte() throws IOException {
+            if (position == limit && !fill()) throw new EOFException();
+            return buffer[position++] & 0xFF;
+        }
+
+        private boolean fill() throws IOException {
+            int read = in.read(buffer, 0, buffer.length);
+            position = 0;
+            limit = Math.max(read, 0);
+            return read > 0;
+        }
+    }
+
+    private static final class ByteBufferOutputStream extends OutputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferOutputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            buffer.put(bytes, offset, length);
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) return -1;
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package br.louiz.path;
+
+import java.util.Arrays;
+
+/**
+ * A mutable path for walking trees one step at a time, such as the events of a
+ * streaming JSON tokenizer, without building a {@link PathSegment} on every step.
+ * <p>
+ * Segments are kept in internal arrays that grow as needed and are reused after
+ * {@link #pop()}, so {@link #pushName(String)}, {@link #pushIndex(int)},
+ * {@link #setIndex(int)} and {@link #pop()} do not allocate once the cursor reached
+ * its maximum depth.
+ * <p>
+ * A {@link PathSegment} is only built by {@link #freeze()}. Frozen segments are kept
+ * per depth, so freezing again only builds the segments that changed since then.
+ * <p>
+ * Like {@link PathSegment}, an empty cursor has {@link #getDepth() depth} -1.
+ * This class is not thread-safe.
+ */
+public final class PathCursor {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The name at each depth, or null where the segment is an index.
+     */
+    private String[] names;
+    private int[] indexes;
+
+    /**
+     * Segments built by {@link #freeze()}, valid up to {@link #frozenDepth}.
+     */
+    private PathSegment[] frozen;
+    private int frozenDepth = -1;
+    private int depth = -1;
+
+    public PathCursor() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity the expected maximum depth, the cursor grows past it if needed.
+     * @throws IllegalArgumentException if initialCapacity is negative.
+     */
+    public PathCursor(int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("parameter initialCapacity should not be negative");
+        this.names = new String[initialCapacity];
+        this.indexes = new int[initialCapacity];
+        this.frozen = new PathSegment[initialCapacity];
+    }
+
+    /**
+     * Pushes a name segment.
+     *
+     * @param name a non-null name.
+     * @return {@code this} cursor.
+     * @throws IllegalArgumentException if name is null.
+     */
+    public PathCursor pushName(String name) {
+        if (name == null) throw new IllegalArgumentException("parameter name should not be null");
+        grow();
+        names[++depth] = name;
+        invalidate(depth);
+        return this;
+    }
+
+    /**
+     * Pushes an index segment.
+     *
+     * @param index a non-negative index.
+     * @return {@code this} cursor.
+     * @throws IllegalArgumentException if index is negative.
+     */
+    public PathCursor pushIndex(int index) {
+        if (index < 0) throw new IllegalArgumentException("parameter index should not be negative");
+        grow();
+        names[++depth] = null;
+        indexes[depth] = index;
+        invalidate(depth);
+        return this;
+    }
+
+    /**
+     * Replaces the index of the last segment, such as when moving to the next element of an array.
+     *
+     * @param index a non-negative index.
+     * @return {@code this} cursor.
+     * @throws IllegalArgumentException if index is negative.
+     * @throws IllegalStateException    if the last segment is not an index.
+     */
+    public PathCursor setIndex(int index) {
+        if (index < 0) throw new IllegalArgumentException("parameter index should not be negative");
+        if (!isIndex()) throw new IllegalStateException("Last segment is not an index");
+        if (indexes[depth] != index) {
+            indexes[depth] = index;
+            invalidate(depth);
+        }
+        return this;
+    }
+
+    /**
+     * Removes the last segment.
+     *
+     * @return {@code this} cursor.
+     * @throws IllegalStateException if the cursor is empty.
+     */
+    public PathCursor pop() {
+        if (depth < 0) throw new IllegalStateException("Cursor is empty");
+        names[depth] = null;
+        invalidate(depth--);
+        return this;
+    }
+
+    /**
+     * Removes every segment, keeping the internal arrays for reuse.
+     *
+     * @return {@code this} cursor.
+     */
+    public PathCursor clear() {
+        Arrays.fill(names, 0, depth + 1, null);
+        Arrays.fill(frozen, 0, frozenDepth + 1, null);
+        depth = -1;
+        frozenDepth = -1;
+        return this;
+    }
+
+    /**
+     * @return the depth of the last segment, or -1 if the cursor is empty.
+     * @see PathSegment#getDepth()
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return {@code true} if the cursor is empty.
+     */
+    public boolean isMissing() {
+        return depth < 0;
+    }
+
+    /**
+     * @return {@code true} if the last segment is an index.
+     */
+    public boolean isIndex() {
+        return depth >= 0 && names[depth] == null;
+    }
+
+    /**
+     * @return the value of the last segment, or an empty {@link String} if the cursor is empty.
+     * @see PathSegment#getValue()
+     */
+    public String getValue() {
+        if (depth < 0) return "";
+        String name = names[depth];
+        return name != null ? name : String.valueOf(indexes[depth]);
+    }
+
+    /**
+     * @return the index of the last segment.
+     * @throws IllegalStateException if the last segment is not an index.
+     */
+    public int getIndex() {
+        if (!isIndex()) throw new IllegalStateException("Last segment is not an index");
+        return indexes[depth];
+    }
+
+    /**
+     * Builds the {@link PathSegment} for the current position. Segments frozen before
+     * and not changed since then are reused, so freezing repeatedly along a walk
+     * only builds the new segments.
+     *
+     * @return a {@link PathSegment} equal to this cursor, or a {@link MissingSegment} if the cursor is empty.
+     */
+    public PathSegment freeze() {
+        PathSegment result = frozenDepth >= 0 ? frozen[frozenDepth] : MissingSegment.INSTANCE;
+        while (frozenDepth < depth) {
+            int next = frozenDepth + 1;
+            result = names[next] != null ? result.append(names[next]) : result.append(indexes[next]);
+            frozen[next] = result;
+            frozenDepth = next;
+        }
+        return result;
+    }
+
+    /**
+     * Compares the current position with the given path without building a {@link PathSegment},
+     * with the same semantics as {@link PathSegment#equals(Object)}.
+     *
+     * @param path a {@link PathSegment}, null is never equal.
+     * @return {@code true} if the given path has the same values on every segment.
+     */
+    public boolean equalsPath(PathSegment path) {
+        if (path == null || path.getDepth() != depth) return false;
+        for (PathSegment current = path; current.getDepth() >= 0; current = current.getParent()) {
+            int segment = current.getDepth();
+            if (segment <= frozenDepth && frozen[segment] == current) return true;
+            if (compareValue(segment, current) != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compares the current position with the given path without building a {@link PathSegment},
+     * with the same ordering as {@link PathSegment#compareTo(PathSegment)}.
+     *
+     * @param path a non-null {@link PathSegment}.
+     * @throws IllegalArgumentException if path is null.
+     */
+    public int compareTo(PathSegment path) {
+        if (path == null) throw new IllegalArgumentException("parameter path should not be null");
+        int commonDepth = Math.min(depth, path.getDepth());
+
+        // Walks up the chain keeping the difference closest to the root.
+        int result = 0;
+        PathSegment current = commonDepth < 0 ? MissingSegment.INSTANCE : path.get(commonDepth);
+        for (; current.getDepth() >= 0; current = current.getParent()) {
+            int segment = current.getDepth();
+            if (segment <= frozenDepth && frozen[segment] == current) break;
+            int compared = compareValue(segment, current);
+            if (compared != 0) result = compared;
+        }
+        if (result != 0) return Integer.compare(result, 0);
+        return Integer.compare(depth, path.getDepth());
+    }
+
+    /**
+     * Returns a {@link String} representation of the current position, compatible
+     * with {@link PathSegment#toString()}.
+     */
+    @Override
+    public String toString() {
+        return freeze().toString();
+    }
+
+    /**
+     * Compares the value at the given depth with the value of the given segment,
+     * following {@link PathSegment#compareValues(String, String)}.
+     */
+    private int compareValue(int segment, PathSegment other) {
+        String name = names[segment];
+        if (name != null && !other.isIndex()) return PathSegment.compareValues(name, other.getValue());
+
+        int index = name != null ? PathParser.canonicalIndex(name) : indexes[segment];
+        int otherIndex = other.isIndex()
+                ? ((IndexSegment) other).getIndex()
+                : PathParser.canonicalIndex(other.getValue());
+        if (index < 0) return 1;
+        if (otherIndex < 0) return -1;
+        return Integer.compare(index, otherIndex);
+    }
+
+    /**
+     * Drops the frozen segments at the given depth and below.
+     */
+    private void invalidate(int segment) {
+        while (frozenDepth >= segment) {
+            frozen[frozenDepth--] = null;
+        }
+    }
+
+    private void grow() {
+        if (depth + 1 == names.length) {
+            int capacity = Math.max(DEFAULT_CAPACITY, names.length * 2);
+            names = Arrays.copyOf(names, capacity);
+            indexes = Arrays.copyOf(indexes, capacity);
+            frozen = Arrays.copyOf(frozen, capacity);
+        }
+    }
+}
@@ -0,0 +1,499 @@
+package br.louiz.path;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An immutable, read-only set of paths stored as a prefix-shared trie in a single
+ * {@link ByteBuffer}, usually a file mapped through {@link #open(Path)}.
+ * <p>
+ * Lookups and enumeration read straight from the buffer, so opening a dictionary
+ * does not build any {@link PathSegment} and costs a single map call no matter
+ * how many paths it holds, and processes mapping the same file share its pages.
+ * <p>
+ * Each path has an id, its position in the dictionary following {@link PathSegment}
+ * tree order, the order of {@link PathSorter}. The paths under a prefix therefore
+ * have consecutive ids.
+ * <p>
+ * The layout, with big-endian {@code int}s, is a header (magic, version, number of
+ * paths, root node offset, key pool offset and total length), followed by the nodes
+ * in pre-order, followed by the pool of UTF-8 encoded names. Each node holds its id
+ * (-1 if it is only a prefix), its number of children and one 16 byte entry per child
+ * (key, key length, kind and node offset), sorted by key so they can be binary searched.
+ * Index keys, and names that are canonical indexes, are stored inline as the key itself,
+ * while other names point to their bytes in the pool, where equal names are stored once.
+ * <p>
+ * Instances are safe to share between threads.
+ *
+ * @see #builder()
+ */
+public final class PathDictionary implements Iterable<PathSegment> {
+
+    private static final int MAGIC = 0x50415448;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int NODE_HEADER_SIZE = 8;
+    private static final int ENTRY_SIZE = 16;
+
+    private static final int NAME = 0;
+    private static final int INDEX = 1;
+    private static final int NUMERIC_NAME = 2;
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int root;
+
+    private PathDictionary(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("buffer does not hold a path dictionary");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("unsupported path dictionary version " + buffer.getInt(4));
+        }
+        if (buffer.getInt(20) > buffer.capacity()) {
+            throw new IllegalArgumentException("path dictionary is truncated");
+        }
+        this.size = buffer.getInt(8);
+        this.root = buffer.getInt(12);
+    }
+
+    /**
+     * @return a new, empty {@link Builder}.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Maps the given dictionary file in memory. The mapping outlives the file channel
+     * and is released when the returned dictionary is garbage collected.
+     *
+     * @param file a non-null file written by {@link Builder#write(Path)}.
+     * @return a {@link PathDictionary} reading from the mapped file.
+     * @throws IllegalArgumentException if file is null or does not hold a path dictionary.
+     * @throws IOException              if the file can not be read.
+     */
+    public static PathDictionary open(Path file) throws IOException {
+        if (file == null) throw new IllegalArgumentException("parameter file should not be null");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @param buffer a non-null buffer holding a dictionary from its index 0. It is not modified.
+     * @return a {@link PathDictionary} reading from the given buffer.
+     * @throws IllegalArgumentException if buffer is null or does not hold a path dictionary.
+     */
+    public static PathDictionary wrap(ByteBuffer buffer) {
+        if (buffer == null) throw new IllegalArgumentException("parameter buffer should not be null");
+        return new PathDictionary(buffer.duplicate().order(ByteOrder.BIG_ENDIAN));
+    }
+
+    /**
+     * @return the number of paths in this dictionary.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param path a non-null {@link PathSegment}.
+     * @return true if the given path was added to this dictionary.
+     * @throws IllegalArgumentException if path is null.
+     */
+    public boolean contains(PathSegment path) {
+        return idOf(path) >= 0;
+    }
+
+    /**
+     * @param path a non-null {@link PathSegment}.
+     * @return the id of the given path, from 0 to {@link #size()} exclusive, or -1 if it is not in this dictionary.
+     * @throws IllegalArgumentException if path is null.
+     */
+    public int idOf(PathSegment path) {
+        if (path == null) throw new IllegalArgumentException("parameter path should not be null");
+        int node = find(path);
+        return node < 0 ? -1 : buffer.getInt(node);
+    }
+
+    /**
+     * Performs the given action for each path starting with the given prefix, including
+     * the prefix itself, in id order.
+     *
+     * @param prefix a non-null {@link PathSegment}, reused as the ancestor of every visited path.
+     * @param action a non-null action receiving each path and its id.
+     * @throws IllegalArgumentException if prefix or action is null.
+     */
+    public void forEach(PathSegment prefix, ObjIntConsumer<? super PathSegment> action) {
+        if (prefix == null) throw new IllegalArgumentException("parameter prefix should not be null");
+        if (action == null) throw new IllegalArgumentException("parameter action should not be null");
+        NodeIterator iterator = new NodeIterator(find(prefix), prefix);
+        while (iterator.hasNext()) {
+            PathSegment path = iterator.next();
+            action.accept(path, iterator.id);
+        }
+    }
+
+    /**
+     * @return an iterator over every path in this dictionary, in id order.
+     */
+    @Override
+    public Iterator<PathSegment> iterator() {
+        return new NodeIterator(root, MissingSegment.INSTANCE);
+    }
+
+    /**
+     * @param prefix a non-null {@link PathSegment}, reused as the ancestor of every returned path.
+     * @return an iterator over the paths starting with the given prefix, including the prefix itself, in id order.
+     * @throws IllegalArgumentException if prefix is null.
+     */
+    public Iterator<PathSegment> iterator(PathSegment prefix) {
+        if (prefix == null) throw new IllegalArgumentException("parameter prefix should not be null");
+        return new NodeIterator(find(prefix), prefix);
+    }
+
+    /**
+     * @return the offset of the node for the given path, or -1 if there is none.
+     */
+    private int find(PathSegment path) {
+        int node = root;
+        for (PathSegment segment : path) {
+            node = child(node, segment);
+            if (node < 0) return -1;
+        }
+        return node;
+    }
+
+    private int child(int node, PathSegment segment) {
+        int key = keyOf(segment);
+        String name = key < 0 ? segment.getValue() : null;
+
+        int low = 0;
+        int high = buffer.getInt(node + 4) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = node + NODE_HEADER_SIZE + middle * ENTRY_SIZE;
+            int compared = compareEntry(entry, key, name);
+            if (compared < 0) {
+                low = middle + 1;
+            } else if (compared > 0) {
+                high = middle - 1;
+            } else {
+                return buffer.getInt(entry + 12);
+            }
+        }
+        return -1;
+    }
+
+    private int compareEntry(int entry, int key, String name) {
+        if (buffer.getInt(entry + 8) != NAME) {
+            return key < 0 ? -1 : Integer.compare(buffer.getInt(entry), key);
+        }
+        if (key >= 0) return 1;
+
+        // Decodes the stored UTF-8 bytes, comparing them with the name in String order.
+        int position = buffer.getInt(entry);
+        int end = position + buffer.getInt(entry + 4);
+        int i = 0;
+        while (position < end && i < name.length()) {
+            int first = buffer.get(position) & 0xFF;
+            int codePoint;
+            if (first < 0x80) {
+                codePoint = first;
+                position += 1;
+            } else if (first < 0xE0) {
+                codePoint = (first & 0x1F) << 6 | continuation(position + 1);
+                position += 2;
+            } else if (first < 0xF0) {
+                codePoint = (first & 0x0F) << 12 | continuation(position + 1) << 6 | continuation(position + 2);
+                position += 3;
+            } else {
+                codePoint = (first & 0x07) << 18 | continuation(position + 1) << 12
+                        | continuation(position + 2) << 6 | continuation(position + 3);
+                position += 4;
+            }
+            int other = name.codePointAt(i);
+            if (codePoint != other) return compareUtf16(codePoint, other);
+            i += Character.charCount(other);
+        }
+        return Boolean.compare(position < end, i < name.length());
+    }
+
+    private int continuation(int position) {
+        return buffer.get(position) & 0x3F;
+    }
+
+    private PathSegment childPath(PathSegment parent, int entry) {
+        int kind = buffer.getInt(entry + 8);
+        int key = buffer.getInt(entry);
+        if (kind == INDEX) return parent.append(key);
+        if (kind == NUMERIC_NAME) return parent.append(Integer.toString(key));
+
+        byte[] bytes = new byte[buffer.getInt(entry + 4)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(key + i);
+        }
+        return parent.append(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the index of the given segment, or of its value if it is a canonical index, otherwise -1.
+     */
+    private static int keyOf(PathSegment segment) {
+        return segment.isIndex()
+                ? ((IndexSegment) segment).getIndex()
+                : PathParser.canonicalIndex(segment.getValue());
+    }
+
+    /**
+     * Compares two distinct code points by their first UTF-16 unit, as {@link String#compareTo(String)}
+     * would, so supplementary characters come before the last BMP characters.
+     */
+    private static int compareUtf16(int first, int second) {
+        int firstUnit = Character.isBmpCodePoint(first) ? first : Character.highSurrogate(first);
+        int secondUnit = Character.isBmpCodePoint(second) ? second : Character.highSurrogate(second);
+        return firstUnit != secondUnit ? Integer.compare(firstUnit, secondUnit) : Integer.compare(first, second);
+    }
+
+    /**
+     * Walks a subtree in pre-order with an explicit stack of node offsets
+     * and their paths, skipping nodes that are only prefixes.
+     */
+    private final class NodeIterator implements Iterator<PathSegment> {
+        private int[] nodes = new int[16];
+        private PathSegment[] paths = new PathSegment[16];
+        private int top = -1;
+        private PathSegment next;
+        private int nextId;
+        int id = -1;
+
+        NodeIterator(int node, PathSegment path) {
+            if (node >= 0) push(node, path);
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public PathSegment next() {
+            if (next == null) throw new NoSuchElementException();
+            PathSegment result = next;
+            id = nextId;
+            advance();
+            return result;
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && top >= 0) {
+                int node = nodes[top];
+                PathSegment path = paths[top];
+                paths[top--] = null;
+
+                int count = buffer.getInt(node + 4);
+                for (int i = count - 1; i >= 0; i--) {
+                    int entry = node + NODE_HEADER_SIZE + i * ENTRY_SIZE;
+                    push(buffer.getInt(entry + 12), childPath(path, entry));
+                }
+                int nodeId = buffer.getInt(node);
+                if (nodeId >= 0) {
+                    next = path;
+                    nextId = nodeId;
+                }
+            }
+        }
+
+        private void push(int node, PathSegment path) {
+            if (++top == nodes.length) {
+                nodes = Arrays.copyOf(nodes, top * 2);
+                paths = Arrays.copyOf(paths, top * 2);
+            }
+            nodes[top] = node;
+            paths[top] = path;
+        }
+    }
+
+    /**
+     * Collects paths in memory and lays them out as a {@link PathDictionary}.
+     * Adding the same path twice, even as a different segment type, has no effect.
+     */
+    public static final class Builder {
+        private final BuilderNode root = new BuilderNode(null, -1, NAME);
+
+        private Builder() {
+        }
+
+        /**
+         * @param path a non-null {@link PathSegment} to be added.
+         * @return this builder.
+         * @throws IllegalArgumentException if path is null.
+         */
+        public Builder add(PathSegment path) {
+            if (path == null) throw new IllegalArgumentException("parameter path should not be null");
+            BuilderNode node = root;
+            for (PathSegment segment : path) {
+                node = node.child(segment);
+            }
+            node.terminal = true;
+            return this;
+        }
+
+        /**
+         * @return a {@link PathDictionary} over a heap buffer holding the added paths.
+         * @throws IllegalStateException if the dictionary would be larger than 2GB.
+         */
+        public PathDictionary build() {
+            return new PathDictionary(layout());
+        }
+
+        /**
+         * Writes the added paths to the given file, replacing it if it exists.
+         *
+         * @param file a non-null file, to be read with {@link PathDictionary#open(Path)}.
+         * @throws IllegalArgumentException if file is null.
+         * @throws IllegalStateException    if the dictionary would be larger than 2GB.
+         * @throws IOException              if the file can not be written.
+         */
+        public void write(Path file) throws IOException {
+            if (file == null) throw new IllegalArgumentException("parameter file should not be null");
+            ByteBuffer buffer = layout();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+
+        private ByteBuffer layout() {
+            // First pass: places the nodes in pre-order, numbering the paths and pooling names.
+            List<BuilderNode> order = new ArrayList<>();
+            Map<String, BuilderNode> pool = new HashMap<>();
+            List<byte[]> names = new ArrayList<>();
+            long position = HEADER_SIZE;
+            long poolSize = 0;
+            int count = 0;
+
+            Deque<BuilderNode> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                BuilderNode node = stack.pop();
+                order.add(node);
+                node.offset = position;
+                node.id = node.terminal ? count++ : -1;
+                node.sorted = node.sortedChildren();
+                position += NODE_HEADER_SIZE + (long) node.sorted.length * ENTRY_SIZE;
+                for (int i = node.sorted.length - 1; i >= 0; i--) {
+                    BuilderNode child = node.sorted[i];
+                    if (child.kind == NAME) {
+                        BuilderNode pooled = pool.get(child.name);
+                        if (pooled == null) {
+                            byte[] bytes = child.name.getBytes(StandardCharsets.UTF_8);
+                            pool.put(child.name, child);
+                            names.add(bytes);
+                            child.nameOffset = (int) poolSize;
+                            child.nameLength = bytes.length;
+                            poolSize += bytes.length;
+                        } else {
+                            child.nameOffset = pooled.nameOffset;
+                            child.nameLength = pooled.nameLength;
+                        }
+                    }
+                    stack.push(child);
+                }
+            }
+            long length = position + poolSize;
+            if (length > Integer.MAX_VALUE) throw new IllegalStateException("path dictionary would exceed 2GB");
+            int poolOffset = (int) position;
+
+            // Second pass: writes the header, the nodes and the pool.
+            ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(HEADER_SIZE).putInt(poolOffset).putInt((int) length);
+            for (BuilderNode node : order) {
+                buffer.putInt(node.id).putInt(node.sorted.length);
+                for (BuilderNode child : node.sorted) {
+                    if (child.kind == NAME) {
+                        buffer.putInt(poolOffset + child.nameOffset).putInt(child.nameLength);
+                    } else {
+                        buffer.putInt(child.key).putInt(0);
+                    }
+                    buffer.putInt(child.kind).putInt((int) child.offset);
+                }
+                node.sorted = null;
+            }
+            for (byte[] bytes : names) {
+                buffer.put(bytes);
+            }
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    private static final class BuilderNode {
+        private static final BuilderNode[] NO_CHILDREN = new BuilderNode[0];
+
+        final String name;
+        final int key;
+        final int kind;
+        Map<String, BuilderNode> children;
+        boolean terminal;
+        BuilderNode[] sorted;
+        long offset;
+        int id;
+        int nameOffset;
+        int nameLength;
+
+        BuilderNode(String name, int key, int kind) {
+            this.name = name;
+            this.key = key;
+            this.kind = kind;
+        }
+
+        BuilderNode child(PathSegment segment) {
+            int key = keyOf(segment);
+            String value = segment.getValue();
+            if (children == null) children = new HashMap<>();
+            BuilderNode child = children.get(value);
+            if (child == null) {
+                int kind = key < 0 ? NAME : segment.isIndex() ? INDEX : NUMERIC_NAME;
+                child = new BuilderNode(key < 0 ? value : null, key, kind);
+                children.put(value, child);
+            }
+            return child;
+        }
+
+        BuilderNode[] sortedChildren() {
+            if (children == null) return NO_CHILDREN;
+            BuilderNode[] result = children.values().toArray(NO_CHILDREN);
+            Arrays.sort(result, (first, second) -> {
+                if (first.kind != NAME || second.kind != NAME) {
+                    if (first.kind == NAME) return 1;
+                    if (second.kind == NAME) return -1;
+                    return Integer.compare(first.key, second.key);
+                }
+                return first.name.compareTo(second.name);
+            });
+            return result;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package br.louiz.path;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe pool of canonical {@link PathSegment}s. Equal paths interned
+ * on the same {@link PathInterner} are the same instance, and so are all of
+ * their ancestors.
+ * <p>
+ * Entries are keyed by the (canonical parent, {@link PathSegment#getValue() value},
+ * kind) triple, where the kind tells {@link NameSegment}s and {@link IndexSegment}s
+ * apart. Canonical segments are only weakly held, and keys only keep the identity
+ * hash of the parent, so a whole path that is no longer used elsewhere is reclaimed
+ * by a single garbage collection.
+ * <p>
+ * A bounded interner stops registering new canonical segments once it holds
+ * {@link #maximumSize()} of them. Paths that would exceed that limit are
+ * returned as built, without being canonicalized.
+ */
+public final class PathInterner {
+
+    /**
+     * A reusable key per thread, so lookups do not allocate.
+     */
+    private static final ThreadLocal<Key> PROBE = ThreadLocal.withInitial(Key::new);
+
+    /**
+     * An {@link Entry}, or an {@link Entry} array for the rare parents that share an identity hash.
+     */
+    private final ConcurrentMap<Key, Object> entries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<PathSegment> queue = new ReferenceQueue<>();
+    private final AtomicInteger count = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final int maximumSize;
+
+    /**
+     * Creates an unbounded {@link PathInterner}.
+     */
+    public PathInterner() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a bounded {@link PathInterner}.
+     *
+     * @param maximumSize the maximum number of canonical segments held at once.
+     * @throws IllegalArgumentException if maximumSize is negative.
+     */
+    public PathInterner(int maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Maximum size " + maximumSize + " should not be negative.");
+        }
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns the canonical instance of the given path. If there is none yet, the
+     * given path (or an equal one rebuilt on top of canonical ancestors) becomes
+     * the canonical instance.
+     * <p>
+     * Interning a path that is already canonical takes a single lookup, otherwise
+     * one lookup per segment is made.
+     *
+     * @param path a non-null {@link PathSegment} to be interned.
+     * @return the canonical instance equal to the given path. If the given path is a
+     * {@link MissingSegment}, returns {@link MissingSegment#INSTANCE}.
+     * @throws IllegalArgumentException if path is null.
+     */
+    public PathSegment intern(PathSegment path) {
+        if (path == null) throw new IllegalArgumentException("parameter path should not be null");
+        if (path.isMissing()) return MissingSegment.INSTANCE;
+        if (isCanonical(path)) {
+            hits.increment();
+            Metrics.lookup(PathMetrics.Lookup.INTERNER, true);
+            return path;
+        }
+
+        PathSegment result = MissingSegment.INSTANCE;
+        for (PathSegment segment : path.toArray()) {
+            result = canonical(result, segment);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the canonical {@link NameSegment} with the given name under the given
+     * parent. The parent is interned first if it is not canonical.
+     *
+     * @param parent a non-null {@link PathSegment}.
+     * @param name   the non-null name of the segment.
+     * @return the canonical segment equal to {@code parent.append(name)}.
+     * @throws IllegalArgumentException if parent or name are null.
+     */
+    public PathSegment append(PathSegment parent, String name) {
+        if (name == null) throw new IllegalArgumentException("parameter name should not be null");
+        PathSegment canonicalParent = intern(parent);
+        return canonical(canonicalParent, Key.NAME, name, null);
+    }
+
+    /**
+     * Returns the canonical {@link IndexSegment} with the given index under the given
+     * parent. The parent is interned first if it is not canonical.
+     *
+     * @param parent a non-null {@link PathSegment}.
+     * @param index  the index of the segment.
+     * @return the canonical segment equal to {@code parent.append(index)}.
+     * @throws IllegalArgumentException if parent is null or index is negative.
+     */
+    public PathSegment append(PathSegment parent, int index) {
+        if (index < 0) throw new IllegalArgumentException("Index " + index + " should not be negative.");
+        PathSegment canonicalParent = intern(parent);
+        return canonical(canonicalParent, Key.INDEX, String.valueOf(index), null);
+    }
+
+    /**
+     * @return the number of lookups that found a canonical segment.
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that had to register (or, when full, build) a segment.
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of canonical segments currently held, not counting the
+     * ones already reclaimed by the garbage collector.
+     */
+    public int size() {
+        expunge();
+        return count.get();
+    }
+
+    /**
+     * @return the maximum number of canonical segments held at once.
+     */
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    private boolean isCanonical(PathSegment path) {
+        return lookup(path.getParent(), kindOf(path), path.getValue()) == path;
+    }
+
+    /**
+     * @return the canonical segment for the given triple, or null if there is none.
+     */
+    private PathSegment lookup(PathSegment parent, int kind, String value) {
+        Key probe = PROBE.get();
+        probe.set(parent, kind, value);
+        Object found = entries.get(probe);
+        probe.value = null;
+        if (found instanceof Entry) return childOf((Entry) found, parent);
+        if (found != null) {
+            for (Entry entry : (Entry[]) found) {
+                PathSegment result = childOf(entry, parent);
+                if (result != null) return result;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the segment of the given entry if it is still held and a child of the given parent, otherwise null.
+     */
+    private static PathSegment childOf(Entry entry, PathSegment parent) {
+        PathSegment segment = entry.get();
+        return segment != null && segment.getParent() == parent ? segment : null;
+    }
+
+    private PathSegment canonical(PathSegment parent, PathSegment segment) {
+        return canonical(parent, kindOf(segment), segment.getValue(), segment);
+    }
+
+    /**
+     * @param candidate the segment to be registered if there is no canonical one yet.
+     *                  Only used when its parent is already the canonical parent, otherwise
+     *                  a new segment is built.
+     */
+    private PathSegment canonical(PathSegment parent, int kind, String value, PathSegment candidate) {
+        PathSegment result = lookup(parent, kind, value);
+        if (result != null) {
+            hits.increment();
+            Metrics.lookup(PathMetrics.Lookup.INTERNER, true);
+            return result;
+        }
+
+        misses.increment();
+        Metrics.lookup(PathMetrics.Lookup.INTERNER, false);
+        expunge();
+        if (candidate == null || candidate.getParent() != parent) {
+            candidate = kind == Key.INDEX
+                    ? new IndexSegment(Integer.parseInt(value), parent)
+                    : new NameSegment(value, parent);
+        }
+        if (count.get() >= maximumSize) return candidate;
+
+        Key key = new Key();
+        key.set(parent, kind, value);
+        Entry fresh = new Entry(key, candidate, queue);
+        PathSegment[] winner = {candidate};
+        entries.compute(key, (k, current) -> {
+            List<Entry> held = new ArrayList<>();
+            for (Entry entry : entriesOf(current)) {
+                PathSegment existing = entry.get();
+                if (existing == null) {
+                    count.decrementAndGet();
+                } else if (existing.getParent() == parent) {
+                    winner[0] = existing;
+                    return current;
+                } else {
+                    held.add(entry);
+                }
+            }
+            held.add(fresh);
+            count.incrementAndGet();
+            return held.size() == 1 ? held.get(0) : held.toArray(new Entry[0]);
+        });
+        return winner[0];
+    }
+
+    private void expunge() {
+        Entry entry;
+        while ((entry = (Entry) queue.poll()) != null) {
+            Entry cleared = entry;
+            entries.computeIfPresent(cleared.key, (k, current) -> {
+                List<Entry> held = new ArrayList<>();
+                for (Entry other : entriesOf(current)) {
+                    if (other == cleared) count.decrementAndGet();
+                    else held.add(other);
+                }
+                if (held.isEmpty()) return null;
+                return held.size() == 1 ? held.get(0) : held.toArray(new Entry[0]);
+            });
+        }
+    }
+
+    private static Entry[] entriesOf(Object value) {
+        if (value == null) return new Entry[0];
+        return value instanceof Entry ? new Entry[]{(Entry) value} : (Entry[]) value;
+    }
+
+    private static int kindOf(PathSegment segment) {
+        return segment.isIndex() ? Key.INDEX : Key.NAME;
+    }
+
+    /**
+     * Keeps the identity hash of the canonical parent instead of the parent itself, so keys
+     * do not keep parents alive. Entries confirm the parent by identity. Only the per-thread
+     * probe is ever changed after it is set.
+     */
+    private static final class Key {
+        static final int NAME = 0;
+        static final int INDEX = 1;
+
+        int parentHash;
+        int kind;
+        String value;
+        int hash;
+
+        void set(PathSegment parent, int kind, String value) {
+            this.parentHash = System.identityHashCode(parent);
+            this.kind = kind;
+            this.value = value;
+            this.hash = 31 * (31 * parentHash + kind) + value.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            return parentHash == that.parentHash && kind == that.kind && value.equals(that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry extends WeakReference<PathSegment> {
+        final Key key;
+
+        Entry(Key key, PathSegment segment, ReferenceQueue<PathSegment> queue) {
+            super(segment, queue);
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package br.louiz.path;
+
+/**
+ * Receives measurements of the path operations performed by this library.
+ * <p>
+ * A single implementation is discovered through {@link java.util.ServiceLoader} the
+ * first time a path operation is measured, by listing it in a
+ * {@code META-INF/services/br.louiz.path.PathMetrics} resource. When there is none,
+ * {@link #NOOP} is used and the checks guarding each measurement are constant
+ * {@code false}, so the JIT compiler removes them entirely.
+ * <p>
+ * Implementations are called from every thread performing path operations, so they
+ * must be thread-safe and cheap. Every method does nothing by default.
+ *
+ * @see StripedPathMetrics
+ */
+public interface PathMetrics {
+
+    /**
+     * Metrics that discard every measurement.
+     */
+    PathMetrics NOOP = new PathMetrics() {
+    };
+
+    /**
+     * The measured operations. Operations performed by other operations, such as the
+     * appends made by {@link PathSegment#fromString(String)}, are measured as well.
+     */
+    enum Operation {
+        FROM_STRING, APPEND, FIND, CONTAINS, TO_ARRAY, EQUALS
+    }
+
+    /**
+     * The lookups whose hits and misses are reported.
+     */
+    enum Lookup {
+        /**
+         * {@link PathCache#get(String)}.
+         */
+        CACHE,
+        /**
+         * Each segment looked up by a {@link PathInterner}.
+         */
+        INTERNER
+    }
+
+    /**
+     * @return the metrics in use, {@link #NOOP} if no implementation was found.
+     */
+    static PathMetrics active() {
+        return Metrics.ACTIVE;
+    }
+
+    /**
+     * Called once each time an operation completes, including when it throws.
+     *
+     * @param operation the completed operation.
+     * @param nanos     the elapsed time, as measured by {@link System#nanoTime()}.
+     */
+    default void recordOperation(Operation operation, long nanos) {
+    }
+
+    /**
+     * Called with the {@link PathSegment#getDepth() depth} of each path built by
+     * {@link PathSegment#fromString(String)} or by an append.
+     */
+    default void recordDepth(int depth) {
+    }
+
+    /**
+     * Called with the length of each name appended to a path.
+     */
+    default void recordSegmentLength(int length) {
+    }
+
+    /**
+     * Called once for each cache or interner lookup.
+     *
+     * @param lookup the kind of lookup.
+     * @param hit    true if the lookup found an existing path.
+     */
+    default void recordLookup(Lookup lookup, boolean hit) {
+    }
+}
@@ -0,0 +1,261 @@
+package br.louiz.path;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses JavaScript Object Notation (JSON) Pointers, as defined by RFC 6901,
+ * into {@link PathSegment}s.
+ * <p>
+ * Unlike {@link PathSegment#fromString(String)}, the {@code ~0} and {@code ~1}
+ * escape sequences are decoded back into {@code ~} and {@code /}, and any other
+ * use of {@code ~} is rejected. Tokens without escape sequences are copied
+ * straight from the input, so only the segments and their values are allocated.
+ * <p>
+ * {@link #NAMES} always produces {@link NameSegment}s, while {@link #INDEXES}
+ * produces {@link IndexSegment}s for tokens that are canonical non-negative
+ * integers (no sign and no leading zeros), such as {@code 0} or {@code 42}.
+ */
+public final class PathParser {
+
+    /**
+     * Parses every token into a {@link NameSegment}.
+     */
+    public static final PathParser NAMES = new PathParser(false);
+
+    /**
+     * Parses canonical integer tokens into {@link IndexSegment}s and every other
+     * token into a {@link NameSegment}.
+     */
+    public static final PathParser INDEXES = new PathParser(true);
+
+    private final boolean indexes;
+
+    private PathParser(boolean indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * Parses the given JSON Pointer.
+     *
+     * @param path a non-null JSON Pointer.
+     * @return the parsed {@link PathSegment}, or a {@link MissingSegment} if the given path is empty.
+     * @throws IllegalArgumentException if path is null, does not begin with a {@code /} or
+     *                                  has an invalid escape sequence.
+     */
+    public PathSegment parse(CharSequence path) {
+        if (path == null) throw new IllegalArgumentException("parameter path should not be null");
+        int length = path.length();
+        if (length == 0) return MissingSegment.INSTANCE;
+        if (path.charAt(0) != '/') throw new IllegalArgumentException("Path must start with '/'");
+
+        PathSegment result = MissingSegment.INSTANCE;
+        int start = 1;
+        boolean escaped = false;
+        for (int i = 1; i <= length; i++) {
+            char c = i < length ? path.charAt(i) : '/';
+            if (c == '/') {
+                int index = indexes && !escaped ? canonicalIndex(path, start, i) : -1;
+                if (index >= 0) {
+                    result = result.append(index);
+                } else {
+                    String token = path.subSequence(start, i).toString();
+                    result = result.append(escaped ? unescape(token) : token);
+                }
+                start = i + 1;
+                escaped = false;
+            } else if (c == '~') {
+                escaped = true;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parses the JSON Pointer held by the given slice of a {@code char} array.
+     *
+     * @param path   a non-null {@code char} array.
+     * @param offset the index of the first character of the JSON Pointer.
+     * @param length the number of characters of the JSON Pointer.
+     * @return the parsed {@link PathSegment}, or a {@link MissingSegment} if length is zero.
+     * @throws IllegalArgumentException  if path is null, does not begin with a {@code /} or
+     *                                   has an invalid escape sequence.
+     * @throws IndexOutOfBoundsException if the slice is out of the array bounds.
+     */
+    public PathSegment parse(char[] path, int offset, int length) {
+        if (path == null) throw new IllegalArgumentException("parameter path should not be null");
+        checkBounds(path.length, offset, length);
+        if (length == 0) return MissingSegment.INSTANCE;
+        if (path[offset] != '/') throw new IllegalArgumentException("Path must start with '/'");
+
+        int end = offset + length;
+        PathSegment result = MissingSegment.INSTANCE;
+        int start = offset + 1;
+        boolean escaped = false;
+        for (int i = offset + 1; i <= end; i++) {
+            char c = i < end ? path[i] : '/';
+            if (c == '/') {
+                int index = indexes && !escaped ? canonicalIndex(path, start, i) : -1;
+                if (index >= 0) {
+                    result = result.append(index);
+                } else {
+                    String token = new String(path, start, i - start);
+                    result = result.append(escaped ? unescape(token) : token);
+                }
+                start = i + 1;
+                escaped = false;
+            } else if (c == '~') {
+                escaped = true;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parses the UTF-8 encoded JSON Pointer held by the given slice of a {@code byte} array.
+     * Malformed UTF-8 sequences are replaced with the Unicode replacement character.
+     *
+     * @param path   a non-null {@code byte} array.
+     * @param offset the index of the first byte of the JSON Pointer.
+     * @param length the number of bytes of the JSON Pointer.
+     * @return the parsed {@link PathSegment}, or a {@link MissingSegment} if length is zero.
+     * @throws IllegalArgumentException  if path is null, does not begin with a {@code /} or
+     *                                   has an invalid escape sequence.
+     * @throws IndexOutOfBoundsException if the slice is out of the array bounds.
+     */
+    public PathSegment parse(byte[] path, int offset, int length) {
+        if (path == null) throw new IllegalArgumentException("parameter path should not be null");
+        checkBounds(path.length, offset, length);
+        if (length == 0) return MissingSegment.INSTANCE;
+        if (path[offset] != '/') throw new IllegalArgumentException("Path must start with '/'");
+
+        // '/' and '~' are ASCII, so they never show up inside multi-byte UTF-8 sequences.
+        int end = offset + length;
+        PathSegment result = MissingSegment.INSTANCE;
+        int start = offset + 1;
+        boolean escaped = false;
+        for (int i = offset + 1; i <= end; i++) {
+            byte b = i < end ? path[i] : (byte) '/';
+            if (b == '/') {
+                int index = indexes && !escaped ? canonicalIndex(path, start, i) : -1;
+                if (index >= 0) {
+                    result = result.append(index);
+                } else {
+                    String token = new String(path, start, i - start, StandardCharsets.UTF_8);
+                    result = result.append(escaped ? unescape(token) : token);
+                }
+                start = i + 1;
+                escaped = false;
+            } else if (b == '~') {
+                escaped = true;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parses the UTF-8 encoded JSON Pointer held between the {@link ByteBuffer#position() position}
+     * and the {@link ByteBuffer#limit() limit} of the given buffer, without changing its position.
+     * Buffers without an accessible backing array are copied first.
+     *
+     * @param path a non-null {@link ByteBuffer}.
+     * @return the parsed {@link PathSegment}, or a {@link MissingSegment} if the buffer has no remaining bytes.
+     * @throws IllegalArgumentException if path is null, does not begin with a {@code /} or
+     *                                  has an invalid escape sequence.
+     * @see #parse(byte[], int, int)
+     */
+    public PathSegment parse(ByteBuffer path) {
+        if (path == null) throw new IllegalArgumentException("parameter path should not be null");
+        if (path.hasArray()) {
+            return parse(path.array(), path.arrayOffset() + path.position(), path.remaining());
+        }
+        byte[] bytes = new byte[path.remaining()];
+        path.duplicate().get(bytes);
+        return parse(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Returns the value of the given token if it is a canonical non-negative {@code int},
+     * in other words, {@code 0} or a sequence of digits without leading zeros that does
+     * not overflow.
+     *
+     * @return the parsed index, or -1 if the token is not a canonical index.
+     */
+    static int canonicalIndex(CharSequence token, int start, int end) {
+        int length = end - start;
+        if (length == 0 || length > 10 || (length > 1 && token.charAt(start) == '0')) return -1;
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = token.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            result = result * 10 + digit;
+        }
+        return result <= Integer.MAX_VALUE ? (int) result : -1;
+    }
+
+    /**
+     * @see #canonicalIndex(CharSequence, int, int)
+     */
+    static int canonicalIndex(String token) {
+        return canonicalIndex(token, 0, token.length());
+    }
+
+    private static int canonicalIndex(char[] token, int start, int end) {
+        int length = end - start;
+        if (length == 0 || length > 10 || (length > 1 && token[start] == '0')) return -1;
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = token[i] - '0';
+            if (digit < 0 || digit > 9) return -1;
+            result = result * 10 + digit;
+        }
+        return result <= Integer.MAX_VALUE ? (int) result : -1;
+    }
+
+    private static int canonicalIndex(byte[] token, int start, int end) {
+        int length = end - start;
+        if (length == 0 || length > 10 || (length > 1 && token[start] == '0')) return -1;
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = token[i] - '0';
+            if (digit < 0 || digit > 9) return -1;
+            result = result * 10 + digit;
+        }
+        return result <= Integer.MAX_VALUE ? (int) result : -1;
+    }
+
+    /**
+     * Decodes the {@code ~0} and {@code ~1} escape sequences of a single token.
+     *
+     * @throws IllegalArgumentException if the token has an invalid escape sequence.
+     */
+    static String unescape(String token) {
+        StringBuilder builder = new StringBuilder(token.length());
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c == '~') {
+                char next = ++i < token.length() ? token.charAt(i) : 0;
+                switch (next) {
+                    case '0':
+                        builder.append('~');
+                        break;
+                    case '1':
+                        builder.append('/');
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Invalid escape sequence in token '" + token + "'");
+                }
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void checkBounds(int arrayLength, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > arrayLength - length) {
+            String message = "Slice from " + offset + " with length " + length + " is out of bounds (0 to " + arrayLength + ")";
+            throw new IndexOutOfBoundsException(message);
+        }
+    }
+}
@@ -0,0 +1,485 @@
+package br.louiz.path;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A set of path rules compiled into a single deterministic automaton, so a
+ * {@link PathSegment} is matched against every rule in one pass over its segments.
+ * <p>
+ * Rules are written as JSON Pointers, where each token is either:
+ * <ul>
+ * <li>a literal, such as {@code users}, with {@code ~0} and {@code ~1} escapes;</li>
+ * <li>{@code *}, matching any single segment;</li>
+ * <li>{@code **}, matching zero or more segments;</li>
+ * <li>{@code {name}}, matching and capturing any single segment;</li>
+ * <li>{@code {name:int}}, matching and capturing a single index, in other words an
+ * {@link IndexSegment} or a name that is a canonical non-negative integer.</li>
+ * </ul>
+ * For example {@code /users/*}{@code /email}, {@code /orders/**} or {@code /items/{idx:int}}.
+ * Literals follow {@link PathSegment#equals(Object)}, so {@code /a/3} matches both
+ * an index and a name with value {@code 3}.
+ * <p>
+ * Paths are walked from the root, like {@link PathSegment#forEach}, and rejected as soon as
+ * no rule can match anymore, without allocating. Captures are only resolved for the rules
+ * that matched.
+ * <p>
+ * Instances are immutable and thread-safe.
+ */
+public final class PathPattern {
+
+    private static final int[] NO_RULES = new int[0];
+
+    private final String[] rules;
+    private final Token[][] tokens;
+    private final State start;
+    private final int stateCount;
+
+    private PathPattern(String[] rules, Token[][] tokens, State start, int stateCount) {
+        this.rules = rules;
+        this.tokens = tokens;
+        this.start = start;
+        this.stateCount = stateCount;
+    }
+
+    /**
+     * Compiles the given rules. The id of each rule is its position among the parameters.
+     *
+     * @param rules the non-null rules to be compiled.
+     * @return the compiled rule set.
+     * @throws IllegalArgumentException if any rule is null or malformed.
+     */
+    public static PathPattern compile(String... rules) {
+        if (rules == null) throw new IllegalArgumentException("parameter rules should not be null");
+        return compile(Arrays.asList(rules));
+    }
+
+    /**
+     * Compiles the given rules. The id of each rule is its position on the list.
+     *
+     * @param rules the non-null rules to be compiled.
+     * @return the compiled rule set.
+     * @throws IllegalArgumentException if any rule is null or malformed.
+     */
+    public static PathPattern compile(List<String> rules) {
+        if (rules == null) throw new IllegalArgumentException("parameter rules should not be null");
+        String[] sources = rules.toArray(new String[0]);
+        Token[][] tokens = new Token[sources.length][];
+        Nfa nfa = new Nfa();
+        for (int rule = 0; rule < sources.length; rule++) {
+            tokens[rule] = tokenize(sources[rule]);
+            nfa.add(tokens[rule], rule);
+        }
+        Dfa dfa = new Dfa(nfa);
+        return new PathPattern(sources, tokens, dfa.start, dfa.count);
+    }
+
+    /**
+     * @return the number of compiled rules.
+     */
+    public int size() {
+        return rules.length;
+    }
+
+    /**
+     * @param rule the id of a rule.
+     * @return the source of the rule with the given id.
+     * @throws IndexOutOfBoundsException if there is no rule with the given id.
+     */
+    public String rule(int rule) {
+        return rules[rule];
+    }
+
+    /**
+     * @param path a non-null {@link PathSegment}.
+     * @return {@code true} if the given path matches at least one rule.
+     * @throws IllegalArgumentException if path is null.
+     */
+    public boolean matches(PathSegment path) {
+        State state = run(path);
+        return state != null && state.accepts.length > 0;
+    }
+
+    /**
+     * @param path a non-null {@link PathSegment}.
+     * @return the ids of the matching rules, in ascending order. Empty if none matches.
+     * @throws IllegalArgumentException if path is null.
+     */
+    public int[] matchingRules(PathSegment path) {
+        State state = run(path);
+        return state == null || state.accepts.length == 0 ? NO_RULES : state.accepts.clone();
+    }
+
+    /**
+     * Matches the given path against every rule and resolves the captures of the ones that matched.
+     *
+     * @param path a non-null {@link PathSegment}.
+     * @return a {@link Match} per matching rule, in ascending order of rule id. Empty if none matches.
+     * @throws IllegalArgumentException if path is null.
+     */
+    public List<Match> match(PathSegment path) {
+        State state = run(path);
+        if (state == null || state.accepts.length == 0) return Collections.emptyList();
+
+        PathSegment[] segments = path.isMissing() ? new PathSegment[0] : path.toArray();
+        List<Match> result = new ArrayList<>(state.accepts.length);
+        for (int rule : state.accepts) {
+            Map<String, PathSegment> captures = new LinkedHashMap<>();
+            capture(tokens[rule], 0, segments, 0, captures);
+            result.add(new Match(rule, rules[rule], Collections.unmodifiableMap(captures)));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public String toString() {
+        return "PathPattern" + Arrays.toString(rules) + " (" + stateCount + " states)";
+    }
+
+    /**
+     * Runs the automaton from the root, like {@link PathSegment#forEach}: the path is split in
+     * halves through {@link PathSegment#get(int)} until each part fits in a block of
+     * {@link PathSegment#WALK_BLOCK}, which is then walked from its last segment.
+     *
+     * @return the state reached after the whole path, or null once no rule can match anymore.
+     */
+    private State run(PathSegment path) {
+        if (path == null) throw new IllegalArgumentException("parameter path should not be null");
+        return path.getDepth() < 0 ? start : runRange(start, path, 0);
+    }
+
+    /**
+     * Runs the automaton from the segment at depth {@code first} to {@code last}, skipping the
+     * second half of a range once the first one has been rejected.
+     */
+    private static State runRange(State state, PathSegment last, int first) {
+        if (last.getDepth() - first >= PathSegment.WALK_BLOCK) {
+            PathSegment middle = last.get(PathSegment.middle(first, last.getDepth()));
+            state = runRange(state, middle, first);
+            return state == null ? null : runRange(state, last, middle.getDepth() + 1);
+        }
+        return runBlock(state, last, first);
+    }
+
+    /**
+     * Runs the automaton from the segment at depth {@code first} to {@code last}. Recursion is
+     * bounded by {@link PathSegment#WALK_BLOCK}, so the walk does not need an array to go forward.
+     */
+    private static State runBlock(State state, PathSegment last, int first) {
+        if (last.getDepth() > first) {
+            state = runBlock(state, last.getParent(), first);
+            if (state == null) return null;
+        }
+        return state.next(last);
+    }
+
+    /**
+     * Backtracking match of a single rule, only used to resolve captures of rules
+     * already known to match.
+     */
+    private static boolean capture(Token[] tokens, int token, PathSegment[] segments, int segment,
+                                   Map<String, PathSegment> captures) {
+        if (token == tokens.length) return segment == segments.length;
+        Token current = tokens[token];
+        if (current.kind == Token.GLOBSTAR) {
+            for (int end = segment; end <= segments.length; end++) {
+                if (capture(tokens, token + 1, segments, end, captures)) return true;
+            }
+            return false;
+        }
+        if (segment == segments.length || !current.accepts(segments[segment])) return false;
+        if (current.capture != null) captures.put(current.capture, segments[segment]);
+        if (capture(tokens, token + 1, segments, segment + 1, captures)) return true;
+        if (current.capture != null) captures.remove(current.capture);
+        return false;
+    }
+
+    private static Token[] tokenize(String rule) {
+        if (rule == null) throw new IllegalArgumentException("rules should not be null");
+        if (rule.isEmpty()) return new Token[0];
+        if (rule.charAt(0) != '/') throw new IllegalArgumentException("Rule must start with '/': " + rule);
+
+        List<Token> result = new ArrayList<>();
+        int start = 1;
+        for (int i = 1; i <= rule.length(); i++) {
+            if (i == rule.length() || rule.charAt(i) == '/') {
+                result.add(Token.of(rule.substring(start, i), rule));
+                start = i + 1;
+            }
+        }
+        return result.toArray(new Token[0]);
+    }
+
+    /**
+     * The result of a rule matching a path.
+     */
+    public static final class Match {
+        private final int rule;
+        private final String source;
+        private final Map<String, PathSegment> captures;
+
+        private Match(int rule, String source, Map<String, PathSegment> captures) {
+            this.rule = rule;
+            this.source = source;
+            this.captures = captures;
+        }
+
+        /**
+         * @return the id of the matching rule.
+         */
+        public int getRule() {
+            return rule;
+        }
+
+        /**
+         * @return the source of the matching rule.
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * @return the captured segments of the matched path, keyed by capture name.
+         */
+        public Map<String, PathSegment> getCaptures() {
+            return captures;
+        }
+
+        @Override
+        public String toString() {
+            return "Match{rule=" + rule + ", source=" + source + ", captures=" + captures + "}";
+        }
+    }
+
+    private static final class Token {
+        static final int LITERAL = 0;
+        static final int ANY = 1;
+        static final int INDEX = 2;
+        static final int GLOBSTAR = 3;
+
+        final int kind;
+        final String literal;
+        final String capture;
+
+        private Token(int kind, String literal, String capture) {
+            this.kind = kind;
+            this.literal = literal;
+            this.capture = capture;
+        }
+
+        static Token of(String token, String rule) {
+            if (token.equals("**")) return new Token(GLOBSTAR, null, null);
+            if (token.equals("*")) return new Token(ANY, null, null);
+            if (token.startsWith("{")) {
+                if (!token.endsWith("}") || token.length() < 3) {
+                    throw new IllegalArgumentException("Malformed capture '" + token + "' in rule " + rule);
+                }
+                String capture = token.substring(1, token.length() - 1);
+                int colon = capture.indexOf(':');
+                if (colon < 0) return new Token(ANY, null, capture);
+                String type = capture.substring(colon + 1);
+                if (!type.equals("int") || colon == 0) {
+                    throw new IllegalArgumentException("Malformed capture '" + token + "' in rule " + rule);
+                }
+                return new Token(INDEX, null, capture.substring(0, colon));
+            }
+            return new Token(LITERAL, PathParser.unescape(token), null);
+        }
+
+        boolean accepts(PathSegment segment) {
+            switch (kind) {
+                case LITERAL:
+                    return segment.getValue().equals(literal);
+                case INDEX:
+                    return segment.isIndex() || PathParser.canonicalIndex(segment.getValue()) >= 0;
+                default:
+                    return true;
+            }
+        }
+    }
+
+    /**
+     * Nondeterministic automaton shaped as a trie of the rule tokens. Nodes reached
+     * through {@code **} loop on any segment.
+     */
+    private static final class Nfa {
+        final List<Node> nodes = new ArrayList<>();
+        final Node root = node(false);
+
+        Node node(boolean loop) {
+            Node node = new Node(nodes.size(), loop);
+            nodes.add(node);
+            return node;
+        }
+
+        void add(Token[] tokens, int rule) {
+            Node current = root;
+            for (Token token : tokens) {
+                switch (token.kind) {
+                    case Token.LITERAL:
+                        Node literal = current.literals.get(token.literal);
+                        if (literal == null) {
+                            literal = node(false);
+                            current.literals.put(token.literal, literal);
+                        }
+                        current = literal;
+                        break;
+                    case Token.ANY:
+                        if (current.any == null) current.any = node(false);
+                        current = current.any;
+                        break;
+                    case Token.INDEX:
+                        if (current.index == null) current.index = node(false);
+                        current = current.index;
+                        break;
+                    default:
+                        if (current.globstar == null) current.globstar = node(true);
+                        current = current.globstar;
+                }
+            }
+            current.accepts.add(rule);
+        }
+
+        static final class Node {
+            final int id;
+            final boolean loop;
+            final Map<String, Node> literals = new HashMap<>();
+            final List<Integer> accepts = new ArrayList<>();
+            Node any;
+            Node index;
+            Node globstar;
+
+            Node(int id, boolean loop) {
+                this.id = id;
+                this.loop = loop;
+            }
+        }
+    }
+
+    /**
+     * Subset construction of the {@link Nfa}, where each state is a set of nodes.
+     */
+    private static final class Dfa {
+        private final Nfa nfa;
+        private final Map<BitSet, State> states = new HashMap<>();
+        private final Deque<BitSet> pending = new ArrayDeque<>();
+        final State start;
+        final int count;
+
+        Dfa(Nfa nfa) {
+            this.nfa = nfa;
+            BitSet initial = new BitSet();
+            initial.set(nfa.root.id);
+            this.start = state(closure(initial));
+            while (!pending.isEmpty()) {
+                build(pending.pop());
+            }
+            this.count = states.size();
+        }
+
+        private State state(BitSet nodes) {
+            if (nodes.isEmpty()) return null;
+            State state = states.get(nodes);
+            if (state == null) {
+                state = new State();
+                states.put(nodes, state);
+                pending.push(nodes);
+            }
+            return state;
+        }
+
+        private void build(BitSet nodes) {
+            State state = states.get(nodes);
+            BitSet other = new BitSet();
+            BitSet index = new BitSet();
+            Set<String> literals = new HashSet<>();
+            Set<Integer> accepts = new HashSet<>();
+            for (int id = nodes.nextSetBit(0); id >= 0; id = nodes.nextSetBit(id + 1)) {
+                Nfa.Node node = nfa.nodes.get(id);
+                if (node.loop) {
+                    other.set(id);
+                    index.set(id);
+                }
+                if (node.any != null) {
+                    other.set(node.any.id);
+                    index.set(node.any.id);
+                }
+                if (node.index != null) index.set(node.index.id);
+                literals.addAll(node.literals.keySet());
+                accepts.addAll(node.accepts);
+            }
+            other = closure(other);
+            index = closure(index);
+
+            Map<String, State> transitions = new HashMap<>();
+            Map<Integer, State> indexTransitions = new TreeMap<>();
+            for (String literal : literals) {
+                int literalIndex = PathParser.canonicalIndex(literal);
+                boolean isIndex = literalIndex >= 0;
+                BitSet target = (BitSet) (isIndex ? index : other).clone();
+                for (int id = nodes.nextSetBit(0); id >= 0; id = nodes.nextSetBit(id + 1)) {
+                    Nfa.Node next = nfa.nodes.get(id).literals.get(literal);
+                    if (next != null) target.set(next.id);
+                }
+                target = closure(target);
+                if (!target.equals(isIndex ? index : other)) {
+                    State next = state(target);
+                    transitions.put(literal, next);
+                    if (isIndex) indexTransitions.put(literalIndex, next);
+                }
+            }
+
+            state.literals = transitions.isEmpty() ? Collections.<String, State>emptyMap() : transitions;
+            state.indexKeys = indexTransitions.keySet().stream().mapToInt(Integer::intValue).toArray();
+            state.indexTargets = indexTransitions.values().toArray(new State[0]);
+            state.other = state(other);
+            state.index = state(index);
+            state.accepts = accepts.stream().mapToInt(Integer::intValue).sorted().toArray();
+        }
+
+        private BitSet closure(BitSet nodes) {
+            BitSet result = (BitSet) nodes.clone();
+            for (int id = result.nextSetBit(0); id >= 0; id = result.nextSetBit(id + 1)) {
+                Nfa.Node globstar = nfa.nodes.get(id).globstar;
+                if (globstar != null) result.set(globstar.id);
+            }
+            return result;
+        }
+    }
+
+    private static final class State {
+        Map<String, State> literals;
+        int[] indexKeys;
+        State[] indexTargets;
+        State index;
+        State other;
+        int[] accepts;
+
+        /**
+         * @return the next state, or null if no rule can match anymore.
+         */
+        State next(PathSegment segment) {
+            if (segment.isIndex()) {
+                // Looked up by int, since the value of large indexes is built on every call.
+                if (indexKeys.length == 0) return index;
+                int found = Arrays.binarySearch(indexKeys, ((IndexSegment) segment).getIndex());
+                return found >= 0 ? indexTargets[found] : index;
+            }
+            String value = segment.getValue();
+            State literal = literals.get(value);
+            if (literal != null) return literal;
+            return PathParser.canonicalIndex(value) >= 0 ? index : other;
+        }
+    }
+}
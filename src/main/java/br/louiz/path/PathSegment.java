@@ -1,6 +1,11 @@
 package br.louiz.path;
 
 import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Represent a series of values in an linear hierarchical order.
@@ -13,15 +18,40 @@ import java.util.Iterator;
 abstract class PathSegment implements Segment<String, PathSegment> {
 
     /**
-     * Backing property used only for {@link PathSegment#toString}.
+     * The number of segments walked per block by the forward walks, which bounds their recursion.
+     */
+    static final int WALK_BLOCK = 32;
+
+    /**
+     * Lazily rendered cache used only for {@link PathSegment#toString}. It is
+     * not computed on construction, so appending stays O(1) regardless of the
+     * path depth.
+     * <p>
+     * Segments with {@link #withJumpPointers() jump pointers} keep their jump pointer
+     * here instead, so they take no more memory than plain ones, and once rendered, a
+     * {@link RenderedJump} with both.
+     * <p>
+     * Racy single-check idiom: the rendered value is always the same for a given
+     * segment and {@link String} is immutable, so concurrent renderings are harmless.
      *
      * @see PathSegment#toString
      */
-    private final String rfcString;
+    private transient Object rfcString;
+
+    /**
+     * The segment value, or null for {@link IndexSegment}s, which only keep their
+     * {@code int} and produce the {@link String} form on demand.
+     */
     private final String value;
     private final PathSegment parent;
     private final int depth;
 
+    /**
+     * Structural hash computed incrementally from the {@link #getParent() parent} hash
+     * and the {@link #getValue() value} hash, so {@link #hashCode()} never walks the chain.
+     */
+    private final int hash;
+
     /**
      * The primary constructor. When subclassing, should be noted that if null
      * is passed for the {@code parent} parameter, it will be replaced with a
@@ -34,11 +64,71 @@ abstract class PathSegment implements Segment<String, PathSegment> {
      * @throws IllegalArgumentException if value is null.
      */
     protected PathSegment(String value, PathSegment parent, int depth) {
-        if (value == null) throw new IllegalArgumentException("parameter value should not be null");
+        this(requireValue(value), parent, depth, value.hashCode());
+    }
+
+    /**
+     * Internal constructor. It's mainly used by {@link IndexSegment}, which passes a null
+     * value along with the hash of the value's {@link String} form.
+     */
+    PathSegment(String value, PathSegment parent, int depth, int valueHash) {
+        this(value, parent, depth, valueHash, false);
+    }
+
+    /**
+     * Internal constructor for the segments built by {@link #append(String)},
+     * {@link #append(int)} and {@link #withJumpPointers()}.
+     *
+     * @param jumpPointers true if this segment keeps a jump pointer, in which case the
+     *                     parent must have jump pointers or be a {@link MissingSegment}.
+     */
+    PathSegment(String value, PathSegment parent, int depth, int valueHash, boolean jumpPointers) {
         this.value = value;
         this.parent = parent == null ? MissingSegment.INSTANCE : parent;
         this.depth = depth;
-        this.rfcString = this.parent + "/" + encode(value);
+        this.hash = depth < 0 ? 0 : 31 * this.parent.hash + valueHash;
+        this.rfcString = jumpPointers ? jumpFrom(this.parent) : null;
+    }
+
+    /**
+     * Internal constructor for {@link NameSegment}s.
+     *
+     * @throws IllegalArgumentException if value is null.
+     * @see #PathSegment(String, PathSegment, int, int, boolean)
+     */
+    PathSegment(String value, PathSegment parent, boolean jumpPointers) {
+        this(requireValue(value), parent, parent != null ? parent.getDepth() + 1 : 0, value.hashCode(), jumpPointers);
+    }
+
+    private static String requireValue(String value) {
+        if (value == null) throw new IllegalArgumentException("parameter value should not be null");
+        return value;
+    }
+
+    /**
+     * Computes the skew-binary jump pointer (Myers' "random access lists") of a child of the
+     * given segment in O(1), from the pointer of the parent, which must have jump pointers
+     * or be a {@link MissingSegment}.
+     *
+     * @see #withJumpPointers()
+     */
+    static PathSegment jumpFrom(PathSegment parent) {
+        PathSegment jump = parent.jump();
+        if (parent.depth - jump.depth == jump.depth - jump.jump().depth) {
+            return jump.jump();
+        }
+        return parent;
+    }
+
+    /**
+     * @return the ancestor {@link #get(int)} may skip to. Plain segments only point to their
+     * {@link #getParent() parent}, so lookups walk the chain one segment at a time.
+     */
+    final PathSegment jump() {
+        Object link = rfcString;
+        if (link instanceof PathSegment) return (PathSegment) link;
+        if (link instanceof RenderedJump) return ((RenderedJump) link).jump;
+        return depth < 0 ? this : parent;
     }
 
     protected PathSegment(String value, PathSegment parent) {
@@ -123,25 +213,36 @@ abstract class PathSegment implements Segment<String, PathSegment> {
 
     /**
      * Returns a new {@link NameSegment} with the given field name. The constructed
-     * {@link NameSegment} will have `this` {@link PathSegment} as its {@link #getParent() parent}.
+     * {@link NameSegment} will have `this` {@link PathSegment} as its {@link #getParent() parent},
+     * and jump pointers if {@code this} has them.
      *
      * @param name the name of the field that the new segment will represent.
      * @return a new {@link NameSegment} with the given field name.
      */
     public NameSegment append(String name) {
         if (name == null) throw new IllegalArgumentException("parameter name should not be null");
-        return new NameSegment(name, this);
+        long start = Metrics.start();
+        NameSegment result = new NameSegment(name, this, hasJumpPointers());
+        Metrics.end(PathMetrics.Operation.APPEND, start);
+        Metrics.segmentLength(name.length());
+        Metrics.depth(result.getDepth());
+        return result;
     }
 
     /**
      * Returns a new {@link IndexSegment} with the given index. The constructed
-     * {@link IndexSegment} will have `this` {@link PathSegment} as its {@link #getParent() parent}.
+     * {@link IndexSegment} will have `this` {@link PathSegment} as its {@link #getParent() parent},
+     * and jump pointers if {@code this} has them.
      *
      * @param index the index that the new segment will represent.
      * @return a new {@link IndexSegment} with the given index.
      */
     public IndexSegment append(int index) {
-        return new IndexSegment(index, this);
+        long start = Metrics.start();
+        IndexSegment result = new IndexSegment(index, this, hasJumpPointers());
+        Metrics.end(PathMetrics.Operation.APPEND, start);
+        Metrics.depth(result.getDepth());
+        return result;
     }
 
     /**
@@ -160,19 +261,58 @@ abstract class PathSegment implements Segment<String, PathSegment> {
      */
     public final PathSegment append(PathSegment path) {
         if (path == null) throw new IllegalArgumentException("parameter path should not be null");
-        if (path.isMissing()) return this;
-        PathSegment result = this;
-        for (PathSegment pathSegment : path) {
-            result = pathSegment.appendTo(result);
+        if (path.depth < 0) return this;
+        return appendRange(this, path, 0);
+    }
+
+    /**
+     * Returns an equal path whose segments keep a skew-binary jump pointer to an ancestor,
+     * so {@link #get(int)} and {@link #getRoot()} take O(log depth) steps instead of
+     * O(depth). Each pointer costs one more reference per segment, so plain paths do not
+     * have them. Segments appended to a path with jump pointers have them too.
+     * <p>
+     * Ancestors that already have jump pointers are shared, the others are copied.
+     *
+     * @return {@code this} if it already has jump pointers or is a {@link MissingSegment},
+     * otherwise a new equal {@link PathSegment} with jump pointers.
+     * @see #hasJumpPointers()
+     */
+    public final PathSegment withJumpPointers() {
+        if (depth < 0 || hasJumpPointers()) return this;
+        PathSegment base = parent;
+        while (base.depth >= 0 && !base.hasJumpPointers()) {
+            base = base.parent;
+        }
+
+        PathSegment[] suffix = new PathSegment[depth - base.depth];
+        for (PathSegment segment = this; segment != base; segment = segment.parent) {
+            suffix[segment.depth - base.depth - 1] = segment;
+        }
+        PathSegment result = base;
+        for (PathSegment segment : suffix) {
+            result = segment.value == null
+                    ? new IndexSegment(((IndexSegment) segment).getIndex(), result, true)
+                    : new NameSegment(segment.value, result, true);
         }
         return result;
     }
 
+    /**
+     * @return true if this segment keeps a jump pointer for {@link #get(int)}.
+     * @see #withJumpPointers()
+     */
+    public boolean hasJumpPointers() {
+        Object link = rfcString;
+        return link instanceof PathSegment || link instanceof RenderedJump;
+    }
+
     /**
      * Returns the {@link PathSegment} at the given {@link #getDepth() depth}.
      * <p>
-     * {@link PathSegment}s have only references to the immediate {@link #getParent() parent},
-     * this means that lookup is made "backwards", from the highest depth to the root.
+     * Lookup is made "backwards", from the highest depth to the root, one
+     * {@link #getParent() parent} at a time, so it takes O(depth) steps. Paths with
+     * {@link #withJumpPointers() jump pointers} follow them whenever they do not
+     * overshoot the given depth, and take O(log depth) steps instead.
      *
      * @return the first {@link PathSegment} among this segment or its parents that
      * has a matching {@link #getDepth() depth}
@@ -182,9 +322,9 @@ abstract class PathSegment implements Segment<String, PathSegment> {
     public final PathSegment get(int depth) {
         if (depth >= 0 && depth <= this.depth) {
             PathSegment result = this;
-            if (depth == this.depth) return result;
             while (result.depth > depth) {
-                result = result.parent;
+                PathSegment jump = result.jump();
+                result = jump.depth >= depth ? jump : result.parent;
             }
             return result;
         } else {
@@ -193,6 +333,18 @@ abstract class PathSegment implements Segment<String, PathSegment> {
         }
     }
 
+    /**
+     * Returns the root of this {@link PathSegment}, the ancestor (or itself) with
+     * {@link #getDepth() depth} 0, in O(log depth) steps for paths with
+     * {@link #withJumpPointers() jump pointers}, O(depth) otherwise.
+     *
+     * @return the root of this path, or a {@link MissingSegment} if this is a {@link MissingSegment}.
+     * @see #get(int)
+     */
+    public final PathSegment getRoot() {
+        return depth < 0 ? this : get(0);
+    }
+
     /**
      * Tries to find a {@link #getValue() value} that matches the given parameter
      * within this {@link PathSegment} references, and if it succeeds, return the
@@ -207,14 +359,13 @@ abstract class PathSegment implements Segment<String, PathSegment> {
      * @see #reverseIterator()
      */
     public final PathSegment find(String name) {
-        Iterator<PathSegment> iterator = reverseIterator();
-        while (iterator.hasNext()) {
-            PathSegment next = iterator.next();
-            if (next.getValue().equals(name)) {
-                return next;
-            }
+        if (name == null) return MissingSegment.INSTANCE;
+        long start = Metrics.start();
+        try {
+            return findName(name);
+        } finally {
+            Metrics.end(PathMetrics.Operation.FIND, start);
         }
-        return MissingSegment.INSTANCE;
     }
 
     /**
@@ -231,7 +382,43 @@ abstract class PathSegment implements Segment<String, PathSegment> {
      * @see #reverseIterator()
      */
     public final PathSegment find(int index) {
-        return find(String.valueOf(index));
+        long start = Metrics.start();
+        try {
+            return findIndex(index);
+        } finally {
+            Metrics.end(PathMetrics.Operation.FIND, start);
+        }
+    }
+
+    /**
+     * The lookup behind {@link #find(String)} and {@link #contains(String)}, which record it
+     * as different operations.
+     */
+    private PathSegment findName(String name) {
+        if (name == null) return MissingSegment.INSTANCE;
+        int index = PathParser.canonicalIndex(name);
+        for (PathSegment current = this; current.depth >= 0; current = current.parent) {
+            if (current.value == null ? ((IndexSegment) current).getIndex() == index : current.value.equals(name)) {
+                return current;
+            }
+        }
+        return MissingSegment.INSTANCE;
+    }
+
+    /**
+     * The lookup behind {@link #find(int)} and {@link #contains(int)}, which record it
+     * as different operations.
+     */
+    private PathSegment findIndex(int index) {
+        if (index < 0) return findName(String.valueOf(index));
+        for (PathSegment current = this; current.depth >= 0; current = current.parent) {
+            if (current.value == null
+                    ? ((IndexSegment) current).getIndex() == index
+                    : PathParser.canonicalIndex(current.value) == index) {
+                return current;
+            }
+        }
+        return MissingSegment.INSTANCE;
     }
 
     /**
@@ -270,28 +457,128 @@ abstract class PathSegment implements Segment<String, PathSegment> {
     }
 
     public boolean contains(String name) {
-        return !find(name).isMissing();
+        long start = Metrics.start();
+        boolean result = !findName(name).isMissing();
+        Metrics.end(PathMetrics.Operation.CONTAINS, start);
+        return result;
     }
 
     public boolean contains(int index) {
-        return !find(index).isMissing();
+        long start = Metrics.start();
+        boolean result = !findIndex(index).isMissing();
+        Metrics.end(PathMetrics.Operation.CONTAINS, start);
+        return result;
     }
 
     public boolean contains(PathSegment path) {
-        PathSegment thisPath = this;
-        PathSegment current = path;
-        while (path.getDepth() <= thisPath.getDepth()) {
-            if (current.getValue().equals(thisPath.getValue())) {
-                if (current.getDepth() == 0) {
-                    return true;
+        long start = Metrics.start();
+        try {
+            PathSegment thisPath = this;
+            PathSegment current = path;
+            while (path.getDepth() <= thisPath.getDepth()) {
+                if (sameValue(current, thisPath)) {
+                    if (current.getDepth() == 0) {
+                        return true;
+                    }
+                    current = current.getParent();
+                } else {
+                    current = path;
                 }
-                current = current.getParent();
-            } else {
-                current = path;
+                thisPath = thisPath.getParent();
+            }
+            return false;
+        } finally {
+            Metrics.end(PathMetrics.Operation.CONTAINS, start);
+        }
+    }
+
+    /**
+     * Returns the deepest {@link PathSegment} shared by {@code this} and the given
+     * parameter, in other words, the last segment of their longest common prefix.
+     * <p>
+     * Example:
+     * <p>
+     * {@code /a/b/c#commonAncestor(/a/b/d/e)} results into {@code /a/b}
+     * <p>
+     * Both paths are first aligned to the same {@link #getDepth() depth}, then walked
+     * up together comparing {@link #getValue() values}. The walk stops as soon as both
+     * sides reach the same ancestor instance.
+     *
+     * @param other a non-null {@link PathSegment}.
+     * @return the deepest common ancestor (possibly {@code this} or the parameter),
+     * taken from {@code this} chain. If there is none, returns a {@link MissingSegment}.
+     * @throws IllegalArgumentException if parameter other is null.
+     */
+    public final PathSegment commonAncestor(PathSegment other) {
+        if (other == null) throw new IllegalArgumentException("parameter other should not be null");
+        int commonDepth = Math.min(depth, other.depth);
+        if (commonDepth < 0) return MissingSegment.INSTANCE;
+
+        PathSegment current = get(commonDepth);
+        PathSegment that = other.get(commonDepth);
+        PathSegment result = current;
+        while (current != that && current.depth >= 0) {
+            if (!sameValue(current, that)) {
+                result = current.parent;
             }
-            thisPath = thisPath.getParent();
+            current = current.parent;
+            that = that.parent;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the segments of the given parameter that come after {@code this} path,
+     * as a new {@link PathSegment} whose root is the first of those segments.
+     * The types of the segments are preserved and their values are reused as is.
+     * <p>
+     * Example:
+     * <p>
+     * {@code /a/b#relativize(/a/b/c/0)} results into {@code /c/0}
+     * <p>
+     * This is the inverse of {@link #resolve(PathSegment)}, so
+     * {@code base.resolve(base.relativize(path))} is equal to {@code path}.
+     *
+     * @param other a non-null {@link PathSegment} that starts with {@code this} path.
+     * @return the remaining segments of the parameter. If the parameter is equal to
+     * {@code this}, returns a {@link MissingSegment}.
+     * @throws IllegalArgumentException if parameter other is null or does not start with {@code this} path.
+     * @see #resolve(PathSegment)
+     */
+    public final PathSegment relativize(PathSegment other) {
+        if (other == null) throw new IllegalArgumentException("parameter other should not be null");
+        if (depth < 0) return other;
+        if (other.depth < depth || !other.get(depth).equals(this)) {
+            throw new IllegalArgumentException("Path " + other + " does not start with " + this);
+        }
+
+        PathSegment[] pending = new PathSegment[other.depth - depth];
+        PathSegment current = other;
+        for (int i = pending.length - 1; i >= 0; i--) {
+            pending[i] = current;
+            current = current.parent;
         }
-        return false;
+
+        PathSegment result = MissingSegment.INSTANCE;
+        for (PathSegment segment : pending) {
+            result = segment.appendTo(result);
+        }
+        return result;
+    }
+
+    /**
+     * Resolves the given relative path against {@code this} path. This is an alias
+     * for {@link #append(PathSegment)}.
+     *
+     * @param other a non-null {@link PathSegment}, relative to {@code this} path.
+     * @return a new {@link PathSegment} with the segments of the parameter appended to
+     * {@code this}. If the parameter is a {@link MissingSegment}, returns {@code this}.
+     * @throws IllegalArgumentException if parameter other is null.
+     * @see #relativize(PathSegment)
+     */
+    public final PathSegment resolve(PathSegment other) {
+        if (other == null) throw new IllegalArgumentException("parameter other should not be null");
+        return append(other);
     }
 
     /**
@@ -299,15 +586,46 @@ abstract class PathSegment implements Segment<String, PathSegment> {
      * in crescent order based on its {@link #getDepth() depth}.
      */
     public final PathSegment[] toArray() {
+        long start = Metrics.start();
         PathSegment[] result = new PathSegment[getDepth() + 1];
         PathSegment currentSegment = this;
-        while (!currentSegment.equals(MissingSegment.INSTANCE)) {
+        while (currentSegment.depth >= 0) {
             result[currentSegment.getDepth()] = currentSegment;
             currentSegment = currentSegment.getParent();
         }
+        Metrics.end(PathMetrics.Operation.TO_ARRAY, start);
         return result;
     }
 
+    /**
+     * Performs the given action for each segment, from the root to {@code this}, without
+     * allocating. The path is split in halves through {@link #get(int)} until each part fits
+     * in a block of {@value #WALK_BLOCK}, which is then walked from its last segment, so the
+     * recursion never goes deeper than a block plus log2(depth). The walk takes
+     * O(depth log depth) steps, or O(depth) with {@link #withJumpPointers() jump pointers}.
+     *
+     * @param action a non-null action.
+     * @throws IllegalArgumentException if action is null.
+     */
+    @Override
+    public final void forEach(Consumer<? super PathSegment> action) {
+        if (action == null) throw new IllegalArgumentException("parameter action should not be null");
+        if (depth >= 0) forEachRange(this, 0, action);
+    }
+
+    /**
+     * Visits each segment, from the root to {@code this}, without allocating and without
+     * producing the {@link String} form of indexes.
+     *
+     * @param visitor a non-null {@link PathVisitor}.
+     * @throws IllegalArgumentException if visitor is null.
+     * @see #forEach(Consumer)
+     */
+    public final void accept(PathVisitor visitor) {
+        if (visitor == null) throw new IllegalArgumentException("parameter visitor should not be null");
+        if (depth >= 0) acceptRange(this, 0, visitor);
+    }
+
     /**
      * Iterator for iterating from {@code this} to the {@link #getParent() parent} with
      * {@link #getDepth() depth} 0.
@@ -331,36 +649,107 @@ abstract class PathSegment implements Segment<String, PathSegment> {
         return new SegmentIterator(this);
     }
 
+    /**
+     * Spliterator over the same segments as {@link #iterator()}, sized from the
+     * {@link #getDepth() depth} and able to split by depth ranges, so deep paths
+     * can be processed by parallel streams.
+     *
+     * @see SegmentSpliterator
+     */
+    @Override
+    public Spliterator<PathSegment> spliterator() {
+        return new SegmentSpliterator(this);
+    }
+
+    /**
+     * Sequential {@link Stream} from the {@link #getParent() parent} with
+     * {@link #getDepth() depth} 0 to {@code this} instance.
+     *
+     * @see #spliterator()
+     */
+    public Stream<PathSegment> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Sequential {@link Stream} from {@code this} to the {@link #getParent() parent} with
+     * {@link #getDepth() depth} 0.
+     *
+     * @see #reverseIterator()
+     */
+    public Stream<PathSegment> reverseStream() {
+        int characteristics = Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL;
+        return StreamSupport.stream(Spliterators.spliterator(reverseIterator(), depth + 1, characteristics), false);
+    }
+
+    /**
+     * Compares in tree order, the order of a depth-first, pre-order traversal: the
+     * first differing segment from the root decides, following {@link #compareValues(String, String)},
+     * so indexes come first in numeric order. If one path is a prefix of the other,
+     * the prefix comes first.
+     * <p>
+     * Both paths are aligned to the same {@link #getDepth() depth} and walked up
+     * together, stopping as soon as both sides reach the same ancestor instance.
+     *
+     * @see PathSorter
+     */
     @Override
     public int compareTo(PathSegment other) {
-        final int before = -1;
         final int equal = 0;
-        final int after = 1;
 
         if (this == other) return equal;
-
-        if (this.depth < other.depth) return before;
-        if (this.depth > other.depth) return after;
-
-        return Integer.compare(this.toString().compareTo(other.toString()), 0);
+        int commonDepth = Math.min(this.depth, other.depth);
+        if (commonDepth < 0) return Integer.compare(this.depth, other.depth);
+
+        // Walks up both chains keeping the difference closest to the root.
+        int result = equal;
+        PathSegment current = get(commonDepth);
+        PathSegment that = other.get(commonDepth);
+        while (current != that && current.depth >= 0) {
+            int compared = compareValues(current, that);
+            if (compared != equal) result = compared;
+            current = current.parent;
+            that = that.parent;
+        }
+        if (result != equal) return Integer.compare(result, equal);
+        return Integer.compare(this.depth, other.depth);
     }
 
+    /**
+     * Compares the {@link #getDepth() depth} and the structural hash first, then
+     * walks both chains comparing {@link #getValue() values}, stopping as soon as
+     * both sides reach the same ancestor instance.
+     * <p>
+     * Values are compared as {@link String}s, so an {@link IndexSegment} is equal to
+     * a {@link NameSegment} with the same textual value. A {@link PackedPath} with the
+     * same values is equal as well.
+     */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
+        if (o instanceof PackedPath) return o.equals(this);
         if (!(o instanceof PathSegment)) return false;
 
-        PathSegment that = (PathSegment) o;
+        long start = Metrics.start();
+        try {
+            PathSegment current = this;
+            PathSegment that = (PathSegment) o;
 
-        if (getDepth() != that.getDepth()) return false;
-        return toString().equals(that.toString());
+            if (current.depth != that.depth || current.hash != that.hash) return false;
+            while (current != that && current.depth >= 0) {
+                if (!sameValue(current, that)) return false;
+                current = current.parent;
+                that = that.parent;
+            }
+            return true;
+        } finally {
+            Metrics.end(PathMetrics.Operation.EQUALS, start);
+        }
     }
 
     @Override
     public int hashCode() {
-        int result = rfcString.hashCode();
-        result = 31 * result + getDepth();
-        return result;
+        return hash;
     }
 
     /**
@@ -370,53 +759,202 @@ abstract class PathSegment implements Segment<String, PathSegment> {
      */
     @Override
     public String toString() {
-        return rfcString;
+        String result = rendered();
+        if (result == null) {
+            result = render();
+            Object link = rfcString;
+            rfcString = link instanceof PathSegment ? new RenderedJump((PathSegment) link, result) : result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the cached rendering of this segment, or null if it was not rendered yet.
+     */
+    private String rendered() {
+        Object link = rfcString;
+        if (link instanceof String) return (String) link;
+        return link instanceof RenderedJump ? ((RenderedJump) link).rendered : null;
     }
 
-    private static String encode(String value) {
+    /**
+     * Renders this segment in a single pass over the chain. The walk stops at the
+     * first ancestor that was already rendered, so its {@link String} is reused as
+     * a prefix instead of being built again. Ancestors are not cached on the way,
+     * which keeps the retained memory linear on the path depth.
+     */
+    private String render() {
+        PathSegment[] pending = new PathSegment[depth + 1];
+        String prefix = "";
+        int count = 0;
+        int length = 0;
+        PathSegment current = this;
+        while (current.depth >= 0) {
+            String rendered = current.rendered();
+            if (rendered != null) {
+                prefix = rendered;
+                break;
+            }
+            pending[count++] = current;
+            length += (current.value == null ? 10 : current.value.length()) + 1;
+            current = current.parent;
+        }
+
+        StringBuilder builder = new StringBuilder(prefix.length() + length);
+        builder.append(prefix);
+        for (int i = count - 1; i >= 0; i--) {
+            PathSegment segment = pending[i];
+            builder.append('/');
+            if (segment.value == null) {
+                builder.append(((IndexSegment) segment).getIndex());
+            } else {
+                encode(segment.value, builder);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void encode(String value, StringBuilder builder) {
         if (value == null) throw new IllegalStateException("value should never be null.");
-        if (value.isEmpty()) return value;
-        StringBuilder result = new StringBuilder();
         for (int i = 0; i < value.length(); i++) {
             char c = value.charAt(i);
             switch (c) {
                 case '~':
-                    result.append("~0");
+                    builder.append("~0");
                     break;
                 case '/':
-                    result.append("~1");
+                    builder.append("~1");
                     break;
                 default:
-                    result.append(c);
+                    builder.append(c);
             }
         }
-        return result.toString();
     }
 
-    private static String decode(String value) {
-        if (value == null) throw new IllegalStateException("value should never be null.");
-        if (value.isEmpty()) return value;
-        StringBuilder stringBuilder = new StringBuilder();
-        int i = 0;
-        while (i < value.length()) {
-            char c = value.charAt(i++);
-            if (c == '~') {
-                char nextChar = value.charAt(i);
-                switch (nextChar) {
-                    case '0':
-                        stringBuilder.append('~');
-                        break;
-                    case '1':
-                        stringBuilder.append('/');
-                        break;
-                    default:
-                        stringBuilder.append(c).append(nextChar);
-                }
-            } else {
-                stringBuilder.append(c);
-            }
+    /**
+     * Walks from the segment at depth {@code first} to {@code last}. Ranges longer than
+     * {@link #WALK_BLOCK} are split at their middle segment, found through {@link #get(int)},
+     * so neither the recursion nor the walk needs an array to go forward.
+     */
+    private static void forEachRange(PathSegment last, int first, Consumer<? super PathSegment> action) {
+        if (last.depth - first >= WALK_BLOCK) {
+            PathSegment middle = last.get(middle(first, last.depth));
+            forEachRange(middle, first, action);
+            forEachRange(last, middle.depth + 1, action);
+            return;
+        }
+        forEachBlock(last, first, action);
+    }
+
+    private static void forEachBlock(PathSegment last, int first, Consumer<? super PathSegment> action) {
+        if (last.depth > first) forEachBlock(last.parent, first, action);
+        action.accept(last);
+    }
+
+    private static void acceptRange(PathSegment last, int first, PathVisitor visitor) {
+        if (last.depth - first >= WALK_BLOCK) {
+            PathSegment middle = last.get(middle(first, last.depth));
+            acceptRange(middle, first, visitor);
+            acceptRange(last, middle.depth + 1, visitor);
+            return;
+        }
+        acceptBlock(last, first, visitor);
+    }
+
+    private static void acceptBlock(PathSegment last, int first, PathVisitor visitor) {
+        if (last.depth > first) acceptBlock(last.parent, first, visitor);
+        visit(last, visitor);
+    }
+
+    private static void visit(PathSegment segment, PathVisitor visitor) {
+        if (segment.value == null) {
+            visitor.visitIndex(((IndexSegment) segment).getIndex(), segment.depth);
+        } else {
+            visitor.visitName(segment.value, segment.depth);
+        }
+    }
+
+    private static PathSegment appendRange(PathSegment target, PathSegment last, int first) {
+        if (last.depth - first >= WALK_BLOCK) {
+            PathSegment middle = last.get(middle(first, last.depth));
+            return appendRange(appendRange(target, middle, first), last, middle.depth + 1);
+        }
+        return appendBlock(target, last, first);
+    }
+
+    private static PathSegment appendBlock(PathSegment target, PathSegment last, int first) {
+        if (last.depth > first) target = appendBlock(target, last.parent, first);
+        return last.appendTo(target);
+    }
+
+    /**
+     * @return the depth that ends the first half of the range from {@code first} to
+     * {@code last}, both inclusive.
+     */
+    static int middle(int first, int last) {
+        return first + ((last - first) >>> 1);
+    }
+
+    /**
+     * Compares the {@link #getValue() values} of two segments, regardless of their type.
+     * Indexes are compared as {@code int}s, without producing their {@link String} form.
+     */
+    static boolean sameValue(PathSegment first, PathSegment second) {
+        if (first.value != null && second.value != null) return first.value.equals(second.value);
+        return indexOf(first) == indexOf(second);
+    }
+
+    /**
+     * Compares two segments with the same order as {@link #compareValues(String, String)},
+     * without producing the {@link String} form of indexes.
+     */
+    static int compareValues(PathSegment first, PathSegment second) {
+        if (first.value != null && second.value != null) return compareValues(first.value, second.value);
+        int firstIndex = indexOf(first);
+        int secondIndex = indexOf(second);
+        if (firstIndex < 0) return 1;
+        if (secondIndex < 0) return -1;
+        return Integer.compare(firstIndex, secondIndex);
+    }
+
+    /**
+     * @return the index of the given segment, or of its value if it is a canonical index, otherwise -1.
+     */
+    private static int indexOf(PathSegment segment) {
+        return segment.value == null
+                ? ((IndexSegment) segment).getIndex()
+                : PathParser.canonicalIndex(segment.value);
+    }
+
+    /**
+     * Compares two segment {@link #getValue() values} in tree order: canonical
+     * indexes come first, in numeric order, followed by every other value in
+     * {@link String} order. This is consistent with {@link #sameValue}.
+     *
+     * @see PathParser#canonicalIndex(String)
+     */
+    static int compareValues(String first, String second) {
+        int firstIndex = PathParser.canonicalIndex(first);
+        int secondIndex = PathParser.canonicalIndex(second);
+        if (firstIndex >= 0 || secondIndex >= 0) {
+            if (firstIndex < 0) return 1;
+            if (secondIndex < 0) return -1;
+            return Integer.compare(firstIndex, secondIndex);
+        }
+        return first.compareTo(second);
+    }
+
+    /**
+     * The jump pointer and the cached rendering of a rendered segment with jump pointers.
+     */
+    private static final class RenderedJump {
+        final PathSegment jump;
+        final String rendered;
+
+        RenderedJump(PathSegment jump, String rendered) {
+            this.jump = jump;
+            this.rendered = rendered;
         }
-        return stringBuilder.toString();
     }
 
     /**
@@ -439,16 +977,22 @@ abstract class PathSegment implements Segment<String, PathSegment> {
 
     /**
      * Creates a {@link PathSegment} from a {@link String}.
+     * <p>
+     * Tokens are taken literally: escape sequences are not decoded and every
+     * token becomes a {@link NameSegment}. Use a {@link PathParser} for RFC 6901
+     * compliant parsing.
      *
      * @param path the {@link String} to be converted.
      * @return a new [PathSegment] from the given [String]
      * @throws IllegalArgumentException if the given [path] does not begin with a `/`
      * @see PathSegment#toString
+     * @see PathParser
      */
     public static PathSegment fromString(String path) {
         if (path.isEmpty()) return MissingSegment.INSTANCE;
         if (path.charAt(0) != '/') throw new IllegalArgumentException("Path must start with '/'");
 
+        long start = Metrics.start();
         PathSegment result = MissingSegment.INSTANCE;
         StringBuilder builder = new StringBuilder();
         for (int i = 1; i < path.length(); i++) {
@@ -460,7 +1004,9 @@ abstract class PathSegment implements Segment<String, PathSegment> {
             }
             builder.append(c);
         }
-        return result.append(builder.toString());
+        result = result.append(builder.toString());
+        Metrics.end(PathMetrics.Operation.FROM_STRING, start);
+        return result;
     }
 
 
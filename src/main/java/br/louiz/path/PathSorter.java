@@ -0,0 +1,315 @@
+package br.louiz.path;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sorts large collections of {@link PathSegment}s in tree order, the order of
+ * {@link PathSegment#compareTo(PathSegment)}, with a most significant digit radix
+ * sort where each digit is a segment.
+ * <p>
+ * The segments of each path are first copied into an array, so any depth is reached
+ * in O(1). Each pass then skips the ancestors shared by a whole range, at once when
+ * they are the same instances, groups the range by its segment at the next depth,
+ * after the paths that end before it, and sorts each group by the following depth.
+ * Only the distinct values of each depth are compared with each other, and groups
+ * large enough are sorted in parallel on the {@link ForkJoinPool#commonPool() common pool}.
+ * Small groups fall back to {@link Arrays#sort(Object[], int, int, Comparator)}.
+ * <p>
+ * Copying costs one reference per segment of each path, and paths whose depths spread
+ * widely, such as chains of nested prefixes, only lose a few paths per pass. Paths
+ * deeper than {@value #ROW_LIMIT} segments on average, or whose depths spread over
+ * {@value #ROW_LIMIT}, are sorted by comparison instead, which also skips shared ancestors.
+ * <p>
+ * The sort is stable, so equal paths keep their relative order.
+ */
+public final class PathSorter {
+
+    /**
+     * Ranges smaller than this are sorted by comparison.
+     */
+    private static final int INSERTION_THRESHOLD = 64;
+
+    /**
+     * The largest average depth copied into rows, and the largest depth spread sorted by buckets.
+     */
+    private static final int ROW_LIMIT = 64;
+
+    /**
+     * Ranges at least this large are sorted as separate fork/join tasks.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    /**
+     * Orders the bucket keys as {@link PathSegment#compareValues(String, String)}:
+     * {@link Integer}s for canonical indexes first, then {@link String}s.
+     */
+    private static final Comparator<Object> KEY_ORDER = (first, second) -> {
+        if (first instanceof Integer) {
+            return second instanceof Integer ? ((Integer) first).compareTo((Integer) second) : -1;
+        }
+        return second instanceof Integer ? 1 : ((String) first).compareTo((String) second);
+    };
+
+    private PathSorter() {
+    }
+
+    /**
+     * Sorts the given array in tree order.
+     *
+     * @param paths a non-null array without null elements.
+     * @throws IllegalArgumentException if paths is null or has a null element.
+     */
+    public static void sort(PathSegment[] paths) {
+        if (paths == null) throw new IllegalArgumentException("parameter paths should not be null");
+        for (PathSegment path : paths) {
+            if (path == null) throw new IllegalArgumentException("paths should not have null elements");
+        }
+        if (paths.length < INSERTION_THRESHOLD || !fitsRows(paths)) {
+            Arrays.sort(paths);
+            return;
+        }
+
+        PathSegment[][] rows = new PathSegment[paths.length][];
+        for (int i = 0; i < paths.length; i++) {
+            rows[i] = rowOf(paths[i]);
+        }
+        SortTask task = new SortTask(rows, 0, rows.length, 0);
+        if (rows.length < PARALLEL_THRESHOLD) {
+            task.compute();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+        for (int i = 0; i < rows.length; i++) {
+            paths[i] = pathOf(rows[i]);
+        }
+    }
+
+    /**
+     * Sorts the given list in tree order. Like {@link List#sort(Comparator)}, the
+     * elements are copied into an array, sorted, and then set back.
+     *
+     * @param paths a non-null, modifiable list without null elements.
+     * @throws IllegalArgumentException if paths is null or has a null element.
+     */
+    public static void sort(List<PathSegment> paths) {
+        if (paths == null) throw new IllegalArgumentException("parameter paths should not be null");
+        PathSegment[] array = paths.toArray(new PathSegment[0]);
+        sort(array);
+        ListIterator<PathSegment> iterator = paths.listIterator();
+        for (PathSegment path : array) {
+            iterator.next();
+            iterator.set(path);
+        }
+    }
+
+    /**
+     * @return true if the given paths are shallow enough to be copied into rows and sorted by buckets.
+     */
+    private static boolean fitsRows(PathSegment[] paths) {
+        long total = 0;
+        int min = Integer.MAX_VALUE;
+        int max = -1;
+        for (PathSegment path : paths) {
+            int depth = path.getDepth();
+            total += depth + 1;
+            min = Math.min(min, depth);
+            max = Math.max(max, depth);
+        }
+        return total <= (long) ROW_LIMIT * paths.length && max - min <= ROW_LIMIT;
+    }
+
+    /**
+     * @return the segments of the given path by {@link PathSegment#getDepth() depth},
+     * followed by the path itself, so a {@link MissingSegment} keeps its instance too.
+     */
+    private static PathSegment[] rowOf(PathSegment path) {
+        PathSegment[] row = new PathSegment[path.getDepth() + 2];
+        row[row.length - 1] = path;
+        for (PathSegment segment = path; segment.getDepth() >= 0; segment = segment.getParent()) {
+            row[segment.getDepth()] = segment;
+        }
+        return row;
+    }
+
+    private static PathSegment pathOf(PathSegment[] row) {
+        return row[row.length - 1];
+    }
+
+    /**
+     * @return the {@link PathSegment#getDepth() depth} of the path of the given row.
+     */
+    private static int depthOf(PathSegment[] row) {
+        return row.length - 2;
+    }
+
+    /**
+     * @return the bucket key of the given segment, in other words, its index or
+     * canonical integer value as an {@link Integer}, or its value otherwise.
+     */
+    private static Object keyOf(PathSegment segment) {
+        if (segment.isIndex()) return ((IndexSegment) segment).getIndex();
+        String value = segment.getValue();
+        int index = PathParser.canonicalIndex(value);
+        return index >= 0 ? (Object) index : value;
+    }
+
+    /**
+     * Compares two rows in tree order, given that their first {@code depth} segments
+     * are equal, skipping the ancestors they share as the same instances.
+     */
+    private static int compareRows(PathSegment[] first, PathSegment[] second, int depth) {
+        int common = Math.min(depthOf(first), depthOf(second));
+        for (int i = lastShared(first, second, depth, common) + 1; i <= common; i++) {
+            int compared = PathSegment.compareValues(first[i], second[i]);
+            if (compared != 0) return compared;
+        }
+        return Integer.compare(first.length, second.length);
+    }
+
+    /**
+     * Binary searches the deepest depth in {@code [low, high]} where both rows have the
+     * same segment instance, which means that they share all of its ancestors as well.
+     *
+     * @return the deepest shared depth, or {@code low - 1} if there is none.
+     */
+    private static int lastShared(PathSegment[] first, PathSegment[] second, int low, int high) {
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (first[middle] == second[middle]) low = middle + 1;
+            else high = middle - 1;
+        }
+        return high;
+    }
+
+    /**
+     * Sorts the range {@code [from, to)} of rows whose paths share their first {@code depth} segments.
+     */
+    private static final class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final PathSegment[][] rows;
+        private final int from;
+        private final int to;
+        private final int depth;
+
+        SortTask(PathSegment[][] rows, int from, int to, int depth) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+        }
+
+        /**
+         * Sorts the ranges from an explicit stack of {@code {from, to, depth}} entries instead of
+         * recursing, so the stack does not grow with the length of nested prefixes.
+         */
+        @Override
+        protected void compute() {
+            List<SortTask> forked = new ArrayList<>();
+            Deque<int[]> pending = new ArrayDeque<>();
+            pending.push(new int[]{from, to, depth});
+            while (!pending.isEmpty()) {
+                int[] range = pending.pop();
+                sort(range[0], range[1], range[2], pending, forked);
+            }
+            invokeAll(forked);
+        }
+
+        private void sort(int from, int to, int depth, Deque<int[]> pending, List<SortTask> forked) {
+            if (to - from < INSERTION_THRESHOLD) {
+                int shared = depth;
+                Arrays.sort(rows, from, to, (first, second) -> compareRows(first, second, shared));
+                return;
+            }
+            depth = skipShared(from, to, depth);
+            if (depth < 0) return;
+
+            int length = to - from;
+            Object[] keys = new Object[length];
+            Map<Object, int[]> buckets = new HashMap<>();
+            int ended = 0;
+            for (int i = 0; i < length; i++) {
+                PathSegment[] row = rows[from + i];
+                if (depthOf(row) < depth) {
+                    ended++;
+                    continue;
+                }
+                Object key = keyOf(row[depth]);
+                keys[i] = key;
+                int[] count = buckets.get(key);
+                if (count == null) buckets.put(key, new int[]{1});
+                else count[0]++;
+            }
+
+            // Turns the counts into the next free position of each bucket.
+            Object[] sortedKeys = buckets.keySet().toArray();
+            Arrays.sort(sortedKeys, KEY_ORDER);
+            int[] starts = new int[sortedKeys.length + 1];
+            starts[0] = from + ended;
+            for (int i = 0; i < sortedKeys.length; i++) {
+                int[] position = buckets.get(sortedKeys[i]);
+                starts[i + 1] = starts[i] + position[0];
+                position[0] = starts[i];
+            }
+
+            PathSegment[][] sorted = new PathSegment[length][];
+            int endedPosition = 0;
+            for (int i = 0; i < length; i++) {
+                if (keys[i] == null) {
+                    sorted[endedPosition++] = rows[from + i];
+                } else {
+                    sorted[buckets.get(keys[i])[0]++ - from] = rows[from + i];
+                }
+            }
+            System.arraycopy(sorted, 0, rows, from, length);
+
+            for (int i = 0; i < sortedKeys.length; i++) {
+                int start = starts[i];
+                int end = starts[i + 1];
+                if (end - start >= PARALLEL_THRESHOLD) {
+                    forked.add(new SortTask(rows, start, end, depth + 1));
+                } else if (end - start > 1) {
+                    pending.push(new int[]{start, end, depth + 1});
+                }
+            }
+        }
+
+        /**
+         * Skips the depths, from the given one, where every path of the range has the same
+         * segment: at once while they are the same instances, then one equal value at a time.
+         *
+         * @return the first depth that splits the range, or -1 if all of its paths are equal.
+         */
+        private int skipShared(int from, int to, int depth) {
+            PathSegment[] first = rows[from];
+            int shared = depthOf(first);
+            for (int i = from + 1; i < to && shared >= depth; i++) {
+                PathSegment[] row = rows[i];
+                shared = lastShared(first, row, depth, Math.min(shared, depthOf(row)));
+            }
+            depth = Math.max(depth, shared + 1);
+
+            for (; depth <= depthOf(first); depth++) {
+                PathSegment segment = first[depth];
+                for (int i = from + 1; i < to; i++) {
+                    PathSegment[] row = rows[i];
+                    if (depthOf(row) < depth || !PathSegment.sameValue(row[depth], segment)) return depth;
+                }
+            }
+            for (int i = from + 1; i < to; i++) {
+                if (depthOf(rows[i]) >= depth) return depth;
+            }
+            return -1;
+        }
+    }
+}
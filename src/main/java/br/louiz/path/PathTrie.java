@@ -0,0 +1,488 @@
+package br.louiz.path;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * A map keyed by {@link PathSegment}s, stored as a trie of their segments, so
+ * queries over a whole subtree or over the prefixes of a path do not need to
+ * scan every entry.
+ * <p>
+ * Keys follow {@link PathSegment#equals(Object)}, so {@code /a/3} stored as an
+ * {@link IndexSegment} is found with {@code /a/3} as a {@link NameSegment}, and
+ * keys are yielded with the type they were first inserted with. Index children
+ * are stored in a dense array, while name children (and indexes too sparse for
+ * the array) are stored in a compact open addressing hash table.
+ * <p>
+ * Iteration is in tree order: a key comes before its descendants, and siblings
+ * are ordered by index first, then by name.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @param <V> the type of the mapped values.
+ */
+public final class PathTrie<V> implements Iterable<PathSegment> {
+
+    private final Node root;
+    private final PathSegment prefix;
+
+    /**
+     * Creates an empty {@link PathTrie}.
+     */
+    public PathTrie() {
+        this(new Node(false), MissingSegment.INSTANCE);
+    }
+
+    private PathTrie(Node root, PathSegment prefix) {
+        this.root = root;
+        this.prefix = prefix;
+    }
+
+    /**
+     * @param key a non-null {@link PathSegment}.
+     * @return the value mapped to the given key, or null if there is none.
+     * @throws IllegalArgumentException if key is null.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(PathSegment key) {
+        Node node = inScope(key) ? find(key) : null;
+        return node != null && node.present ? (V) node.value : null;
+    }
+
+    /**
+     * @param key a non-null {@link PathSegment}.
+     * @return {@code true} if there is a value mapped to the given key.
+     * @throws IllegalArgumentException if key is null.
+     */
+    public boolean containsKey(PathSegment key) {
+        Node node = inScope(key) ? find(key) : null;
+        return node != null && node.present;
+    }
+
+    /**
+     * Maps the given key to the given value.
+     *
+     * @param key   a non-null {@link PathSegment}. A {@link MissingSegment} maps the root.
+     * @param value the value to be mapped, may be null.
+     * @return the value previously mapped to the given key, or null if there was none.
+     * @throws IllegalArgumentException if key is null, or if this is a {@link #subtree(PathSegment) subtree}
+     *                                  and the key is not under its prefix.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(PathSegment key, V value) {
+        if (!inScope(key)) throw new IllegalArgumentException("Key " + key + " is not under " + prefix);
+        PathSegment[] segments = segmentsOf(key);
+        Node[] nodes = new Node[segments.length + 1];
+        Node node = root;
+        nodes[0] = node;
+        for (int i = 0; i < segments.length; i++) {
+            node = node.childOrCreate(segments[i]);
+            nodes[i + 1] = node;
+        }
+
+        Object previous = node.value;
+        boolean existed = node.present;
+        node.value = value;
+        node.present = true;
+        if (!existed) {
+            for (Node each : nodes) each.size++;
+        }
+        return (V) previous;
+    }
+
+    /**
+     * Removes the value mapped to the given key, if any.
+     *
+     * @param key a non-null {@link PathSegment}.
+     * @return the value previously mapped to the given key, or null if there was none.
+     * @throws IllegalArgumentException if key is null.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(PathSegment key) {
+        if (!inScope(key)) return null;
+        PathSegment[] segments = segmentsOf(key);
+        Node[] nodes = new Node[segments.length + 1];
+        Node node = root;
+        nodes[0] = node;
+        for (int i = 0; i < segments.length; i++) {
+            node = node.child(segments[i]);
+            if (node == null) return null;
+            nodes[i + 1] = node;
+        }
+        if (!node.present) return null;
+
+        Object previous = node.value;
+        node.value = null;
+        node.present = false;
+        for (int i = nodes.length - 1; i >= 0; i--) {
+            nodes[i].size--;
+            if (i > 0 && nodes[i].size == 0) {
+                nodes[i - 1].removeChild(segments[i - 1]);
+            }
+        }
+        return (V) previous;
+    }
+
+    /**
+     * @return the number of mapped keys.
+     */
+    public int size() {
+        Node node = find(prefix);
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * @return {@code true} if there are no mapped keys.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns a view of the keys that start with the given prefix, including the
+     * prefix itself. The view is backed by this trie, so changes on either are
+     * visible on both.
+     *
+     * @param prefix a non-null {@link PathSegment}.
+     * @return a view of the subtree under the given prefix.
+     * @throws IllegalArgumentException if prefix is null, or if this is a subtree and the given
+     *                                  prefix is not under its prefix.
+     */
+    public PathTrie<V> subtree(PathSegment prefix) {
+        if (!inScope(prefix)) throw new IllegalArgumentException("Prefix " + prefix + " is not under " + this.prefix);
+        return new PathTrie<>(root, prefix);
+    }
+
+    /**
+     * Returns the longest mapped key that is a prefix of (or equal to) the given path.
+     *
+     * @param path a non-null {@link PathSegment}.
+     * @return the longest matching key, taken from the given path chain. If there is none,
+     * or if the only match is the root, returns a {@link MissingSegment}.
+     * @throws IllegalArgumentException if path is null.
+     */
+    public PathSegment longestPrefixMatch(PathSegment path) {
+        if (!inScope(path)) return MissingSegment.INSTANCE;
+        PathSegment[] segments = segmentsOf(path);
+        Node node = root;
+        int matchDepth = -1;
+        for (int i = 0; i < segments.length; i++) {
+            node = node.child(segments[i]);
+            if (node == null) break;
+            if (node.present && i >= prefix.getDepth()) matchDepth = i;
+        }
+        return matchDepth < 0 ? MissingSegment.INSTANCE : segments[matchDepth];
+    }
+
+    /**
+     * Performs the given action for each mapped key and value, in tree order.
+     *
+     * @param action a non-null action.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super PathSegment, ? super V> action) {
+        if (action == null) throw new IllegalArgumentException("parameter action should not be null");
+        TrieIterator iterator = new TrieIterator();
+        while (iterator.hasNext()) {
+            PathSegment key = iterator.next();
+            action.accept(key, (V) iterator.current.value);
+        }
+    }
+
+    /**
+     * Iterator over the mapped keys in tree order.
+     */
+    @Override
+    public Iterator<PathSegment> iterator() {
+        return new TrieIterator();
+    }
+
+    private boolean inScope(PathSegment key) {
+        if (key == null) throw new IllegalArgumentException("parameter key should not be null");
+        int depth = prefix.getDepth();
+        return depth < 0 || (key.getDepth() >= depth && key.get(depth).equals(prefix));
+    }
+
+    private Node find(PathSegment key) {
+        Node node = root;
+        for (PathSegment segment : segmentsOf(key)) {
+            node = node.child(segment);
+            if (node == null) return null;
+        }
+        return node;
+    }
+
+    private static PathSegment[] segmentsOf(PathSegment key) {
+        return key.isMissing() ? new PathSegment[0] : key.toArray();
+    }
+
+    private static int indexOf(PathSegment segment) {
+        return segment.isIndex()
+                ? ((IndexSegment) segment).getIndex()
+                : PathParser.canonicalIndex(segment.getValue());
+    }
+
+    private static final class Node {
+        private static final Node[] NO_NODES = new Node[0];
+
+        final boolean index;
+        Object value;
+        boolean present;
+
+        /**
+         * Number of mapped keys in this subtree, including this node.
+         */
+        int size;
+
+        /**
+         * Children keyed by index, where {@code indexed[i]} is the child for index {@code i}.
+         */
+        Node[] indexed = NO_NODES;
+
+        /**
+         * Children keyed by any other value, in a linear probing hash table. Canonical
+         * indexes are only stored here while they do not fit in {@link #indexed}.
+         */
+        String[] names;
+        Node[] nameNodes;
+        int nameCount;
+        int sparseIndexes;
+
+        Node(boolean index) {
+            this.index = index;
+        }
+
+        Node child(PathSegment segment) {
+            int index = indexOf(segment);
+            if (index >= 0 && index < indexed.length) return indexed[index];
+            if (names == null) return null;
+            if (index >= 0 && sparseIndexes == 0) return null;
+            return getName(segment.getValue());
+        }
+
+        Node childOrCreate(PathSegment segment) {
+            Node child = child(segment);
+            if (child != null) return child;
+
+            child = new Node(segment.isIndex());
+            int index = indexOf(segment);
+            if (index >= 0 && index < 2 * indexed.length + 8) {
+                if (index >= indexed.length) growIndexed(Math.max(index + 1, 2 * indexed.length));
+                indexed[index] = child;
+            } else {
+                putName(segment.getValue(), child);
+                if (index >= 0) sparseIndexes++;
+            }
+            return child;
+        }
+
+        void removeChild(PathSegment segment) {
+            int index = indexOf(segment);
+            if (index >= 0 && index < indexed.length) {
+                indexed[index] = null;
+            } else {
+                removeName(segment.getValue());
+                if (index >= 0) sparseIndexes--;
+            }
+        }
+
+        private void growIndexed(int length) {
+            indexed = Arrays.copyOf(indexed, length);
+            if (sparseIndexes == 0) return;
+
+            String[] oldNames = names;
+            Node[] oldNodes = nameNodes;
+            names = new String[oldNames.length];
+            nameNodes = new Node[oldNodes.length];
+            nameCount = 0;
+            sparseIndexes = 0;
+            for (int i = 0; i < oldNames.length; i++) {
+                String name = oldNames[i];
+                if (name == null) continue;
+                int index = PathParser.canonicalIndex(name);
+                if (index >= 0 && index < length) {
+                    indexed[index] = oldNodes[i];
+                } else {
+                    insertName(name, oldNodes[i]);
+                    if (index >= 0) sparseIndexes++;
+                }
+            }
+        }
+
+        private Node getName(String name) {
+            int mask = names.length - 1;
+            for (int i = spread(name.hashCode()) & mask; ; i = (i + 1) & mask) {
+                String key = names[i];
+                if (key == null) return null;
+                if (key.equals(name)) return nameNodes[i];
+            }
+        }
+
+        private void putName(String name, Node node) {
+            if (names == null) {
+                names = new String[4];
+                nameNodes = new Node[4];
+            } else if (2 * (nameCount + 1) > names.length) {
+                rehash(2 * names.length);
+            }
+            insertName(name, node);
+        }
+
+        /**
+         * Removes the given name with backward-shift deletion: the entries after it in its probe
+         * run are moved back into the freed slot when their home slot allows it, so the table
+         * needs neither tombstones nor a rehash.
+         */
+        private void removeName(String name) {
+            int mask = names.length - 1;
+            int gap = spread(name.hashCode()) & mask;
+            while (!name.equals(names[gap])) {
+                if (names[gap] == null) return;
+                gap = (gap + 1) & mask;
+            }
+            for (int i = (gap + 1) & mask; names[i] != null; i = (i + 1) & mask) {
+                int home = spread(names[i].hashCode()) & mask;
+                if (((i - home) & mask) >= ((i - gap) & mask)) {
+                    names[gap] = names[i];
+                    nameNodes[gap] = nameNodes[i];
+                    gap = i;
+                }
+            }
+            names[gap] = null;
+            nameNodes[gap] = null;
+            nameCount--;
+        }
+
+        private void rehash(int length) {
+            String[] oldNames = names;
+            Node[] oldNodes = nameNodes;
+            names = new String[length];
+            nameNodes = new Node[length];
+            nameCount = 0;
+            for (int i = 0; i < oldNames.length; i++) {
+                if (oldNames[i] != null) insertName(oldNames[i], oldNodes[i]);
+            }
+        }
+
+        private void insertName(String name, Node node) {
+            int mask = names.length - 1;
+            int i = spread(name.hashCode()) & mask;
+            while (names[i] != null) {
+                i = (i + 1) & mask;
+            }
+            names[i] = name;
+            nameNodes[i] = node;
+            nameCount++;
+        }
+
+        private String[] sortedNames() {
+            if (nameCount == 0) return null;
+            String[] result = new String[nameCount];
+            int count = 0;
+            for (String name : names) {
+                if (name != null) result[count++] = name;
+            }
+            Arrays.sort(result, PathSegment::compareValues);
+            return result;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * Depth-first, pre-order traversal over the nodes that hold a value.
+     */
+    private final class TrieIterator implements Iterator<PathSegment> {
+        private final Deque<Frame> stack = new ArrayDeque<>();
+        private PathSegment next;
+        private Node nextNode;
+        Node current;
+
+        TrieIterator() {
+            Node node = find(prefix);
+            if (node != null) stack.push(new Frame(node, prefix));
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public PathSegment next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            PathSegment result = next;
+            current = nextNode;
+            advance();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove operation is not supported");
+        }
+
+        private void advance() {
+            next = null;
+            nextNode = null;
+            while (!stack.isEmpty()) {
+                Frame frame = stack.peek();
+                if (!frame.visited) {
+                    frame.visited = true;
+                    if (frame.node.present) {
+                        next = frame.key;
+                        nextNode = frame.node;
+                        return;
+                    }
+                }
+                Frame child = frame.nextChild();
+                if (child == null) {
+                    stack.pop();
+                } else {
+                    stack.push(child);
+                }
+            }
+        }
+    }
+
+    private static final class Frame {
+        final Node node;
+        final PathSegment key;
+        boolean visited;
+        int indexCursor;
+        String[] names;
+        int nameCursor = -1;
+
+        Frame(Node node, PathSegment key) {
+            this.node = node;
+            this.key = key;
+        }
+
+        Frame nextChild() {
+            Node[] indexed = node.indexed;
+            while (indexCursor < indexed.length) {
+                int index = indexCursor++;
+                Node child = indexed[index];
+                if (child != null) {
+                    return new Frame(child, child.index ? key.append(index) : key.append(String.valueOf(index)));
+                }
+            }
+
+            if (nameCursor < 0) {
+                names = node.sortedNames();
+                nameCursor = 0;
+            }
+            if (names == null || nameCursor >= names.length) return null;
+            String name = names[nameCursor++];
+            Node child = node.getName(name);
+            return new Frame(child, child.index ? key.append(Integer.parseInt(name)) : key.append(name));
+        }
+    }
+}
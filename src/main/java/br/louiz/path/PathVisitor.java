@@ -0,0 +1,23 @@
+package br.louiz.path;
+
+/**
+ * Receives the segments of a path from the root to the last segment, without
+ * the segments themselves being handed out, so index values are never turned
+ * into {@link String}s.
+ *
+ * @see PathSegment#accept(PathVisitor)
+ */
+public interface PathVisitor {
+
+    /**
+     * @param name  the value of a {@link NameSegment}.
+     * @param depth the {@link PathSegment#getDepth() depth} of the segment.
+     */
+    void visitName(String name, int depth);
+
+    /**
+     * @param index the index of an {@link IndexSegment}.
+     * @param depth the {@link PathSegment#getDepth() depth} of the segment.
+     */
+    void visitIndex(int index, int depth);
+}
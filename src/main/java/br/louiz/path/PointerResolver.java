@@ -0,0 +1,127 @@
+package br.louiz.path;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates {@link PathSegment}s as JSON Pointers (RFC 6901) against documents
+ * made of nested {@link Map}s, {@link List}s and arrays, such as the trees built
+ * by most JSON libraries.
+ * <p>
+ * Each segment is resolved against the current value as follows:
+ * <ul>
+ * <li>on a {@link Map}, its {@link PathSegment#getValue() value} is looked up as a key;</li>
+ * <li>on a {@link List} or an array, an {@link IndexSegment} is used as is, and a
+ * {@link NameSegment} only if it is a canonical non-negative integer;</li>
+ * <li>on anything else, the pointer can not be resolved.</li>
+ * </ul>
+ * Pointers that can not be resolved evaluate to null, as do pointers to null values.
+ *
+ * @see #resolveAll(Object, List)
+ */
+public final class PointerResolver {
+
+    /**
+     * Marks ancestors that could not be resolved, so they are not walked again.
+     */
+    private static final Object UNRESOLVED = new Object();
+
+    private PointerResolver() {
+    }
+
+    /**
+     * Resolves the given pointer against the given document.
+     *
+     * @param document the root of the document, may be null.
+     * @param pointer  a non-null {@link PathSegment}. A {@link MissingSegment} refers to the whole document.
+     * @return the referenced value, or null if it can not be resolved.
+     * @throws IllegalArgumentException if pointer is null.
+     */
+    public static Object resolve(Object document, PathSegment pointer) {
+        if (pointer == null) throw new IllegalArgumentException("parameter pointer should not be null");
+        Object current = document;
+        for (Iterator<PathSegment> segments = pointer.iterator(); segments.hasNext() && current != null; ) {
+            current = step(current, segments.next());
+        }
+        return current;
+    }
+
+    /**
+     * Resolves every given pointer against the same document. Ancestors shared by
+     * several pointers are only resolved once, so resolving many siblings walks
+     * their common prefix a single time.
+     *
+     * @param document the root of the document, may be null.
+     * @param pointers a non-null list of non-null {@link PathSegment}s.
+     * @return the referenced values, in the same order as the given pointers. Pointers
+     * that can not be resolved have a null value.
+     * @throws IllegalArgumentException if pointers is null or has a null element.
+     */
+    public static List<Object> resolveAll(Object document, List<? extends PathSegment> pointers) {
+        if (pointers == null) throw new IllegalArgumentException("parameter pointers should not be null");
+        Map<PathSegment, Object> resolved = new HashMap<>();
+        resolved.put(MissingSegment.INSTANCE, document == null ? UNRESOLVED : document);
+
+        List<Object> result = new ArrayList<>(pointers.size());
+        List<PathSegment> pending = new ArrayList<>();
+        for (PathSegment pointer : pointers) {
+            if (pointer == null) throw new IllegalArgumentException("pointers should not have null elements");
+            if (pointer.isMissing()) {
+                result.add(document);
+                continue;
+            }
+
+            // Walks up to the closest ancestor already resolved.
+            PathSegment ancestor = pointer.getParent();
+            Object current = resolved.get(ancestor);
+            while (current == null) {
+                pending.add(ancestor);
+                ancestor = ancestor.getParent();
+                current = resolved.get(ancestor);
+            }
+            for (int i = pending.size() - 1; i >= 0; i--) {
+                current = current == UNRESOLVED ? UNRESOLVED : orUnresolved(step(current, pending.get(i)));
+                resolved.put(pending.get(i), current);
+            }
+            pending.clear();
+
+            result.add(current == UNRESOLVED ? null : step(current, pointer));
+        }
+        return result;
+    }
+
+    private static Object orUnresolved(Object value) {
+        return value == null ? UNRESOLVED : value;
+    }
+
+    /**
+     * Resolves a single segment against the given value.
+     *
+     * @return the referenced value, or null if it can not be resolved.
+     */
+    private static Object step(Object current, PathSegment segment) {
+        if (current instanceof Map) {
+            return ((Map<?, ?>) current).get(segment.getValue());
+        }
+        if (current instanceof List) {
+            List<?> list = (List<?>) current;
+            int index = indexOf(segment);
+            return index >= 0 && index < list.size() ? list.get(index) : null;
+        }
+        if (current.getClass().isArray()) {
+            int index = indexOf(segment);
+            return index >= 0 && index < Array.getLength(current) ? Array.get(current, index) : null;
+        }
+        return null;
+    }
+
+    private static int indexOf(PathSegment segment) {
+        return segment.isIndex()
+                ? ((IndexSegment) segment).getIndex()
+                : PathParser.canonicalIndex(segment.getValue());
+    }
+}
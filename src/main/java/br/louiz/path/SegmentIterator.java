@@ -3,28 +3,44 @@ package br.louiz.path;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
+/**
+ * Iterates from the root to the given path. Paths shallower than
+ * {@link PathSegment#WALK_BLOCK} with {@link PathSegment#withJumpPointers() jump pointers},
+ * or shallower than {@value #PLAIN_DEPTH} without them, are walked through
+ * {@link PathSegment#get(int)}, without allocating an array; deeper ones are copied by
+ * {@link PathSegment#toArray()} first, so each step stays cheap.
+ */
 final class SegmentIterator implements Iterator<PathSegment> {
 
+    /**
+     * Plain paths find each segment by walking up from the last one, so only short
+     * ones are walked without an array.
+     */
+    static final int PLAIN_DEPTH = 8;
+
+    private final PathSegment last;
     private final PathSegment[] stack;
     private int count = 0;
 
     SegmentIterator(PathSegment path) {
-        this.stack = path.toArray();
+        this.last = path;
+        int limit = path.hasJumpPointers() ? PathSegment.WALK_BLOCK : PLAIN_DEPTH;
+        this.stack = path.getDepth() < limit ? null : path.toArray();
     }
 
     @Override
     public boolean hasNext() {
-        return count < stack.length;
+        return count <= last.getDepth();
     }
 
     @Override
     public PathSegment next() {
         if (!hasNext()) throw new NoSuchElementException();
-        return stack[count++];
+        return stack == null ? last.get(count++) : stack[count++];
     }
 
     @Override
     public void remove() {
         throw new UnsupportedOperationException("remove operation is not supported");
     }
-}
\ No newline at end of file
+}
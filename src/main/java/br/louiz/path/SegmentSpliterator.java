@@ -0,0 +1,112 @@
+package br.louiz.path;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the segments of a {@link PathSegment}, from depth 0 to the
+ * path itself. It covers a range of depths and splits it in halves, reaching
+ * the last segment of each half through {@link PathSegment#get(int)} instead of
+ * copying the chain. Ranges are only copied once they are traversed, and short
+ * ones are walked through {@link PathSegment#get(int)} like {@link SegmentIterator}.
+ */
+final class SegmentSpliterator implements Spliterator<PathSegment> {
+
+    private static final int CHARACTERISTICS = SIZED | SUBSIZED | ORDERED | IMMUTABLE | NONNULL;
+
+    /**
+     * The segment at depth {@code end - 1}.
+     */
+    private final PathSegment last;
+    private int next;
+    private final int end;
+
+    /**
+     * The segments from depth {@link #base}, copied by the first {@link #tryAdvance(Consumer)}
+     * of a range too deep to walk up to each segment, or null.
+     */
+    private PathSegment[] buffer;
+    private int base;
+
+    SegmentSpliterator(PathSegment path) {
+        this(path, 0, path.getDepth() + 1, null, 0);
+    }
+
+    private SegmentSpliterator(PathSegment last, int next, int end, PathSegment[] buffer, int base) {
+        this.last = last;
+        this.next = next;
+        this.end = end;
+        this.buffer = buffer;
+        this.base = base;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super PathSegment> action) {
+        if (action == null) throw new NullPointerException();
+        if (next >= end) return false;
+        if (buffer == null) {
+            int limit = last.hasJumpPointers() ? PathSegment.WALK_BLOCK : SegmentIterator.PLAIN_DEPTH;
+            if (end - next <= limit) {
+                action.accept(last.get(next++));
+                return true;
+            }
+            buffer = remaining();
+            base = next;
+        }
+        action.accept(buffer[next++ - base]);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super PathSegment> action) {
+        if (action == null) throw new NullPointerException();
+        if (next >= end) return;
+        PathSegment[] segments = buffer;
+        int first = next - base;
+        if (segments == null) {
+            segments = remaining();
+            first = 0;
+        }
+        int count = end - next;
+        next = end;
+        for (int i = first; i < first + count; i++) {
+            action.accept(segments[i]);
+        }
+    }
+
+    /**
+     * Splits off the shallower half of the remaining depths, sharing the copied segments if any.
+     */
+    @Override
+    public Spliterator<PathSegment> trySplit() {
+        int middle = (next + end) >>> 1;
+        if (middle <= next) return null;
+        PathSegment prefixLast = buffer == null ? last.get(middle - 1) : buffer[middle - 1 - base];
+        SegmentSpliterator prefix = new SegmentSpliterator(prefixLast, next, middle, buffer, base);
+        next = middle;
+        return prefix;
+    }
+
+    /**
+     * @return a copy of the segments from depth {@link #next} to {@link #last}.
+     */
+    private PathSegment[] remaining() {
+        PathSegment[] result = new PathSegment[end - next];
+        PathSegment current = last;
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = current;
+            current = current.getParent();
+        }
+        return result;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - next;
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+}
@@ -0,0 +1,173 @@
+package br.louiz.path;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link PathMetrics} implementation keeping every measurement in {@link LongAdder}s,
+ * which spread contended updates over per-thread cells, so recording stays cheap
+ * when many threads perform path operations at once.
+ * <p>
+ * Latencies are kept in power of two histograms: bucket {@code i} counts the
+ * operations that took from 2<sup>i-1</sup> (inclusive) to 2<sup>i</sup> (exclusive)
+ * nanoseconds, bucket 0 counting the ones measured as 0. Depths and segment lengths
+ * are kept in linear histograms, one bucket per value up to {@value #LINEAR_BUCKETS}
+ * exclusive, the last bucket counting every larger value.
+ * <p>
+ * To install it, list it in a {@code META-INF/services/br.louiz.path.PathMetrics} resource
+ * and read it back through {@link PathMetrics#active()}.
+ */
+public final class StripedPathMetrics implements PathMetrics {
+
+    /**
+     * The number of buckets of the depth and segment length histograms.
+     */
+    public static final int LINEAR_BUCKETS = 64;
+
+    /**
+     * The number of buckets of the latency histograms.
+     */
+    public static final int LATENCY_BUCKETS = 64;
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final Lookup[] LOOKUPS = Lookup.values();
+
+    private final LongAdder[] counts = adders(OPERATIONS.length);
+    private final LongAdder[] totalNanos = adders(OPERATIONS.length);
+    private final LongAdder[][] latencies = new LongAdder[OPERATIONS.length][];
+    private final LongAdder[] depths = adders(LINEAR_BUCKETS);
+    private final LongAdder[] segmentLengths = adders(LINEAR_BUCKETS);
+    private final LongAdder[] hits = adders(LOOKUPS.length);
+    private final LongAdder[] misses = adders(LOOKUPS.length);
+
+    public StripedPathMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = adders(LATENCY_BUCKETS);
+        }
+    }
+
+    @Override
+    public void recordOperation(Operation operation, long nanos) {
+        int ordinal = operation.ordinal();
+        counts[ordinal].increment();
+        if (nanos > 0) {
+            totalNanos[ordinal].add(nanos);
+            latencies[ordinal][Math.min(64 - Long.numberOfLeadingZeros(nanos), LATENCY_BUCKETS - 1)].increment();
+        } else {
+            latencies[ordinal][0].increment();
+        }
+    }
+
+    @Override
+    public void recordDepth(int depth) {
+        depths[linearBucket(depth)].increment();
+    }
+
+    @Override
+    public void recordSegmentLength(int length) {
+        segmentLengths[linearBucket(length)].increment();
+    }
+
+    @Override
+    public void recordLookup(Lookup lookup, boolean hit) {
+        (hit ? hits : misses)[lookup.ordinal()].increment();
+    }
+
+    /**
+     * @return the number of times the given operation was performed.
+     */
+    public long getCount(Operation operation) {
+        return counts[operation.ordinal()].sum();
+    }
+
+    /**
+     * @return the total time spent in the given operation, in nanoseconds.
+     */
+    public long getTotalNanos(Operation operation) {
+        return totalNanos[operation.ordinal()].sum();
+    }
+
+    /**
+     * @return a snapshot of the latency histogram of the given operation, with {@link #LATENCY_BUCKETS} buckets.
+     */
+    public long[] getLatencyHistogram(Operation operation) {
+        return snapshot(latencies[operation.ordinal()]);
+    }
+
+    /**
+     * @return a snapshot of the depth histogram, with {@link #LINEAR_BUCKETS} buckets.
+     */
+    public long[] getDepthHistogram() {
+        return snapshot(depths);
+    }
+
+    /**
+     * @return a snapshot of the segment length histogram, with {@link #LINEAR_BUCKETS} buckets.
+     */
+    public long[] getSegmentLengthHistogram() {
+        return snapshot(segmentLengths);
+    }
+
+    /**
+     * @return the number of lookups of the given kind that found an existing path.
+     */
+    public long getHitCount(Lookup lookup) {
+        return hits[lookup.ordinal()].sum();
+    }
+
+    /**
+     * @return the number of lookups of the given kind that did not find an existing path.
+     */
+    public long getMissCount(Lookup lookup) {
+        return misses[lookup.ordinal()].sum();
+    }
+
+    /**
+     * @return the ratio of lookups of the given kind that found an existing path, or 1.0 if there were no lookups.
+     */
+    public double getHitRate(Lookup lookup) {
+        long hitCount = getHitCount(lookup);
+        long requestCount = hitCount + getMissCount(lookup);
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * Resets every measurement. Measurements recorded concurrently may or may not be kept.
+     */
+    public void reset() {
+        reset(counts);
+        reset(totalNanos);
+        for (LongAdder[] latency : latencies) {
+            reset(latency);
+        }
+        reset(depths);
+        reset(segmentLengths);
+        reset(hits);
+        reset(misses);
+    }
+
+    private static int linearBucket(int value) {
+        return value < 0 ? 0 : Math.min(value, LINEAR_BUCKETS - 1);
+    }
+
+    private static LongAdder[] adders(int length) {
+        LongAdder[] result = new LongAdder[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = new LongAdder();
+        }
+        return result;
+    }
+
+    private static long[] snapshot(LongAdder[] adders) {
+        long[] result = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            result[i] = adders[i].sum();
+        }
+        return result;
+    }
+
+    private static void reset(LongAdder[] adders) {
+        for (LongAdder adder : adders) {
+            adder.reset();
+        }
+    }
+}
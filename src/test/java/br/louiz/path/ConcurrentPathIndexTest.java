@@ -0,0 +1,228 @@
+package br.louiz.path;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentPathIndexTest {
+
+    @Test
+    void testPutAndGet() {
+        ConcurrentPathIndex<String> index = new ConcurrentPathIndex<>();
+        PathSegment key = PathSegment.create("a").append(3);
+
+        assertNull(index.put(key, "first"));
+        assertEquals("first", index.put(key, "second"));
+        assertEquals("second", index.get(key));
+        assertEquals("second", index.get(PathSegment.fromString("/a/3")));
+        assertTrue(index.containsKey(key));
+        assertFalse(index.containsKey(key.getParent()));
+        assertNull(index.get(PathSegment.fromString("/a/4")));
+        assertEquals(1, index.size());
+
+        assertNull(index.put(MissingSegment.INSTANCE, "root"));
+        assertEquals("root", index.get(MissingSegment.INSTANCE));
+        assertEquals(2, index.size());
+
+        assertThrows(IllegalArgumentException.class, () -> index.get(null));
+        assertThrows(IllegalArgumentException.class, () -> index.put(null, "value"));
+        assertThrows(IllegalArgumentException.class, () -> index.put(key, null));
+    }
+
+    @Test
+    void testDeepKeys() {
+        ConcurrentPathIndex<Integer> index = new ConcurrentPathIndex<>();
+        PathSegment key = MissingSegment.INSTANCE;
+        for (int i = 0; i < 5_000; i++) {
+            key = key.append("p");
+            if (i % 100 == 0) index.put(key, i);
+        }
+
+        assertNull(index.get(key));
+        index.put(key, -1);
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(Integer.valueOf(-1), index.get(key));
+        }
+        assertEquals(Integer.valueOf(4_900), index.get(key.get(4_900)));
+        assertNull(index.get(key.append("q")));
+        assertEquals(Integer.valueOf(-1), index.remove(key));
+        assertEquals(50, index.size());
+    }
+
+    @Test
+    void testPutIfAbsent() {
+        ConcurrentPathIndex<String> index = new ConcurrentPathIndex<>();
+        PathSegment key = PathSegment.fromString("/a/b");
+
+        assertNull(index.putIfAbsent(key, "first"));
+        assertEquals("first", index.putIfAbsent(key, "second"));
+        assertEquals("first", index.get(key));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testComputeIfAbsent() {
+        ConcurrentPathIndex<String> index = new ConcurrentPathIndex<>();
+        PathSegment key = PathSegment.fromString("/a/b");
+
+        assertEquals("/a/b", index.computeIfAbsent(key, PathSegment::toString));
+        assertEquals("/a/b", index.computeIfAbsent(key, path -> fail("should not compute mapped keys.")));
+        assertNull(index.computeIfAbsent(PathSegment.fromString("/c"), path -> null));
+        assertFalse(index.containsKey(PathSegment.fromString("/c")));
+        assertEquals(1, index.size());
+        assertThrows(IllegalArgumentException.class, () -> index.computeIfAbsent(key, null));
+    }
+
+    @Test
+    void testRemove() {
+        ConcurrentPathIndex<String> index = new ConcurrentPathIndex<>();
+        PathSegment key = PathSegment.fromString("/a/b");
+        index.put(key, "value");
+
+        assertNull(index.remove(PathSegment.fromString("/a")));
+        assertNull(index.remove(PathSegment.fromString("/x/y")));
+        assertEquals("value", index.remove(key));
+        assertNull(index.remove(key));
+        assertTrue(index.isEmpty());
+        assertNull(index.putIfAbsent(key, "again"));
+        assertEquals("again", index.get(key));
+    }
+
+    @Test
+    void testRemoveUnlinksUnusedNodes() {
+        ConcurrentPathIndex<String> index = new ConcurrentPathIndex<>();
+        PathSegment abc = PathSegment.fromString("/a/b/c");
+        PathSegment ax = PathSegment.fromString("/a/x");
+        index.put(abc, "abc");
+        index.put(ax, "ax");
+        index.put(abc.getParent(), "ab");
+        assertEquals(5, index.nodeCount());
+
+        index.remove(abc);
+        assertEquals(4, index.nodeCount(), "/a/b still holds a value.");
+        index.remove(abc.getParent());
+        assertEquals(3, index.nodeCount());
+        index.remove(ax);
+        assertEquals(1, index.nodeCount());
+        assertTrue(index.isEmpty());
+
+        index.put(abc, "again");
+        assertEquals("again", index.get(abc));
+        assertEquals(4, index.nodeCount());
+    }
+
+    @Test
+    void testConcurrentChurn() throws Exception {
+        ConcurrentPathIndex<Integer> index = new ConcurrentPathIndex<>();
+        PathSegment stable = PathSegment.fromString("/shared/stable");
+        index.put(stable, -1);
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 20_000; i++) {
+                        PathSegment key = PathSegment.create("shared").append(i % 4).append(thread).append(i);
+                        assertNull(index.put(key, i));
+                        assertEquals(Integer.valueOf(i), index.get(key));
+                        assertEquals(Integer.valueOf(i), index.remove(key));
+                        assertEquals(Integer.valueOf(-1), index.get(stable));
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, index.size());
+        assertEquals(Integer.valueOf(-1), index.get(stable));
+        assertEquals(3, index.nodeCount(), "every churned key should have been unlinked.");
+    }
+
+    @Test
+    void testIteration() {
+        ConcurrentPathIndex<Integer> index = new ConcurrentPathIndex<>();
+        PathSegment a = PathSegment.fromString("/a");
+        PathSegment ab = a.append("b");
+        PathSegment a0 = a.append(0);
+        PathSegment c = PathSegment.fromString("/c");
+        index.put(a, 1);
+        index.put(ab, 2);
+        index.put(a0, 3);
+        index.put(c, 4);
+
+        Map<PathSegment, Integer> all = new HashMap<>();
+        index.forEach(all::put);
+        assertEquals(4, all.size());
+        assertEquals((Integer) 3, all.get(a0));
+
+        Map<PathSegment, Integer> subtree = new HashMap<>();
+        index.forEach(a, subtree::put);
+        assertEquals(3, subtree.size());
+        assertFalse(subtree.containsKey(c));
+
+        Set<PathSegment> keys = new HashSet<>();
+        Iterator<PathSegment> iterator = index.iterator(a);
+        assertEquals(a, iterator.next(), "keys should come before their descendants.");
+        iterator.forEachRemaining(keys::add);
+        assertEquals(new HashSet<>(Arrays.asList(ab, a0)), keys);
+
+        assertFalse(index.iterator(PathSegment.fromString("/missing")).hasNext());
+        int count = 0;
+        for (PathSegment ignored : index) count++;
+        assertEquals(4, count);
+    }
+
+    @Test
+    void testConcurrentRegistration() throws Exception {
+        ConcurrentPathIndex<Integer> index = new ConcurrentPathIndex<>();
+        int threads = 8;
+        int keys = 2_000;
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < keys; i++) {
+                        PathSegment key = PathSegment.create("schema").append(i % 10).append("field" + i);
+                        Integer value = index.computeIfAbsent(key, path -> computations.incrementAndGet());
+                        assertEquals(value, index.get(key));
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(keys, index.size());
+        Set<Integer> values = new HashSet<>();
+        index.forEach((key, value) -> values.add(value));
+        assertEquals(keys, values.size(), "each key should have a single winning value.");
+    }
+}
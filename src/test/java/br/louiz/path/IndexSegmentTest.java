@@ -3,6 +3,7 @@ package br.louiz.path;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class IndexSegmentTest {
@@ -15,6 +16,27 @@ class IndexSegmentTest {
         );
     }
 
+    @Test
+    void testGetValue() {
+        assertEquals("0", new IndexSegment(0).getValue());
+        assertEquals("1023", new IndexSegment(1023).getValue());
+        assertEquals("1024", new IndexSegment(1024).getValue());
+        assertEquals(String.valueOf(Integer.MAX_VALUE), new IndexSegment(Integer.MAX_VALUE).getValue());
+        assertSame(new IndexSegment(7).getValue(), new IndexSegment(7).getValue(), "small indexes should be cached.");
+    }
+
+    @Test
+    void testHashCode() {
+        int[] indexes = {0, 9, 10, 99, 100, 1023, 1024, 123456789, 1000000000, Integer.MAX_VALUE};
+        for (int index : indexes) {
+            assertEquals(new NameSegment(String.valueOf(index)).hashCode(), new IndexSegment(index).hashCode());
+            assertEquals(
+                    new NameSegment("a").append(String.valueOf(index)).hashCode(),
+                    new NameSegment("a").append(index).hashCode()
+            );
+        }
+    }
+
     @Test
     void testAppendValue() {
         PathSegment zero = new IndexSegment(0);
@@ -0,0 +1,60 @@
+package br.louiz.path;
+
+import br.louiz.path.PathMetrics.Lookup;
+import br.louiz.path.PathMetrics.Operation;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs in its own JVM, with {@link StripedPathMetrics} listed in {@code src/test/metrics},
+ * so the rest of the suite keeps {@link PathMetrics#NOOP}.
+ */
+class InstalledPathMetricsTest {
+
+    @Test
+    void testInstalled() {
+        assertTrue(Metrics.ENABLED);
+        StripedPathMetrics metrics = (StripedPathMetrics) PathMetrics.active();
+        long fromString = metrics.getCount(Operation.FROM_STRING);
+        long append = metrics.getCount(Operation.APPEND);
+        long find = metrics.getCount(Operation.FIND);
+        long contains = metrics.getCount(Operation.CONTAINS);
+        long toArray = metrics.getCount(Operation.TO_ARRAY);
+        long equals = metrics.getCount(Operation.EQUALS);
+        long depth = metrics.getDepthHistogram()[2];
+        long length = metrics.getSegmentLengthHistogram()[3];
+
+        PathSegment path = PathSegment.fromString("/abc/d/ef");
+        path.find("d");
+        path.contains(7);
+        path.contains("ef");
+        path.toArray();
+        assertEquals(path, PathSegment.create("abc").append("d").append("ef"));
+
+        assertEquals(fromString + 1, metrics.getCount(Operation.FROM_STRING));
+        assertEquals(append + 5, metrics.getCount(Operation.APPEND));
+        assertEquals(find + 1, metrics.getCount(Operation.FIND));
+        assertEquals(contains + 2, metrics.getCount(Operation.CONTAINS));
+        assertEquals(toArray + 1, metrics.getCount(Operation.TO_ARRAY));
+        assertEquals(equals + 1, metrics.getCount(Operation.EQUALS));
+        assertEquals(depth + 2, metrics.getDepthHistogram()[2]);
+        assertEquals(length + 1, metrics.getSegmentLengthHistogram()[3]);
+
+        long cacheHits = metrics.getHitCount(Lookup.CACHE);
+        long cacheMisses = metrics.getMissCount(Lookup.CACHE);
+        PathCache cache = new PathCache(16);
+        cache.get("/a/b");
+        cache.get("/a/b");
+        assertEquals(cacheHits + 1, metrics.getHitCount(Lookup.CACHE));
+        assertEquals(cacheMisses + 1, metrics.getMissCount(Lookup.CACHE));
+
+        long internerMisses = metrics.getMissCount(Lookup.INTERNER);
+        long internerHits = metrics.getHitCount(Lookup.INTERNER);
+        PathInterner interner = new PathInterner();
+        PathSegment interned = interner.intern(PathSegment.fromString("/x/y"));
+        interner.intern(interned);
+        assertEquals(internerMisses + 2, metrics.getMissCount(Lookup.INTERNER));
+        assertEquals(internerHits + 1, metrics.getHitCount(Lookup.INTERNER));
+    }
+}
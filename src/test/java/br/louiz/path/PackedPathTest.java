@@ -0,0 +1,102 @@
+package br.louiz.path;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedPathTest {
+
+    @Test
+    void testRoundTrip() {
+        PathSegment path = PathSegment.create("foo").append(0).append("b~/r").append("");
+        PackedPath packed = PackedPath.of(path);
+
+        assertEquals(3, packed.getDepth());
+        assertEquals("", packed.getValue());
+        assertEquals("/foo/0/b~0~1r/", packed.toString());
+        assertEquals(path.toString(), packed.toString());
+
+        PathSegment unpacked = packed.toPathSegment();
+        assertEquals(path, unpacked);
+        assertTrue(unpacked.getParent().getParent().isIndex(), "should keep index segments.");
+        assertTrue(unpacked.getParent().isName());
+
+        assertSame(PackedPath.EMPTY, PackedPath.of(MissingSegment.INSTANCE));
+        assertTrue(PackedPath.EMPTY.toPathSegment().isMissing());
+        assertThrows(IllegalArgumentException.class, () -> PackedPath.of(null));
+    }
+
+    @Test
+    void testNonLatin1() {
+        PathSegment path = PathSegment.create("café").append("漢字").append(12);
+        PackedPath packed = PackedPath.of(path);
+
+        assertEquals("漢字", packed.getParent().getValue());
+        assertEquals("12", packed.getValue());
+        assertEquals(path, packed.toPathSegment());
+        assertEquals(path.hashCode(), packed.hashCode());
+    }
+
+    @Test
+    void testGet() {
+        PathSegment path = PathSegment.create("a").append(1).append("c");
+        PackedPath packed = PackedPath.of(path);
+
+        assertEquals("a", packed.get(0).getValue());
+        assertTrue(packed.get(1).isIndex());
+        assertSame(packed, packed.get(2));
+        assertEquals(path.getParent(), packed.getParent());
+        assertSame(PackedPath.EMPTY, packed.get(0).getParent());
+        assertTrue(packed.get(0).getParent().isMissing());
+        assertThrows(IndexOutOfBoundsException.class, () -> packed.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> packed.get(-1));
+
+        List<String> values = new ArrayList<>();
+        for (PackedPath segment : packed) {
+            values.add(segment.getValue());
+        }
+        assertEquals(3, values.size());
+        assertEquals("c", values.get(2));
+    }
+
+    @Test
+    void testEquals() {
+        PathSegment path = PathSegment.create("a").append(1).append("c");
+        PackedPath packed = PackedPath.of(path);
+        PackedPath other = PackedPath.of(PathSegment.create("a").append("1").append("c"));
+
+        assertEquals(packed, other);
+        assertEquals(packed, path);
+        assertEquals(path, packed);
+        assertEquals(path.hashCode(), packed.hashCode());
+        assertEquals(path.getParent(), packed.getParent());
+        assertEquals(MissingSegment.INSTANCE, PackedPath.EMPTY);
+        assertEquals(PackedPath.EMPTY, MissingSegment.INSTANCE);
+        assertNotEquals(packed, PackedPath.of(PathSegment.create("a").append(1).append("d")));
+        assertNotEquals(packed, path.getParent());
+    }
+
+    @Test
+    void testCompareTo() {
+        PathSegment ab = PathSegment.create("a").append("b");
+        PathSegment ac = PathSegment.create("a").append("c");
+
+        assertEquals(Integer.signum(ab.compareTo(ac)), PackedPath.of(ab).compareTo(PackedPath.of(ac)));
+        assertEquals(Integer.signum(ac.compareTo(ab)), PackedPath.of(ac).compareTo(ab));
+        assertEquals(0, PackedPath.of(ab).compareTo(ab));
+        assertTrue(PackedPath.of(ab.getParent()).compareTo(ab) < 0);
+
+        PathSegment a2 = PathSegment.create("a").append(2);
+        PathSegment a10 = PathSegment.create("a").append(10);
+        assertTrue(PackedPath.of(a2).compareTo(PackedPath.of(a10)) < 0);
+        assertTrue(PackedPath.of(a10).compareTo(a2) > 0);
+
+        PathSegment b = PathSegment.create("b");
+        assertTrue(PackedPath.of(ab).compareTo(PackedPath.of(b)) < 0, "should be in tree order.");
+        assertTrue(PackedPath.of(b).compareTo(ab) > 0);
+        assertTrue(PackedPath.EMPTY.compareTo(b) < 0);
+    }
+}
@@ -0,0 +1,197 @@
+package br.louiz.path;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatchEngineTest {
+
+    private static PathSegment path(String path) {
+        return PathParser.INDEXES.parse(path);
+    }
+
+    private static Map<String, Object> document() {
+        Map<String, Object> address = new LinkedHashMap<>();
+        address.put("city", "Recife");
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("name", "Ana");
+        document.put("tags", new ArrayList<>(Arrays.asList("a", "b", "c")));
+        document.put("address", address);
+        document.put("scores", new int[]{1, 2, 3});
+        return document;
+    }
+
+    @Test
+    void testAdd() {
+        Map<String, Object> document = document();
+        PatchEngine.apply(document, Arrays.asList(
+                PatchOperation.add(path("/age"), 30),
+                PatchOperation.add(path("/tags/0"), "first"),
+                PatchOperation.add(path("/tags/-"), "last"),
+                PatchOperation.add(path("/address/zip"), "50000")));
+
+        assertEquals(30, document.get("age"));
+        assertEquals(Arrays.asList("first", "a", "b", "c", "last"), document.get("tags"));
+        assertEquals("50000", ((Map<?, ?>) document.get("address")).get("zip"));
+
+        Object replaced = PatchEngine.apply(document, Collections.singletonList(PatchOperation.add(MissingSegment.INSTANCE, "root")));
+        assertEquals("root", replaced);
+    }
+
+    @Test
+    void testRemoveAndReplace() {
+        Map<String, Object> document = document();
+        PatchEngine.apply(document, Arrays.asList(
+                PatchOperation.remove(path("/tags/1")),
+                PatchOperation.replace(path("/name"), "Bia"),
+                PatchOperation.replace(path("/scores/2"), 9),
+                PatchOperation.remove(path("/address/city"))));
+
+        assertEquals(Arrays.asList("a", "c"), document.get("tags"));
+        assertEquals("Bia", document.get("name"));
+        assertEquals(9, ((int[]) document.get("scores"))[2]);
+        assertTrue(((Map<?, ?>) document.get("address")).isEmpty());
+    }
+
+    @Test
+    void testMoveAndCopy() {
+        Map<String, Object> document = document();
+        PatchEngine.apply(document, Arrays.asList(
+                PatchOperation.copy(path("/address"), path("/billing")),
+                PatchOperation.move(path("/tags/0"), path("/tags/-")),
+                PatchOperation.move(path("/name"), path("/address/owner"))));
+
+        assertEquals(Arrays.asList("b", "c", "a"), document.get("tags"));
+        assertFalse(document.containsKey("name"));
+        assertEquals("Ana", ((Map<?, ?>) document.get("address")).get("owner"));
+        assertFalse(((Map<?, ?>) document.get("billing")).containsKey("owner"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> PatchEngine.apply(document, Collections.singletonList(PatchOperation.move(path("/address"), path("/address/inner")))));
+    }
+
+    @Test
+    void testTest() {
+        Map<String, Object> document = document();
+        PatchEngine.apply(document, Arrays.asList(
+                PatchOperation.test(path("/name"), "Ana"),
+                PatchOperation.test(path("/tags"), Arrays.asList("a", "b", "c")),
+                PatchOperation.test(path("/scores/0"), 1L),
+                PatchOperation.test(path("/scores"), new int[]{1, 2, 3})));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> PatchEngine.apply(document, Collections.singletonList(PatchOperation.test(path("/name"), "Bia"))));
+        assertThrows(IllegalArgumentException.class,
+                () -> PatchEngine.apply(document, Collections.singletonList(PatchOperation.test(path("/missing"), null))));
+    }
+
+    @Test
+    void testTestNonFinite() {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("nan", Double.NaN);
+        document.put("infinity", Float.POSITIVE_INFINITY);
+        document.put("one", 1);
+        PatchEngine.apply(document, Arrays.asList(
+                PatchOperation.test(path("/nan"), Float.NaN),
+                PatchOperation.test(path("/infinity"), Double.POSITIVE_INFINITY)));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> PatchEngine.apply(document, Collections.singletonList(PatchOperation.test(path("/nan"), 1))));
+        assertThrows(IllegalArgumentException.class,
+                () -> PatchEngine.apply(document, Collections.singletonList(PatchOperation.test(path("/one"), Double.NEGATIVE_INFINITY))));
+        assertThrows(IllegalArgumentException.class,
+                () -> PatchEngine.apply(document, Collections.singletonList(PatchOperation.test(path("/infinity"), Double.NaN))));
+    }
+
+    @Test
+    void testRollback() {
+        Map<String, Object> document = document();
+        Map<String, Object> expected = document();
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> PatchEngine.apply(document, Arrays.asList(
+                PatchOperation.add(path("/age"), 30),
+                PatchOperation.remove(path("/tags/0")),
+                PatchOperation.add(path("/tags/1"), "x"),
+                PatchOperation.replace(path("/scores/0"), 7),
+                PatchOperation.move(path("/address/city"), path("/city")),
+                PatchOperation.replace(path("/name"), "Bia"),
+                PatchOperation.remove(path("/tags/9")))));
+
+        assertTrue(exception.getMessage().startsWith("Operation 6 "));
+        assertEquals(expected.keySet(), document.keySet());
+        assertEquals(expected.get("name"), document.get("name"));
+        assertEquals(expected.get("tags"), document.get("tags"));
+        assertEquals(expected.get("address"), document.get("address"));
+        assertArrayEquals((int[]) expected.get("scores"), (int[]) document.get("scores"));
+    }
+
+    @Test
+    void testMemoInvalidation() {
+        List<Object> items = new ArrayList<>();
+        items.add(new LinkedHashMap<>(Collections.singletonMap("id", 0)));
+        items.add(new LinkedHashMap<>(Collections.singletonMap("id", 1)));
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("items", items);
+
+        PatchEngine.apply(document, Arrays.asList(
+                PatchOperation.replace(path("/items/1/id"), 10),
+                PatchOperation.remove(path("/items/0")),
+                PatchOperation.replace(path("/items/0/id"), 20),
+                PatchOperation.replace(path("/items"), new ArrayList<>(Collections.singletonList(new LinkedHashMap<>()))),
+                PatchOperation.add(path("/items/0/id"), 30)));
+
+        assertEquals(Collections.singletonList(Collections.singletonMap("id", 30)), document.get("items"));
+    }
+
+    @Test
+    void testStreaming() {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("values", new ArrayList<>());
+        int count = 10_000;
+        Iterator<PatchOperation> patch = new Iterator<PatchOperation>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public PatchOperation next() {
+                if (next >= count) throw new NoSuchElementException();
+                return PatchOperation.add(path("/values/-"), next++);
+            }
+        };
+
+        PatchEngine.apply(document, patch);
+        List<?> values = (List<?>) document.get("values");
+        assertEquals(count, values.size());
+        assertEquals(count - 1, values.get(count - 1));
+    }
+
+    @Test
+    void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> PatchEngine.apply(document(), (Iterable<PatchOperation>) null));
+        assertThrows(IllegalArgumentException.class, () -> PatchEngine.apply(document(), (Iterator<PatchOperation>) null));
+        assertThrows(IllegalArgumentException.class, () -> PatchEngine.apply(document(), Collections.singletonList(null)));
+        assertThrows(IllegalArgumentException.class, () -> PatchOperation.add(null, 1));
+        assertThrows(IllegalArgumentException.class, () -> PatchOperation.move(null, path("/a")));
+        assertThrows(IllegalArgumentException.class,
+                () -> PatchEngine.apply(document(), Collections.singletonList(PatchOperation.add(path("/missing/child"), 1))));
+        assertThrows(IllegalArgumentException.class,
+                () -> PatchEngine.apply(document(), Collections.singletonList(PatchOperation.add(path("/tags/4"), 1))));
+        assertThrows(IllegalArgumentException.class,
+                () -> PatchEngine.apply(document(), Collections.singletonList(PatchOperation.add(path("/scores/0"), 1))));
+
+        assertEquals("{op=move, path=/b, from=/a}", PatchOperation.move(path("/a"), path("/b")).toString());
+    }
+}
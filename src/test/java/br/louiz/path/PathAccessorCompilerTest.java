@@ -0,0 +1,193 @@
+package br.louiz.path;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathAccessorCompilerTest {
+
+    public static class Order {
+        private String id;
+        private final List<Line> lines = new ArrayList<>();
+        private final Map<String, Object> attributes = new HashMap<>();
+        private Customer customer;
+        private Object extra;
+        int[] quantities = {1, 2, 3};
+        boolean paid;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public List<Line> getLines() {
+            return lines;
+        }
+
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+
+        public boolean isPaid() {
+            return paid;
+        }
+
+        public Object getExtra() {
+            return extra;
+        }
+    }
+
+    public static class Line {
+        BigDecimal price;
+        final String sku;
+
+        Line(String sku, BigDecimal price) {
+            this.sku = sku;
+            this.price = price;
+        }
+    }
+
+    public static class Customer {
+        private final String name;
+
+        Customer(String name) {
+            this.name = name;
+        }
+
+        public String name() {
+            return name;
+        }
+    }
+
+    public static class Box<T> {
+        public T value;
+    }
+
+    public static class LineBoxes extends ArrayList<Box<Line>> {
+        private static final long serialVersionUID = 1L;
+    }
+
+    public static class Holder {
+        public Box<Line> box = new Box<>();
+        public LineBoxes boxes = new LineBoxes();
+    }
+
+    private static Order order() {
+        Order order = new Order();
+        order.setId("o-1");
+        order.lines.add(new Line("a", new BigDecimal("1.50")));
+        order.lines.add(new Line("b", new BigDecimal("2.00")));
+        order.attributes.put("channel", "web");
+        order.customer = new Customer("Ana");
+        return order;
+    }
+
+    @Test
+    void testGet() {
+        PathAccessorCompiler compiler = new PathAccessorCompiler();
+        Order order = order();
+
+        assertEquals("o-1", compiler.compile(Order.class, PathParser.INDEXES.parse("/id")).get(order));
+        assertEquals(new BigDecimal("2.00"), compiler.compile(Order.class, PathParser.INDEXES.parse("/lines/1/price")).get(order));
+        assertEquals("a", compiler.compile(Order.class, PathSegment.fromString("/lines/0/sku")).get(order));
+        assertEquals("web", compiler.compile(Order.class, PathParser.INDEXES.parse("/attributes/channel")).get(order));
+        assertEquals("Ana", compiler.compile(Order.class, PathParser.INDEXES.parse("/customer/name")).get(order));
+        assertEquals(2, compiler.compile(Order.class, PathParser.INDEXES.parse("/quantities/1")).get(order));
+        assertEquals(false, compiler.compile(Order.class, PathParser.INDEXES.parse("/paid")).get(order));
+        assertSame(order, compiler.compile(Order.class, MissingSegment.INSTANCE).get(order));
+
+        order.customer = null;
+        assertNull(compiler.compile(Order.class, PathParser.INDEXES.parse("/customer/name")).get(order));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> compiler.compile(Order.class, PathParser.INDEXES.parse("/lines/5/price")).get(order));
+    }
+
+    @Test
+    void testValueType() {
+        PathAccessorCompiler compiler = new PathAccessorCompiler();
+        assertEquals(BigDecimal.class, compiler.compile(Order.class, PathParser.INDEXES.parse("/lines/0/price")).getValueType());
+        assertEquals(Line.class, compiler.compile(Order.class, PathParser.INDEXES.parse("/lines/0")).getValueType());
+        assertEquals(int.class, compiler.compile(Order.class, PathParser.INDEXES.parse("/quantities/0")).getValueType());
+        assertEquals(Object.class, compiler.compile(Order.class, PathParser.INDEXES.parse("/attributes/channel")).getValueType());
+        assertEquals(BigDecimal.class, compiler.compile(Holder.class, PathParser.INDEXES.parse("/box/value/price")).getValueType());
+        assertEquals(BigDecimal.class, compiler.compile(Holder.class, PathParser.INDEXES.parse("/boxes/0/value/price")).getValueType());
+    }
+
+    @Test
+    void testSet() {
+        PathAccessorCompiler compiler = new PathAccessorCompiler();
+        Order order = order();
+
+        compiler.compile(Order.class, PathParser.INDEXES.parse("/id")).set(order, "o-2");
+        assertEquals("o-2", order.getId());
+        compiler.compile(Order.class, PathParser.INDEXES.parse("/lines/0/price")).set(order, BigDecimal.TEN);
+        assertEquals(BigDecimal.TEN, order.lines.get(0).price);
+        compiler.compile(Order.class, PathParser.INDEXES.parse("/quantities/2")).set(order, 9);
+        assertEquals(9, order.quantities[2]);
+        compiler.compile(Order.class, PathParser.INDEXES.parse("/attributes/channel")).set(order, "store");
+        assertEquals("store", order.attributes.get("channel"));
+        compiler.compile(Order.class, PathParser.INDEXES.parse("/paid")).set(order, true);
+        assertTrue(order.paid);
+
+        PathAccessorCompiler.Accessor sku = compiler.compile(Order.class, PathParser.INDEXES.parse("/lines/0/sku"));
+        assertFalse(sku.isWritable());
+        assertThrows(UnsupportedOperationException.class, () -> sku.set(order, "c"));
+        assertThrows(UnsupportedOperationException.class, () -> compiler.compile(Order.class, MissingSegment.INSTANCE).set(order, order));
+
+        assertThrows(IllegalStateException.class,
+                () -> compiler.compile(Order.class, PathParser.INDEXES.parse("/extra/price")).set(order, "x"));
+    }
+
+    @Test
+    void testDynamic() {
+        PathAccessorCompiler compiler = new PathAccessorCompiler();
+        Order order = order();
+        PathAccessorCompiler.Accessor accessor = compiler.compile(Order.class, PathParser.INDEXES.parse("/extra/name"));
+        assertEquals(Object.class, accessor.getValueType());
+
+        assertNull(accessor.get(order));
+        order.extra = new Customer("Bia");
+        assertEquals("Bia", accessor.get(order));
+        order.extra = new Line("z", BigDecimal.ONE);
+        assertThrows(IllegalArgumentException.class, () -> accessor.get(order));
+
+        order.extra = Arrays.asList("x", "y");
+        assertEquals("y", compiler.compile(Order.class, PathParser.INDEXES.parse("/extra/1")).get(order));
+    }
+
+    @Test
+    void testCache() {
+        PathAccessorCompiler compiler = new PathAccessorCompiler();
+        PathAccessorCompiler.Accessor first = compiler.compile(Order.class, PathParser.INDEXES.parse("/lines/3/price"));
+        assertSame(first, compiler.compile(Order.class, PathParser.NAMES.parse("/lines/3/price")));
+        assertNotSame(first, compiler.compile(Line.class, PathParser.INDEXES.parse("/price")));
+        assertEquals(2, compiler.size());
+    }
+
+    @Test
+    void testInvalid() {
+        PathAccessorCompiler compiler = new PathAccessorCompiler();
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(null, MissingSegment.INSTANCE));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(Order.class, null));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(Order.class, PathSegment.fromString("/unknown")));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(Order.class, PathSegment.fromString("/lines/first")));
+
+        PathAccessorCompiler.Accessor id = compiler.compile(Order.class, PathSegment.fromString("/id"));
+        assertThrows(IllegalArgumentException.class, () -> id.get(null));
+        assertThrows(IllegalArgumentException.class, () -> id.get("not an order"));
+    }
+}
@@ -0,0 +1,119 @@
+package br.louiz.path;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathArenaTest {
+
+    @Test
+    void testAppend() {
+        PathArena arena = new PathArena();
+        long orders = arena.append(PathArena.MISSING, "orders");
+        long index = arena.append(orders, 12);
+        long name = arena.append(index, "naïve");
+
+        assertEquals(0, arena.getDepth(orders));
+        assertEquals(2, arena.getDepth(name));
+        assertEquals(-1, arena.getDepth(PathArena.MISSING));
+        assertEquals(PathArena.MISSING, arena.getParent(orders));
+        assertEquals(index, arena.getParent(name));
+        assertTrue(arena.isIndex(index));
+        assertFalse(arena.isIndex(name));
+        assertEquals("12", arena.getValue(index));
+        assertEquals("naïve", arena.getValue(name));
+
+        PathSegment expected = PathSegment.create("orders").append(12).append("naïve");
+        assertEquals(expected.hashCode(), arena.hashCode(name));
+        assertEquals(expected, arena.toPathSegment(name));
+        assertTrue(arena.toPathSegment(name).getParent().isIndex());
+        assertSame(MissingSegment.INSTANCE, arena.toPathSegment(PathArena.MISSING));
+        assertEquals(0, arena.hashCode(PathArena.MISSING));
+    }
+
+    @Test
+    void testAppendPath() {
+        PathArena arena = new PathArena();
+        PathSegment path = PathParser.INDEXES.parse("/a/0/b~1c");
+        long handle = arena.append(PathArena.MISSING, path);
+        assertEquals(path, arena.toPathSegment(handle));
+        assertTrue(arena.equals(handle, path));
+
+        long child = arena.append(handle, PathParser.INDEXES.parse("/d/1"));
+        assertEquals(PathParser.INDEXES.parse("/a/0/b~1c/d/1"), arena.toPathSegment(child));
+        assertEquals(handle, arena.append(handle, MissingSegment.INSTANCE));
+    }
+
+    @Test
+    void testEquals() {
+        PathArena arena = new PathArena();
+        long first = arena.append(arena.append(PathArena.MISSING, "a"), 3);
+        long second = arena.append(arena.append(PathArena.MISSING, "a"), "3");
+        long third = arena.append(arena.append(PathArena.MISSING, "a"), "4");
+        long fourth = arena.append(arena.append(PathArena.MISSING, "b"), 3);
+
+        assertTrue(arena.equals(first, first));
+        assertTrue(arena.equals(first, second));
+        assertFalse(arena.equals(first, third));
+        assertFalse(arena.equals(first, fourth));
+        assertFalse(arena.equals(first, arena.getParent(first)));
+        assertTrue(arena.equals(PathArena.MISSING, PathArena.MISSING));
+
+        assertTrue(arena.equals(first, PathParser.NAMES.parse("/a/3")));
+        assertTrue(arena.equals(second, PathParser.INDEXES.parse("/a/3")));
+        assertFalse(arena.equals(third, PathParser.INDEXES.parse("/a/3")));
+        assertTrue(arena.equals(PathArena.MISSING, MissingSegment.INSTANCE));
+        assertEquals(arena.hashCode(first), arena.hashCode(second));
+    }
+
+    @Test
+    void testChunks() {
+        PathArena arena = new PathArena(64);
+        long handle = PathArena.MISSING;
+        for (int i = 0; i < 100; i++) {
+            handle = arena.append(handle, i);
+        }
+        StringBuilder longName = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longName.append("name");
+        }
+        handle = arena.append(handle, longName.toString());
+        assertEquals(100, arena.getDepth(handle));
+        assertEquals(longName.toString(), arena.getValue(handle));
+        assertEquals("99", arena.getValue(arena.getParent(handle)));
+        assertEquals(arena.toPathSegment(handle).hashCode(), arena.hashCode(handle));
+        assertTrue(arena.allocatedBytes() >= 100 * 24);
+    }
+
+    @Test
+    void testClearAndRelease() {
+        PathArena arena = new PathArena(64);
+        long handle = arena.append(arena.append(PathArena.MISSING, "a"), "b");
+        long allocated = arena.allocatedBytes();
+
+        arena.clear();
+        assertEquals(allocated, arena.allocatedBytes());
+        assertThrows(IllegalArgumentException.class, () -> arena.getValue(handle));
+        long reused = arena.append(arena.append(PathArena.MISSING, "c"), "d");
+        assertEquals(allocated, arena.allocatedBytes());
+        assertEquals(PathParser.NAMES.parse("/c/d"), arena.toPathSegment(reused));
+
+        arena.release();
+        assertEquals(0, arena.allocatedBytes());
+        assertThrows(IllegalArgumentException.class, () -> arena.getDepth(reused));
+        assertEquals("e", arena.getValue(arena.append(PathArena.MISSING, "e")));
+    }
+
+    @Test
+    void testInvalid() {
+        PathArena arena = new PathArena();
+        assertThrows(IllegalArgumentException.class, () -> new PathArena(8));
+        assertThrows(IllegalArgumentException.class, () -> arena.append(PathArena.MISSING, (String) null));
+        assertThrows(IllegalArgumentException.class, () -> arena.append(PathArena.MISSING, -1));
+        assertThrows(IllegalArgumentException.class, () -> arena.append(PathArena.MISSING, (PathSegment) null));
+        assertThrows(IllegalArgumentException.class, () -> arena.append(42L, "a"));
+        assertThrows(IllegalArgumentException.class, () -> arena.getValue(0xFFFFFFFF00000000L));
+        assertThrows(IllegalArgumentException.class, () -> arena.getParent(PathArena.MISSING));
+        assertThrows(IllegalArgumentException.class, () -> arena.equals(PathArena.MISSING, null));
+    }
+}
@@ -0,0 +1,106 @@
+package br.louiz.path;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathCacheTest {
+
+    @Test
+    void testGet() {
+        PathCache cache = new PathCache(16);
+        PathSegment first = cache.get("/foo/bar");
+
+        assertEquals(PathSegment.fromString("/foo/bar"), first);
+        assertSame(first, cache.get("/foo/bar"), "cached paths should be the same instance.");
+        assertTrue(cache.get("").isMissing());
+        assertThrows(IllegalArgumentException.class, () -> cache.get(null));
+        assertThrows(IllegalArgumentException.class, () -> cache.get("foo"));
+    }
+
+    @Test
+    void testCustomParser() {
+        PathCache cache = new PathCache(16, PathParser.INDEXES::parse);
+        assertTrue(cache.get("/a/0").isIndex());
+        assertEquals("~", cache.get("/~0").getValue());
+        assertThrows(IllegalArgumentException.class, () -> new PathCache(16, null));
+    }
+
+    @Test
+    void testStatistics() {
+        PathCache cache = new PathCache(16);
+        assertEquals(1.0, cache.hitRate());
+
+        cache.get("/a");
+        cache.get("/a");
+        cache.get("/a");
+        cache.get("/b");
+
+        assertEquals(2, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        assertEquals(0.5, cache.hitRate());
+        assertEquals(2, cache.size());
+        assertEquals(16, cache.maximumSize());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.hitCount());
+    }
+
+    @Test
+    void testEviction() {
+        AtomicInteger parses = new AtomicInteger();
+        PathCache cache = new PathCache(2, path -> {
+            parses.incrementAndGet();
+            return PathSegment.fromString(path);
+        });
+
+        cache.get("/a");
+        cache.get("/b");
+        cache.get("/a");
+        cache.get("/c");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertEquals(3, parses.get());
+
+        cache.get("/a");
+        assertEquals(3, parses.get(), "recently used paths should be kept.");
+        cache.get("/b");
+        assertEquals(4, parses.get(), "paths not used since the last pass should be evicted.");
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testGrowth() {
+        PathCache unbounded = new PathCache(Integer.MAX_VALUE);
+        assertEquals(Integer.MAX_VALUE, unbounded.maximumSize());
+        for (int i = 0; i < 1000; i++) {
+            unbounded.get("/" + i);
+        }
+        assertEquals(1000, unbounded.size());
+        assertEquals(0, unbounded.evictionCount());
+
+        PathCache bounded = new PathCache(40);
+        for (int i = 0; i < 100; i++) {
+            bounded.get("/" + i);
+        }
+        assertEquals(40, bounded.size());
+        assertEquals(60, bounded.evictionCount());
+        bounded.clear();
+        assertEquals(0, bounded.size());
+        bounded.get("/a");
+        assertSame(bounded.get("/a"), bounded.get("/a"));
+    }
+
+    @Test
+    void testDisabled() {
+        PathCache cache = new PathCache(0);
+        PathSegment path = cache.get("/a");
+        assertNotSame(path, cache.get("/a"));
+        assertEquals(0, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> new PathCache(-1));
+    }
+}
@@ -0,0 +1,123 @@
+package br.louiz.path;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathCodecTest {
+
+    private static final List<PathSegment> PATHS = Arrays.asList(
+            PathSegment.create("a").append("b").append(0),
+            PathSegment.create("a").append("b").append(1),
+            PathSegment.create("a").append("b").append("1"),
+            PathSegment.create("a").append("c"),
+            MissingSegment.INSTANCE,
+            PathSegment.create("café").append("~/").append(""),
+            PathSegment.create(300).append(Integer.MAX_VALUE)
+    );
+
+    private static List<PathSegment> readAll(PathCodec.Reader reader) {
+        List<PathSegment> result = new ArrayList<>();
+        while (reader.hasNext()) {
+            result.add(reader.next());
+        }
+        return result;
+    }
+
+    @Test
+    void testStreams() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PathCodec.Writer writer = PathCodec.newWriter(out)) {
+            for (PathSegment path : PATHS) {
+                writer.write(path);
+            }
+        }
+
+        List<PathSegment> decoded = readAll(PathCodec.newReader(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(PATHS, decoded);
+        for (int i = 0; i < PATHS.size(); i++) {
+            assertEquals(PATHS.get(i).isIndex(), decoded.get(i).isIndex(), "should keep segment types.");
+        }
+        assertSame(decoded.get(0).getParent(), decoded.get(1).getParent(), "should reuse shared ancestors.");
+        assertSame(decoded.get(0).getRoot(), decoded.get(3).getRoot());
+    }
+
+    @Test
+    void testPrefixSharing() throws IOException {
+        PathSegment parent = PathSegment.create("a").append("long segment name").append("another long segment name");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PathCodec.Writer writer = PathCodec.newWriter(out)) {
+            writer.write(parent.append(0));
+            writer.flush();
+            int first = out.size();
+            writer.write(parent.append(1));
+            writer.flush();
+            assertEquals(4, out.size() - first, "should only encode the counts and the new segment.");
+        }
+    }
+
+    @Test
+    void testByteBuffers() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        PathCodec.Writer writer = PathCodec.newWriter(buffer);
+        for (PathSegment path : PATHS) {
+            writer.write(path);
+        }
+        writer.flush();
+        buffer.flip();
+
+        assertEquals(PATHS, readAll(PathCodec.newReader(buffer)));
+    }
+
+    @Test
+    void testLargeInput() throws IOException {
+        List<PathSegment> paths = new ArrayList<>();
+        char[] chars = new char[10_000];
+        Arrays.fill(chars, 'x');
+        PathSegment parent = PathSegment.create(new String(chars));
+        for (int i = 0; i < 5_000; i++) {
+            paths.add(parent.append(i).append("name" + i));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PathCodec.Writer writer = PathCodec.newWriter(out)) {
+            for (PathSegment path : paths) {
+                writer.write(path);
+            }
+        }
+        assertEquals(paths, readAll(PathCodec.newReader(new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    @Test
+    void testMalformedInput() {
+        PathCodec.Reader truncated = PathCodec.newReader(new ByteArrayInputStream(new byte[]{0, 1, 0, 5, 'a'}));
+        assertTrue(truncated.hasNext());
+        assertThrows(UncheckedIOException.class, truncated::next);
+
+        PathCodec.Reader shared = PathCodec.newReader(new ByteArrayInputStream(new byte[]{2, 0}));
+        assertThrows(UncheckedIOException.class, shared::next);
+
+        PathCodec.Reader tag = PathCodec.newReader(new ByteArrayInputStream(new byte[]{0, 1, 7}));
+        assertThrows(UncheckedIOException.class, tag::next);
+
+        // -1 as a five byte varint.
+        PathCodec.Reader negativeShared = PathCodec.newReader(new ByteArrayInputStream(new byte[]{-1, -1, -1, -1, 15, 0}));
+        assertTrue(assertThrows(UncheckedIOException.class, negativeShared::next).getMessage().contains("Malformed record"));
+
+        PathCodec.Reader negativeIndex = PathCodec.newReader(new ByteArrayInputStream(new byte[]{0, 1, 1, -1, -1, -1, -1, 15}));
+        assertTrue(assertThrows(UncheckedIOException.class, negativeIndex::next).getMessage().contains("Malformed record"));
+
+        // Integer.MAX_VALUE as a name length, followed by a few bytes only.
+        PathCodec.Reader hugeName = PathCodec.newReader(new ByteArrayInputStream(new byte[]{0, 1, 0, -1, -1, -1, -1, 7, 'a', 'b'}));
+        assertTrue(assertThrows(UncheckedIOException.class, hugeName::next).getMessage().contains("Malformed record"));
+    }
+}
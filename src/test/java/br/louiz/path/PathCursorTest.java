@@ -0,0 +1,108 @@
+package br.louiz.path;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathCursorTest {
+
+    @Test
+    void testPushAndPop() {
+        PathCursor cursor = new PathCursor();
+        assertTrue(cursor.isMissing());
+        assertEquals(-1, cursor.getDepth());
+        assertEquals("", cursor.getValue());
+
+        cursor.pushName("foo").pushIndex(3).pushName("bar");
+        assertEquals(2, cursor.getDepth());
+        assertEquals("bar", cursor.getValue());
+        assertFalse(cursor.isIndex());
+
+        cursor.pop();
+        assertTrue(cursor.isIndex());
+        assertEquals(3, cursor.getIndex());
+        assertEquals("3", cursor.getValue());
+        assertEquals("/foo/3", cursor.toString());
+
+        cursor.pop().pop();
+        assertTrue(cursor.isMissing());
+        assertThrows(IllegalStateException.class, cursor::pop);
+        assertThrows(IllegalArgumentException.class, () -> cursor.pushName(null));
+        assertThrows(IllegalArgumentException.class, () -> cursor.pushIndex(-1));
+        assertThrows(IllegalArgumentException.class, () -> new PathCursor(-1));
+    }
+
+    @Test
+    void testSetIndex() {
+        PathCursor cursor = new PathCursor().pushName("items").pushIndex(0);
+        cursor.setIndex(1);
+        assertEquals(1, cursor.getIndex());
+        assertEquals("/items/1", cursor.toString());
+
+        cursor.pushName("name");
+        assertThrows(IllegalStateException.class, () -> cursor.setIndex(2));
+        assertThrows(IllegalStateException.class, cursor::getIndex);
+        assertThrows(IllegalStateException.class, () -> new PathCursor().setIndex(0));
+    }
+
+    @Test
+    void testFreeze() {
+        PathCursor cursor = new PathCursor(1);
+        assertSame(MissingSegment.INSTANCE, cursor.freeze());
+
+        cursor.pushName("a").pushIndex(0).pushName("b");
+        PathSegment first = cursor.freeze();
+        assertEquals(PathSegment.fromString("/a").append(0).append("b"), first);
+        assertTrue(first.getParent().isIndex());
+        assertSame(first, cursor.freeze());
+
+        cursor.pop().setIndex(1).pushName("b");
+        PathSegment second = cursor.freeze();
+        assertEquals(PathSegment.fromString("/a").append(1).append("b"), second);
+        assertSame(first.get(0), second.get(0), "unchanged prefix should be reused.");
+        assertEquals(PathSegment.fromString("/a").append(0).append("b"), first, "frozen paths should not change.");
+
+        cursor.clear();
+        assertTrue(cursor.isMissing());
+        assertTrue(cursor.freeze().isMissing());
+    }
+
+    @Test
+    void testGrow() {
+        PathCursor cursor = new PathCursor(0);
+        PathSegment expected = MissingSegment.INSTANCE;
+        for (int i = 0; i < 100; i++) {
+            cursor.pushIndex(i);
+            expected = expected.append(i);
+        }
+        assertEquals(99, cursor.getDepth());
+        assertEquals(expected, cursor.freeze());
+    }
+
+    @Test
+    void testEqualsPath() {
+        PathCursor cursor = new PathCursor().pushName("a").pushIndex(3);
+
+        assertTrue(cursor.equalsPath(PathSegment.fromString("/a").append(3)));
+        assertTrue(cursor.equalsPath(PathSegment.fromString("/a/3")));
+        assertTrue(cursor.equalsPath(cursor.freeze()));
+        assertFalse(cursor.equalsPath(PathSegment.fromString("/a/03")));
+        assertFalse(cursor.equalsPath(PathSegment.fromString("/a")));
+        assertFalse(cursor.equalsPath(null));
+        assertTrue(new PathCursor().equalsPath(MissingSegment.INSTANCE));
+    }
+
+    @Test
+    void testCompareTo() {
+        PathCursor cursor = new PathCursor().pushName("a").pushIndex(3);
+        PathSegment path = PathSegment.fromString("/a").append(3);
+
+        assertEquals(0, cursor.compareTo(path));
+        assertEquals(0, cursor.compareTo(cursor.freeze()));
+        for (String other : new String[]{"/a/2", "/a/10", "/a/b", "/b/0", "/a", "/a/3/c", "/0/3", "/b", "/a/3/0/0", ""}) {
+            PathSegment segment = PathSegment.fromString(other);
+            assertEquals(path.compareTo(segment), cursor.compareTo(segment), other);
+        }
+        assertThrows(IllegalArgumentException.class, () -> cursor.compareTo(null));
+    }
+}
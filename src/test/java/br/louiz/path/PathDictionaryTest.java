@@ -0,0 +1,126 @@
+package br.louiz.path;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathDictionaryTest {
+
+    private static final String[] PATHS = {
+            "/orders/10/id", "/orders/2/id", "/orders/2/price", "/orders", "/customer/name",
+            "/customer/naïve", "/customer/😀", "/customer/�", "/customer/name/first", "/a~1b"
+    };
+
+    private static PathDictionary dictionary() {
+        PathDictionary.Builder builder = PathDictionary.builder();
+        for (String path : PATHS) {
+            builder.add(PathParser.INDEXES.parse(path));
+        }
+        return builder.build();
+    }
+
+    @Test
+    void testContains() {
+        PathDictionary dictionary = dictionary();
+        assertEquals(PATHS.length, dictionary.size());
+        for (String path : PATHS) {
+            assertTrue(dictionary.contains(PathParser.INDEXES.parse(path)), path);
+            assertTrue(dictionary.contains(PathParser.NAMES.parse(path)), path);
+        }
+        assertTrue(dictionary.contains(PathSegment.create("orders").append(2).append("id")));
+        assertFalse(dictionary.contains(PathParser.INDEXES.parse("/orders/2")));
+        assertFalse(dictionary.contains(PathParser.INDEXES.parse("/orders/3/id")));
+        assertFalse(dictionary.contains(PathParser.INDEXES.parse("/customer/nam")));
+        assertFalse(dictionary.contains(PathParser.INDEXES.parse("/customer/names")));
+        assertFalse(dictionary.contains(MissingSegment.INSTANCE));
+        assertThrows(IllegalArgumentException.class, () -> dictionary.contains(null));
+    }
+
+    @Test
+    void testIds() {
+        PathDictionary dictionary = dictionary();
+        List<PathSegment> sorted = new ArrayList<>();
+        for (String path : PATHS) {
+            sorted.add(PathParser.INDEXES.parse(path));
+        }
+        PathSorter.sort(sorted);
+
+        List<PathSegment> iterated = new ArrayList<>();
+        for (PathSegment path : dictionary) {
+            assertEquals(iterated.size(), dictionary.idOf(path));
+            iterated.add(path);
+        }
+        assertEquals(sorted, iterated);
+        assertEquals(-1, dictionary.idOf(PathParser.INDEXES.parse("/orders/2")));
+        assertTrue(iterated.get(dictionary.idOf(PathParser.INDEXES.parse("/orders/10/id"))).getParent().isIndex());
+        assertFalse(iterated.get(dictionary.idOf(PathParser.INDEXES.parse("/customer/name"))).isIndex());
+    }
+
+    @Test
+    void testPrefix() {
+        PathDictionary dictionary = dictionary();
+        PathSegment prefix = PathParser.INDEXES.parse("/orders");
+
+        List<String> paths = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        dictionary.forEach(prefix, (path, id) -> {
+            paths.add(path.toString());
+            ids.add(id);
+        });
+        assertEquals(Arrays.asList("/orders", "/orders/2/id", "/orders/2/price", "/orders/10/id"), paths);
+        for (int i = 1; i < ids.size(); i++) {
+            assertEquals(ids.get(i - 1) + 1, (int) ids.get(i));
+        }
+
+        Iterator<PathSegment> iterator = dictionary.iterator(PathParser.INDEXES.parse("/orders/2"));
+        assertEquals("/orders/2/id", iterator.next().toString());
+        assertEquals("/orders/2/price", iterator.next().toString());
+        assertFalse(iterator.hasNext());
+
+        assertFalse(dictionary.iterator(PathParser.INDEXES.parse("/unknown")).hasNext());
+        assertThrows(IllegalArgumentException.class, () -> dictionary.iterator(null));
+        assertThrows(IllegalArgumentException.class, () -> dictionary.forEach(prefix, null));
+    }
+
+    @Test
+    void testFile() throws IOException {
+        Path file = Files.createTempFile("paths", ".dict");
+        try {
+            PathDictionary.Builder builder = PathDictionary.builder();
+            for (int i = 0; i < 1000; i++) {
+                builder.add(PathSegment.create("items").append(i).append("name"));
+                builder.add(PathSegment.create("items").append(i).append("price"));
+            }
+            builder.add(MissingSegment.INSTANCE);
+            builder.write(file);
+
+            PathDictionary dictionary = PathDictionary.open(file);
+            assertEquals(2001, dictionary.size());
+            assertEquals(0, dictionary.idOf(MissingSegment.INSTANCE));
+            assertEquals(1, dictionary.idOf(PathParser.INDEXES.parse("/items/0/name")));
+            assertEquals(2000, dictionary.idOf(PathParser.INDEXES.parse("/items/999/price")));
+            assertTrue(Files.size(file) < 2000 * 40);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> PathDictionary.wrap(ByteBuffer.allocate(8)));
+        assertThrows(IllegalArgumentException.class, () -> PathDictionary.wrap(ByteBuffer.allocate(64)));
+        assertThrows(IllegalArgumentException.class, () -> PathDictionary.wrap(null));
+        assertThrows(IllegalArgumentException.class, () -> PathDictionary.builder().add(null));
+        assertEquals(0, PathDictionary.builder().build().size());
+        assertFalse(PathDictionary.builder().build().iterator().hasNext());
+    }
+}
@@ -0,0 +1,142 @@
+package br.louiz.path;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Fails when the retained size of a path shape grows past its budget by more than
+ * {@link #THRESHOLD}. Budgets are in bytes for the usual 64-bit layout with compressed
+ * references and 8 byte alignment; the suite is skipped on other layouts.
+ * <p>
+ * Segment budgets exclude the value {@link String}s, which are measured separately,
+ * so they hold regardless of the {@link String} representation of the running JDK.
+ */
+class PathFootprintTest {
+
+    private static final double THRESHOLD = 1.10;
+
+    private static final int[] DEPTHS = {1, 16, 256, 4096};
+    private static final int[] VALUE_LENGTHS = {0, 1, 8, 32, 256};
+
+    /**
+     * Header, depth, hash, value, parent and cached rendering of a {@link NameSegment}.
+     */
+    private static final long NAME_SEGMENT_BUDGET = 32;
+
+    /**
+     * The fields of a {@link NameSegment} plus the index, 36 bytes padded to 40.
+     */
+    private static final long INDEX_SEGMENT_BUDGET = 40;
+
+    /**
+     * The arrays and fields of a {@link PackedPath}, regardless of its depth.
+     */
+    private static final long PACKED_FIXED_BUDGET = 104;
+
+    /**
+     * One offset and one bit per segment, on top of one byte per Latin-1 character.
+     */
+    private static final double PACKED_SEGMENT_BUDGET = 4.125;
+
+    @BeforeAll
+    static void checkLayout() {
+        assumeTrue(VM.current().sizeOfField("java.lang.Object") == 4, "budgets assume compressed references");
+        assumeTrue(VM.current().objectAlignment() == 8, "budgets assume 8 byte alignment");
+        assumeTrue(VM.current().objectHeaderSize() == 12, "budgets assume 12 byte object headers");
+    }
+
+    @Test
+    void testSegmentSize() {
+        assertWithinBudget("NameSegment", NAME_SEGMENT_BUDGET, VM.current().sizeOf(PathSegment.create("a")));
+        assertWithinBudget("IndexSegment", INDEX_SEGMENT_BUDGET, VM.current().sizeOf(PathSegment.create(1)));
+        // Jump pointers take the place of the cached rendering until the segment is rendered.
+        assertWithinBudget("jump-linked NameSegment", NAME_SEGMENT_BUDGET,
+                VM.current().sizeOf(PathSegment.create("a").withJumpPointers()));
+        assertWithinBudget("jump-linked IndexSegment", INDEX_SEGMENT_BUDGET,
+                VM.current().sizeOf(PathSegment.create(1).withJumpPointers()));
+    }
+
+    @Test
+    void testNameChains() {
+        for (int length : VALUE_LENGTHS) {
+            for (int depth : DEPTHS) {
+                PathSegment path = nameChain(depth, length);
+                long values = depth * GraphLayout.parseInstance(value(length)).totalSize();
+                long perSegment = (retainedSize(path) - values) / depth;
+                assertWithinBudget("name chain, depth " + depth + ", length " + length, NAME_SEGMENT_BUDGET, perSegment);
+            }
+        }
+    }
+
+    @Test
+    void testIndexChains() {
+        for (int depth : DEPTHS) {
+            PathSegment path = MissingSegment.INSTANCE;
+            for (int i = 0; i < depth; i++) {
+                path = path.append(i);
+            }
+            path.getValue();
+            long perSegment = retainedSize(path) / depth;
+            assertWithinBudget("index chain, depth " + depth, INDEX_SEGMENT_BUDGET, perSegment);
+        }
+    }
+
+    @Test
+    void testRenderedChains() {
+        for (int depth : DEPTHS) {
+            PathSegment path = nameChain(depth, 8);
+            long before = retainedSize(path);
+            String rendered = path.toString();
+            long after = retainedSize(path);
+            assertEquals(GraphLayout.parseInstance(rendered).totalSize(), after - before,
+                    "rendering depth " + depth + " should only retain the rendered string");
+        }
+    }
+
+    @Test
+    void testPackedPaths() {
+        for (int length : VALUE_LENGTHS) {
+            for (int depth : DEPTHS) {
+                long budget = PACKED_FIXED_BUDGET + (long) Math.ceil(depth * (length + PACKED_SEGMENT_BUDGET));
+                long actual = GraphLayout.parseInstance(PackedPath.of(nameChain(depth, length))).totalSize();
+                assertWithinBudget("packed path, depth " + depth + ", length " + length, budget, actual);
+            }
+        }
+    }
+
+    /**
+     * @return the size of everything reachable from the given path, except the shared {@link MissingSegment}.
+     */
+    private static long retainedSize(PathSegment root) {
+        return GraphLayout.parseInstance(root).totalSize() - GraphLayout.parseInstance(MissingSegment.INSTANCE).totalSize();
+    }
+
+    private static PathSegment nameChain(int depth, int length) {
+        PathSegment result = MissingSegment.INSTANCE;
+        for (int i = 0; i < depth; i++) {
+            result = result.append(value(length));
+        }
+        return result;
+    }
+
+    /**
+     * @return a new, unshared {@link String} of the given length.
+     */
+    private static String value(int length) {
+        char[] chars = new char[length];
+        Arrays.fill(chars, 'a');
+        return new String(chars);
+    }
+
+    private static void assertWithinBudget(String shape, long budget, long actual) {
+        long limit = (long) (budget * THRESHOLD);
+        assertTrue(actual <= limit, shape + " takes " + actual + " bytes, over its budget of " + budget + " bytes");
+    }
+}
@@ -0,0 +1,115 @@
+package br.louiz.path;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathInternerTest {
+
+    @Test
+    void testIntern() {
+        PathInterner interner = new PathInterner();
+        PathSegment first = interner.intern(PathSegment.create("users").append(0).append("name"));
+        PathSegment second = interner.intern(PathSegment.create("users").append(0).append("name"));
+
+        assertSame(first, second, "equal paths should be the same instance.");
+        assertSame(first.getParent(), second.getParent(), "equal paths should share their ancestors.");
+        assertSame(first.get(0), interner.intern(PathSegment.create("users")));
+        assertEquals(PathSegment.create("users").append(0).append("name"), first);
+        assertSame(first, interner.intern(first), "canonical paths should be returned as is.");
+        assertSame(MissingSegment.INSTANCE, interner.intern(MissingSegment.INSTANCE));
+    }
+
+    @Test
+    void testInternKeepsKind() {
+        PathInterner interner = new PathInterner();
+        PathSegment index = interner.intern(PathSegment.create("a").append(3));
+        PathSegment name = interner.intern(PathSegment.create("a").append("3"));
+
+        assertTrue(index.isIndex());
+        assertTrue(name.isName());
+        assertNotSame(index, name);
+        assertSame(index.getParent(), name.getParent());
+    }
+
+    @Test
+    void testAppend() {
+        PathInterner interner = new PathInterner();
+        PathSegment users = interner.intern(PathSegment.create("users"));
+        PathSegment zero = interner.append(users, 0);
+
+        assertSame(zero, interner.append(PathSegment.create("users"), 0));
+        assertSame(zero.append("name").getParent(), zero);
+        assertSame(interner.append(zero, "name"), interner.intern(PathSegment.create("users").append(0).append("name")));
+        assertThrows(IllegalArgumentException.class, () -> interner.append(users, -1));
+        assertThrows(IllegalArgumentException.class, () -> interner.append(users, null));
+    }
+
+    @Test
+    void testStatistics() {
+        PathInterner interner = new PathInterner();
+        PathSegment path = interner.intern(PathSegment.create("a").append("b"));
+        assertEquals(0, interner.hitCount());
+        assertEquals(2, interner.missCount());
+        assertEquals(2, interner.size());
+
+        interner.intern(PathSegment.create("a").append("c"));
+        assertEquals(1, interner.hitCount());
+        assertEquals(3, interner.missCount());
+        assertEquals(3, interner.size());
+
+        interner.intern(path);
+        assertEquals(2, interner.hitCount());
+    }
+
+    @Test
+    void testUnusedChainIsReclaimed() throws InterruptedException {
+        PathInterner interner = new PathInterner();
+        internChain(interner, 50);
+        assertEquals(50, interner.size());
+
+        // A whole chain goes away in a single collection, not one collection per level.
+        for (int i = 0; i < 10 && interner.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(0, interner.size());
+    }
+
+    @Test
+    void testManyParentsWithTheSameChild() {
+        // Enough parents for some of them to share an identity hash.
+        PathInterner interner = new PathInterner();
+        PathSegment[] children = new PathSegment[100_000];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = interner.intern(PathSegment.create("p" + i).append("x"));
+        }
+        for (int i = 0; i < children.length; i++) {
+            PathSegment child = interner.intern(PathSegment.create("p" + i).append("x"));
+            assertSame(children[i], child);
+            assertEquals("p" + i, child.getParent().getValue());
+        }
+        assertEquals(2 * children.length, interner.size());
+    }
+
+    private static void internChain(PathInterner interner, int depth) {
+        PathSegment path = MissingSegment.INSTANCE;
+        for (int i = 0; i < depth; i++) {
+            path = path.append("level" + i);
+        }
+        interner.intern(path);
+    }
+
+    @Test
+    void testBounded() {
+        PathInterner interner = new PathInterner(2);
+        PathSegment ab = interner.intern(PathSegment.create("a").append("b"));
+        PathSegment ac = interner.intern(PathSegment.create("a").append("c"));
+
+        assertEquals(2, interner.size());
+        assertSame(ab.getParent(), ac.getParent(), "ancestors already held should still be shared.");
+        assertNotSame(ac, interner.intern(PathSegment.create("a").append("c")));
+        assertEquals(PathSegment.create("a").append("c"), ac);
+        assertThrows(IllegalArgumentException.class, () -> new PathInterner(-1));
+    }
+}
@@ -0,0 +1,92 @@
+package br.louiz.path;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathParserTest {
+
+    @Test
+    void testParse() {
+        assertEquals(PathSegment.create("foo").append("bar"), PathParser.NAMES.parse("/foo/bar"));
+        assertEquals(PathSegment.create("foo").append("").append("bar"), PathParser.NAMES.parse("/foo//bar"));
+        assertEquals(PathSegment.create(""), PathParser.NAMES.parse("/"));
+        assertEquals(MissingSegment.INSTANCE, PathParser.NAMES.parse(""));
+        assertEquals(PathSegment.create("a").append("b"), PathParser.NAMES.parse(new StringBuilder("/a/b")));
+
+        assertThrows(IllegalArgumentException.class, () -> PathParser.NAMES.parse("foo"));
+        assertThrows(IllegalArgumentException.class, () -> PathParser.NAMES.parse((CharSequence) null));
+    }
+
+    @Test
+    void testParseEscapes() {
+        PathSegment path = PathParser.NAMES.parse("/~0foo/a~1b/~01");
+        assertEquals(PathSegment.create("~foo").append("a/b").append("~1"), path);
+        assertEquals("/~0foo/a~1b/~01", path.toString());
+
+        assertThrows(IllegalArgumentException.class, () -> PathParser.NAMES.parse("/~2"));
+        assertThrows(IllegalArgumentException.class, () -> PathParser.NAMES.parse("/foo~"));
+        assertThrows(IllegalArgumentException.class, () -> PathParser.NAMES.parse("/~/a"));
+    }
+
+    @Test
+    void testParseIndexes() {
+        PathSegment path = PathParser.INDEXES.parse("/a/0/12/01/-1/2147483647/2147483648/~01");
+        PathSegment[] segments = path.toArray();
+
+        assertTrue(segments[0].isName());
+        assertTrue(segments[1].isIndex());
+        assertEquals(0, ((IndexSegment) segments[1]).getIndex());
+        assertTrue(segments[2].isIndex());
+        assertEquals(12, ((IndexSegment) segments[2]).getIndex());
+        assertTrue(segments[3].isName(), "leading zeros are not canonical.");
+        assertTrue(segments[4].isName(), "negative numbers are not indexes.");
+        assertTrue(segments[5].isIndex());
+        assertEquals(Integer.MAX_VALUE, ((IndexSegment) segments[5]).getIndex());
+        assertTrue(segments[6].isName(), "overflowing numbers are not indexes.");
+        assertEquals("~1", segments[7].getValue());
+        assertTrue(segments[7].isName());
+
+        assertTrue(PathParser.NAMES.parse("/a/0").isName());
+    }
+
+    @Test
+    void testParseCharArray() {
+        char[] chars = "xx/a~1/0yy".toCharArray();
+        assertEquals(PathSegment.create("a/").append(0), PathParser.INDEXES.parse(chars, 2, 6));
+        assertTrue(PathParser.INDEXES.parse(chars, 2, 6).isIndex());
+        assertTrue(PathParser.NAMES.parse(chars, 0, 0).isMissing());
+        assertThrows(IndexOutOfBoundsException.class, () -> PathParser.NAMES.parse(chars, 5, 6));
+        assertThrows(IllegalArgumentException.class, () -> PathParser.NAMES.parse(chars, 0, 3));
+    }
+
+    @Test
+    void testParseBytes() {
+        byte[] bytes = "xx/café/漢~0/3".getBytes(StandardCharsets.UTF_8);
+        PathSegment expected = PathSegment.create("café").append("漢~").append(3);
+
+        PathSegment path = PathParser.INDEXES.parse(bytes, 2, bytes.length - 2);
+        assertEquals(expected, path);
+        assertTrue(path.isIndex());
+        assertThrows(IndexOutOfBoundsException.class, () -> PathParser.NAMES.parse(bytes, -1, 2));
+    }
+
+    @Test
+    void testParseByteBuffer() {
+        byte[] bytes = "/a~1b/0".getBytes(StandardCharsets.UTF_8);
+        PathSegment expected = PathSegment.create("a/b").append(0);
+
+        ByteBuffer heap = ByteBuffer.allocate(bytes.length + 1);
+        heap.put((byte) 'x').put(bytes).flip().position(1);
+        assertEquals(expected, PathParser.INDEXES.parse(heap));
+        assertEquals(1, heap.position(), "should not change the buffer position.");
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        assertEquals(expected, PathParser.INDEXES.parse(direct));
+        assertEquals(0, direct.position(), "should not change the buffer position.");
+    }
+}
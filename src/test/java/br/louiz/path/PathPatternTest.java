@@ -0,0 +1,142 @@
+package br.louiz.path;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class PathPatternTest {
+
+    private static final PathPattern RULES = PathPattern.compile(
+            "/users/*/email",
+            "/orders/**",
+            "/items/{idx:int}",
+            "/users/{user}/email",
+            "/users/admin/**",
+            "");
+
+    @Test
+    void testMatches() {
+        assertTrue(RULES.matches(PathSegment.fromString("/users/john/email")));
+        assertTrue(RULES.matches(PathSegment.fromString("/orders")));
+        assertTrue(RULES.matches(PathSegment.fromString("/orders/1/lines/2")));
+        assertTrue(RULES.matches(PathSegment.fromString("/items/42")));
+        assertTrue(RULES.matches(PathSegment.fromString("/items").append(7)));
+        assertTrue(RULES.matches(MissingSegment.INSTANCE));
+
+        assertFalse(RULES.matches(PathSegment.fromString("/users/john")));
+        assertFalse(RULES.matches(PathSegment.fromString("/users/john/email/primary")));
+        assertFalse(RULES.matches(PathSegment.fromString("/items/042")));
+        assertFalse(RULES.matches(PathSegment.fromString("/items/foo")));
+        assertFalse(RULES.matches(PathSegment.fromString("/other")));
+        assertThrows(IllegalArgumentException.class, () -> RULES.matches(null));
+    }
+
+    @Test
+    void testMatchingRules() {
+        assertArrayEquals(new int[]{0, 3}, RULES.matchingRules(PathSegment.fromString("/users/john/email")));
+        assertArrayEquals(new int[]{0, 3, 4}, RULES.matchingRules(PathSegment.fromString("/users/admin/email")));
+        assertArrayEquals(new int[]{4}, RULES.matchingRules(PathSegment.fromString("/users/admin")));
+        assertArrayEquals(new int[]{5}, RULES.matchingRules(MissingSegment.INSTANCE));
+        assertArrayEquals(new int[0], RULES.matchingRules(PathSegment.fromString("/users")));
+    }
+
+    @Test
+    void testMatch() {
+        List<PathPattern.Match> matches = RULES.match(PathSegment.fromString("/users/john/email"));
+        assertEquals(2, matches.size());
+        assertEquals(0, matches.get(0).getRule());
+        assertEquals("/users/*/email", matches.get(0).getSource());
+        assertTrue(matches.get(0).getCaptures().isEmpty());
+        assertEquals(3, matches.get(1).getRule());
+        assertEquals(PathSegment.fromString("/users/john"), matches.get(1).getCaptures().get("user"));
+
+        PathSegment item = PathSegment.fromString("/items").append(7);
+        PathPattern.Match match = RULES.match(item).get(0);
+        assertSame(item, match.getCaptures().get("idx"));
+
+        assertTrue(RULES.match(PathSegment.fromString("/nothing")).isEmpty());
+    }
+
+    @Test
+    void testLiterals() {
+        PathPattern pattern = PathPattern.compile("/a/3", "/a/5000", "/a~1b/~0", "/x/**/y/{last}");
+
+        assertTrue(pattern.matches(PathSegment.fromString("/a/3")));
+        assertTrue(pattern.matches(PathSegment.fromString("/a").append(3)));
+        assertFalse(pattern.matches(PathSegment.fromString("/a").append(4)));
+        assertTrue(pattern.matches(PathSegment.fromString("/a").append(5000)));
+        assertTrue(pattern.matches(PathParser.NAMES.parse("/a~1b/~0")));
+
+        assertTrue(pattern.matches(PathSegment.fromString("/x/y/z")));
+        assertTrue(pattern.matches(PathSegment.fromString("/x/1/2/y/z")));
+        assertFalse(pattern.matches(PathSegment.fromString("/x/y")));
+        PathSegment path = PathSegment.fromString("/x/y/y/z");
+        assertEquals(PathSegment.fromString("/x/y/y/z"), pattern.match(path).get(0).getCaptures().get("last"));
+    }
+
+    @Test
+    void testDeepPath() {
+        PathPattern pattern = PathPattern.compile("/x/**/y");
+        PathSegment path = PathSegment.create("x");
+        for (int i = 0; i < 50_000; i++) {
+            path = path.append(i);
+        }
+        assertTrue(pattern.matches(path.append("y")));
+        assertFalse(pattern.matches(path));
+        assertFalse(pattern.matches(PathSegment.create("z").append(path)));
+    }
+
+    @Test
+    void testRejectionDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof ThreadMXBean, "needs per-thread allocation counters");
+        ThreadMXBean threads = (ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(),
+                "needs per-thread allocation counters");
+
+        PathPattern pattern = PathPattern.compile("/x/**/y", "/users/*/email");
+        PathSegment plain = PathSegment.create("users").append(1_000).append("name");
+        PathSegment deep = PathSegment.create("x");
+        PathSegment linked = PathSegment.create("x").withJumpPointers();
+        for (int i = 0; i < 1_000; i++) {
+            plain = plain.append(i);
+            deep = deep.append(i);
+            linked = linked.append(i);
+        }
+        PathSegment[] rejected = {PathSegment.fromString("/other"), plain, deep, linked, plain.get(2)};
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 2_000; i++) {
+            for (PathSegment path : rejected) {
+                assertFalse(pattern.matches(path));
+            }
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        // The counters allocate a little themselves; one object per rejection would take over 100 KB.
+        assertTrue(allocated < 16 * 1024, "rejecting paths allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void testCompile() {
+        assertEquals(6, RULES.size());
+        assertEquals("/orders/**", RULES.rule(1));
+        assertEquals(0, PathPattern.compile().size());
+        assertFalse(PathPattern.compile().matches(MissingSegment.INSTANCE));
+        assertEquals(2, PathPattern.compile(Arrays.asList("/a", "/b")).size());
+
+        assertThrows(IllegalArgumentException.class, () -> PathPattern.compile((String[]) null));
+        assertThrows(IllegalArgumentException.class, () -> PathPattern.compile((String) null));
+        assertThrows(IllegalArgumentException.class, () -> PathPattern.compile("a/b"));
+        assertThrows(IllegalArgumentException.class, () -> PathPattern.compile("/a~2"));
+        assertThrows(IllegalArgumentException.class, () -> PathPattern.compile("/{name"));
+        assertThrows(IllegalArgumentException.class, () -> PathPattern.compile("/{}"));
+        assertThrows(IllegalArgumentException.class, () -> PathPattern.compile("/{name:long}"));
+    }
+}
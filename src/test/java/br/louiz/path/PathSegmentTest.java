@@ -1,12 +1,17 @@
 package br.louiz.path;
 
 
+import com.sun.management.ThreadMXBean;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import java.lang.management.ManagementFactory;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class PathSegmentTest {
 
@@ -51,6 +56,38 @@ class PathSegmentTest {
         assertEquals(stringPath, indexPath, "should be equal if path have same value, even if different types.");
     }
 
+    @Test
+    void testHashCode() {
+        PathSegment name = PathSegment.create("a").append("3");
+        PathSegment index = PathSegment.create("a").append(3);
+        assertEquals(name.hashCode(), index.hashCode(), "equal paths should have the same hash code.");
+        assertEquals(MissingSegment.INSTANCE.hashCode(), new MissingSegment().hashCode());
+
+        Map<PathSegment, String> map = new HashMap<>();
+        map.put(name, "value");
+        assertEquals("value", map.get(index));
+        assertNull(map.get(PathSegment.create("a").append(4)));
+    }
+
+    @Test
+    void testEqualsDeepPaths() {
+        PathSegment shared = PathSegment.create("root");
+        PathSegment first = shared;
+        PathSegment second = shared;
+        PathSegment third = PathSegment.create("root");
+        for (int i = 0; i < 50_000; i++) {
+            first = first.append(i);
+            second = second.append(i);
+            third = third.append(String.valueOf(i));
+        }
+
+        assertEquals(first, second);
+        assertEquals(first, third);
+        assertNotEquals(first, second.getParent().append(50_000));
+        assertNotEquals(first, third.getParent());
+        assertNotEquals(MissingSegment.INSTANCE, first);
+    }
+
     @Test
     void testAppendName() {
         PathSegment name = PathSegment.create("foo");
@@ -140,6 +177,67 @@ class PathSegmentTest {
         assertEquals(path, path.get(2));
     }
 
+    @Test
+    void testGetDeepPath() {
+        PathSegment[] segments = new PathSegment[50_000];
+        PathSegment path = PathSegment.create(0).withJumpPointers();
+        segments[0] = path;
+        for (int i = 1; i < segments.length; i++) {
+            path = path.append(i);
+            segments[i] = path;
+        }
+        assertTrue(path.hasJumpPointers());
+
+        for (int i = 0; i < segments.length; i += 997) {
+            assertSame(segments[i], path.get(i));
+            assertSame(segments[i], segments[segments.length / 2 + i / 2].get(i));
+        }
+        assertSame(segments[segments.length - 1], path.get(segments.length - 1));
+    }
+
+    @Test
+    void testWithJumpPointers() {
+        PathSegment plain = PathSegment.create("a").append(1).append("b").append(2);
+        assertFalse(plain.hasJumpPointers());
+        assertSame(MissingSegment.INSTANCE, MissingSegment.INSTANCE.withJumpPointers());
+
+        PathSegment linked = plain.withJumpPointers();
+        assertTrue(linked.hasJumpPointers());
+        assertSame(linked, linked.withJumpPointers());
+        assertEquals(plain, linked);
+        assertEquals(plain.hashCode(), linked.hashCode());
+        assertTrue(linked.isIndex());
+        assertTrue(linked.getParent().isName());
+        assertEquals(2, ((IndexSegment) linked).getIndex());
+        for (int i = 0; i <= plain.getDepth(); i++) {
+            assertEquals(plain.get(i), linked.get(i));
+            assertTrue(linked.get(i).hasJumpPointers());
+        }
+
+        PathSegment child = linked.append("c").append(3);
+        assertTrue(child.hasJumpPointers());
+        assertSame(linked, child.get(3));
+        PathSegment extended = linked.append(plain).withJumpPointers();
+        assertSame(linked, extended.get(3));
+        assertFalse(plain.append("c").hasJumpPointers());
+
+        assertEquals("/a/1/b/2/c/3", child.toString());
+        assertEquals("/a/1/b/2/c/3", child.toString());
+        assertTrue(child.hasJumpPointers());
+        assertSame(linked, child.get(3));
+        assertSame(IndexSegment.class, linked.getClass());
+        assertSame(NameSegment.class, linked.getParent().getClass());
+    }
+
+    @Test
+    void testGetRoot() {
+        PathSegment foo = new NameSegment("foo");
+        PathSegment path = foo.append("bar").append(0);
+        assertSame(foo, path.getRoot());
+        assertSame(foo, foo.getRoot());
+        assertTrue(MissingSegment.INSTANCE.getRoot().isMissing());
+    }
+
     @Test
     void testFind() {
         PathSegment test = PathSegment.create("test");
@@ -157,6 +255,40 @@ class PathSegmentTest {
         assertTrue(end.find("testValue").isMissing());
     }
 
+    @Test
+    void testFindIndex() {
+        PathSegment path = PathSegment.create("a").append("3").append(12).append("-1").append(2000);
+
+        assertEquals(path.getParent().getParent().getParent(), path.find(3), "should find names with the same value.");
+        assertEquals(path.getParent().getParent(), path.find("12"), "should find indexes with the same value.");
+        assertEquals(path, path.find(2000));
+        assertEquals(path, path.find("2000"));
+        assertEquals(path.getParent(), path.find(-1));
+        assertTrue(path.find("012").isMissing());
+        assertTrue(path.find(4).isMissing());
+        assertTrue(path.find(null).isMissing());
+        assertTrue(path.contains(12));
+        assertFalse(path.contains(13));
+    }
+
+    @Test
+    void testCompareTo() {
+        PathSegment a = PathSegment.create("a");
+
+        assertTrue(a.append(2).compareTo(a.append(10)) < 0, "indexes should be compared numerically.");
+        assertTrue(a.append("10").compareTo(a.append(2)) > 0);
+        assertTrue(a.append(10).compareTo(a.append("b")) < 0, "indexes should come before names.");
+        assertTrue(a.append("b").compareTo(a.append("c")) < 0);
+        assertEquals(0, a.append(3).compareTo(PathSegment.create("a").append("3")));
+        assertTrue(a.append("z").append(0).compareTo(PathSegment.create("b").append("a").append(0)) < 0,
+                "should be decided by the segment closest to the root.");
+        assertTrue(a.compareTo(a.append(0)) < 0, "prefixes should come first.");
+        assertTrue(a.append(0).append("z").compareTo(PathSegment.create("b")) < 0, "should be in tree order.");
+        assertTrue(PathSegment.create("b").compareTo(a.append(0)) > 0);
+        assertTrue(MissingSegment.INSTANCE.compareTo(a) < 0);
+        assertEquals(0, a.compareTo(a));
+    }
+
     @Test
     void testReverseIterator() {
         PathSegment foo = new NameSegment("foo");
@@ -184,6 +316,192 @@ class PathSegmentTest {
         assertThrows(NoSuchElementException.class, () -> pathIterator.next());
     }
 
+    @Test
+    void testIteratorDeepPath() {
+        for (int depth : new int[]{0, 1, 7, 8, 31, 32, 33, 100}) {
+            PathSegment plain = MissingSegment.INSTANCE;
+            for (int i = 0; i <= depth; i++) {
+                plain = plain.append(i);
+            }
+            for (PathSegment path : new PathSegment[]{plain, plain.withJumpPointers()}) {
+                int expected = 0;
+                for (PathSegment segment : path) {
+                    assertEquals(expected, segment.getDepth());
+                    assertEquals(expected, ((IndexSegment) segment).getIndex());
+                    expected++;
+                }
+                assertEquals(depth + 1, expected);
+            }
+        }
+        assertFalse(MissingSegment.INSTANCE.iterator().hasNext());
+    }
+
+    @Test
+    void testForEach() {
+        for (int depth : new int[]{0, 31, 32, 64, 100, 1_000}) {
+            PathSegment path = MissingSegment.INSTANCE;
+            for (int i = 0; i <= depth; i++) {
+                path = path.append("n" + i);
+            }
+            List<PathSegment> visited = new ArrayList<>();
+            path.forEach(visited::add);
+            assertEquals(Arrays.asList(path.toArray()), visited);
+
+            PathSegment linked = path.withJumpPointers();
+            visited.clear();
+            linked.forEach(visited::add);
+            assertEquals(Arrays.asList(linked.toArray()), visited);
+        }
+
+        List<PathSegment> visited = new ArrayList<>();
+        MissingSegment.INSTANCE.forEach(visited::add);
+        assertTrue(visited.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> MissingSegment.INSTANCE.forEach(null));
+    }
+
+    @Test
+    void testForEachDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof ThreadMXBean, "needs per-thread allocation counters");
+        ThreadMXBean threads = (ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(),
+                "needs per-thread allocation counters");
+
+        PathSegment plain = PathSegment.create("a");
+        for (int i = 0; i < 1_000; i++) {
+            plain = plain.append(i);
+        }
+        PathSegment path = plain;
+        int[] visited = {0};
+        Consumer<PathSegment> action = segment -> visited[0]++;
+        PathVisitor visitor = new PathVisitor() {
+            @Override
+            public void visitName(String name, int depth) {
+                visited[0]++;
+            }
+
+            @Override
+            public void visitIndex(int index, int depth) {
+                visited[0]++;
+            }
+        };
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 200; i++) {
+            path.forEach(action);
+            path.accept(visitor);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertEquals(400 * 1_001, visited[0]);
+        // The counters allocate a little themselves; one array per walk would take over 1.6 MB.
+        assertTrue(allocated < 16 * 1024, "walking paths allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void testAccept() {
+        PathSegment prefix = PathSegment.create("a").append(7).append("b");
+        for (int i = 0; i < 40; i++) {
+            prefix = prefix.append(i);
+        }
+        PathSegment path = prefix;
+        StringBuilder visited = new StringBuilder();
+        path.accept(new PathVisitor() {
+            @Override
+            public void visitName(String name, int depth) {
+                visited.append(depth).append(':').append(name).append(' ');
+            }
+
+            @Override
+            public void visitIndex(int index, int depth) {
+                visited.append(depth).append(":#").append(index).append(' ');
+            }
+        });
+        assertTrue(visited.toString().startsWith("0:a 1:#7 2:b 3:#0 4:#1 "));
+        assertTrue(visited.toString().endsWith("41:#38 42:#39 "));
+        assertThrows(IllegalArgumentException.class, () -> path.accept(null));
+    }
+
+    @Test
+    void testAppendDeepPath() {
+        PathSegment suffix = MissingSegment.INSTANCE;
+        for (int i = 0; i < 100; i++) {
+            suffix = i % 2 == 0 ? suffix.append(i) : suffix.append("n" + i);
+        }
+        PathSegment path = PathSegment.create("root").append(suffix);
+        assertEquals(100, path.getDepth());
+        assertEquals(PathSegment.create("root"), path.get(0));
+        assertTrue(path.get(1).isIndex());
+        assertEquals("n99", path.getValue());
+        assertEquals(suffix, path.get(0).relativize(path));
+        assertSame(path, path.append(MissingSegment.INSTANCE));
+    }
+
+    @Test
+    void testStream() {
+        PathSegment foo = new NameSegment("foo");
+        PathSegment bar = foo.append("bar");
+        PathSegment path = bar.append(0);
+
+        assertEquals(Arrays.asList(foo, bar, path), path.stream().collect(Collectors.toList()));
+        assertEquals(Arrays.asList(path, bar, foo), path.reverseStream().collect(Collectors.toList()));
+        assertEquals(0, MissingSegment.INSTANCE.stream().count());
+        assertEquals(0, MissingSegment.INSTANCE.reverseStream().count());
+    }
+
+    @Test
+    void testSpliterator() {
+        PathSegment path = MissingSegment.INSTANCE;
+        for (int i = 0; i < 10_000; i++) {
+            path = path.append(i);
+        }
+
+        Spliterator<PathSegment> spliterator = path.spliterator();
+        assertEquals(10_000, spliterator.getExactSizeIfKnown());
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+        assertTrue(spliterator.hasCharacteristics(Spliterator.IMMUTABLE | Spliterator.NONNULL));
+
+        Spliterator<PathSegment> prefix = spliterator.trySplit();
+        assertEquals(5_000, prefix.estimateSize());
+        assertEquals(5_000, spliterator.estimateSize());
+        assertTrue(prefix.tryAdvance(segment -> assertEquals(0, segment.getDepth())));
+        assertTrue(spliterator.tryAdvance(segment -> assertEquals(5_000, segment.getDepth())));
+
+        List<PathSegment> sequential = path.stream().collect(Collectors.toList());
+        List<PathSegment> parallel = path.stream().parallel().collect(Collectors.toList());
+        assertEquals(sequential, parallel);
+        assertSame(path, parallel.get(9_999));
+        assertEquals(49_995_000L, path.stream().parallel().mapToLong(segment -> ((IndexSegment) segment).getIndex()).sum());
+
+        PathSegment root = PathSegment.create("root");
+        Spliterator<PathSegment> single = root.spliterator();
+        assertNull(single.trySplit());
+        single.forEachRemaining(segment -> assertSame(root, segment));
+        assertFalse(single.tryAdvance(segment -> fail("should be exhausted.")));
+    }
+
+    @Test
+    void testShortCircuitDeepStream() {
+        PathSegment path = MissingSegment.INSTANCE;
+        for (int i = 0; i < 50_000; i++) {
+            path = path.append(i);
+        }
+        PathSegment last = path;
+
+        assertTrue(path.stream().anyMatch(segment -> segment == last));
+        assertEquals(49_999, path.stream().filter(segment -> segment.getDepth() > 49_998).findFirst().get().getDepth());
+        assertEquals(Arrays.asList(0, 1, 2), path.stream().limit(3).map(PathSegment::getDepth).collect(Collectors.toList()));
+
+        Spliterator<PathSegment> spliterator = path.spliterator();
+        assertTrue(spliterator.tryAdvance(segment -> assertEquals(0, segment.getDepth())));
+        Spliterator<PathSegment> prefix = spliterator.trySplit();
+        assertTrue(prefix.tryAdvance(segment -> assertEquals(1, segment.getDepth())));
+        int[] expected = {2};
+        prefix.forEachRemaining(segment -> assertEquals(expected[0]++, segment.getDepth()));
+        spliterator.forEachRemaining(segment -> assertEquals(expected[0]++, segment.getDepth()));
+        assertEquals(50_000, expected[0]);
+    }
+
     @Test
     void testIsIndex() {
         PathSegment minus = PathSegment.create("-1");
@@ -261,6 +579,47 @@ class PathSegmentTest {
         assertFalse(barbaz.contains(bar));
     }
 
+    @Test
+    void testCommonAncestor() {
+        PathSegment ab = PathSegment.create("a").append("b");
+        PathSegment abc = ab.append("c");
+        PathSegment abde = PathSegment.create("a").append("b").append("d").append("e");
+
+        assertSame(ab, abc.commonAncestor(abde), "should be taken from this path.");
+        assertEquals(ab, abde.commonAncestor(abc));
+        assertSame(ab, ab.commonAncestor(abc));
+        assertSame(ab, abc.commonAncestor(ab.append("x")), "should stop on shared ancestors.");
+        assertSame(abc, abc.commonAncestor(abc.append(0)));
+        assertEquals(PathSegment.create("a").append(1), PathSegment.create("a").append(1).commonAncestor(PathSegment.create("a").append("1")));
+        assertTrue(abc.commonAncestor(PathSegment.create("b").append("b")).isMissing());
+        assertTrue(abc.commonAncestor(MissingSegment.INSTANCE).isMissing());
+    }
+
+    @Test
+    void testRelativize() {
+        PathSegment ab = PathSegment.create("a").append("b");
+        PathSegment abc0 = PathSegment.create("a").append("b").append("c").append(0);
+
+        PathSegment relative = ab.relativize(abc0);
+        assertEquals(PathSegment.create("c").append(0), relative);
+        assertEquals(0, relative.getRoot().getDepth());
+        assertTrue(relative.isIndex());
+        assertEquals(abc0, ab.resolve(relative));
+
+        assertTrue(abc0.relativize(abc0).isMissing());
+        assertSame(abc0, MissingSegment.INSTANCE.relativize(abc0));
+        assertThrows(IllegalArgumentException.class, () -> abc0.relativize(ab));
+        assertThrows(IllegalArgumentException.class, () -> ab.relativize(PathSegment.create("a").append("c").append("d")));
+    }
+
+    @Test
+    void testResolve() {
+        PathSegment ab = PathSegment.create("a").append("b");
+        assertEquals("/a/b/c/0", ab.resolve(PathSegment.create("c").append(0)).toString());
+        assertSame(ab, ab.resolve(MissingSegment.INSTANCE));
+        assertThrows(IllegalArgumentException.class, () -> ab.resolve(null));
+    }
+
     @Test
     void testToArray() {
         PathSegment root = PathSegment.create("root");
@@ -285,6 +644,28 @@ class PathSegmentTest {
         assertEquals("/test/~0~1/~1", test.toString());
     }
 
+    @Test
+    void testToStringSharedPrefix() {
+        PathSegment parent = PathSegment.create("a~").append(0);
+        assertEquals("/a~0/0", parent.toString());
+
+        PathSegment child = parent.append("b/").append("");
+        assertEquals("/a~0/0/b~1/", child.toString());
+        assertEquals("/a~0/0/b~1", child.getParent().toString());
+        assertEquals("/x", MissingSegment.INSTANCE.append("x").toString());
+    }
+
+    @Test
+    void testToStringDeepPath() {
+        PathSegment path = MissingSegment.INSTANCE;
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            path = path.append(i);
+            expected.append('/').append(i);
+        }
+        assertEquals(expected.toString(), path.toString());
+    }
+
     /*@Test
     void testToStringNoRFC() {
         PathSegment test = PathSegment.create("test").append("~/").append("/");
@@ -0,0 +1,157 @@
+package br.louiz.path;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathSorterTest {
+
+    @Test
+    void testSort() {
+        PathSegment[] paths = {
+                PathSegment.fromString("/b"),
+                PathSegment.fromString("/a/b"),
+                PathSegment.create("a").append(10),
+                PathSegment.fromString("/a"),
+                PathSegment.create("a").append(2),
+                PathSegment.fromString("/a/2/z"),
+                MissingSegment.INSTANCE,
+        };
+        PathSorter.sort(paths);
+
+        assertEquals(Arrays.asList(
+                MissingSegment.INSTANCE,
+                PathSegment.fromString("/a"),
+                PathSegment.fromString("/a/2"),
+                PathSegment.fromString("/a/2/z"),
+                PathSegment.fromString("/a/10"),
+                PathSegment.fromString("/a/b"),
+                PathSegment.fromString("/b")
+        ), Arrays.asList(paths));
+    }
+
+    @Test
+    void testSortLarge() {
+        Random random = new Random(42);
+        String[] names = {"a", "b", "items", "10", "~", "z"};
+        List<PathSegment> paths = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            PathSegment path = MissingSegment.INSTANCE;
+            int depth = random.nextInt(6);
+            for (int d = 0; d < depth; d++) {
+                path = random.nextBoolean()
+                        ? path.append(random.nextInt(20))
+                        : path.append(names[random.nextInt(names.length)]);
+            }
+            paths.add(path);
+        }
+
+        List<PathSegment> expected = new ArrayList<>(paths);
+        Collections.sort(expected);
+        PathSorter.sort(paths);
+
+        assertEquals(expected, paths);
+        for (int i = 1; i < paths.size(); i++) {
+            assertTrue(paths.get(i - 1).compareTo(paths.get(i)) <= 0);
+        }
+    }
+
+    @Test
+    void testSortIsStable() {
+        List<PathSegment> paths = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            PathSegment path = PathSegment.create("a");
+            paths.add(i % 2 == 0 ? path.append(i % 7) : path.append(String.valueOf(i % 7)));
+        }
+        List<PathSegment> expected = new ArrayList<>(paths);
+        expected.sort(null);
+        PathSorter.sort(paths);
+
+        for (int i = 0; i < paths.size(); i++) {
+            assertSame(expected.get(i), paths.get(i));
+        }
+    }
+
+    @Test
+    void testSortDeepSharedPrefix() {
+        PathSegment prefix = MissingSegment.INSTANCE;
+        for (int i = 0; i < 5_000; i++) prefix = prefix.append("p");
+        PathSegment[] paths = new PathSegment[200];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = prefix.append(paths.length - i);
+        }
+        PathSorter.sort(paths);
+        for (int i = 0; i < paths.length; i++) {
+            assertEquals(i + 1, ((IndexSegment) paths[i]).getIndex());
+        }
+    }
+
+    @Test
+    void testSortDeepEqualValues() {
+        StringBuilder prefix = new StringBuilder();
+        for (int i = 0; i < 500; i++) prefix.append("/p");
+        Random random = new Random(7);
+        List<PathSegment> paths = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            PathSegment path = PathSegment.fromString(prefix.toString());
+            paths.add(random.nextBoolean() ? path.append(random.nextInt(50)) : path.append("k" + random.nextInt(50)));
+        }
+        paths.add(PathSegment.fromString(prefix.toString()));
+
+        List<PathSegment> expected = new ArrayList<>(paths);
+        Collections.sort(expected);
+        PathSorter.sort(paths);
+        for (int i = 0; i < paths.size(); i++) {
+            assertSame(expected.get(i), paths.get(i));
+        }
+    }
+
+    @Test
+    void testSortNestedPrefixes() {
+        List<PathSegment> paths = new ArrayList<>();
+        PathSegment path = MissingSegment.INSTANCE;
+        for (int i = 0; i < 12_000; i++) {
+            path = path.append("x");
+            paths.add(path);
+        }
+        List<PathSegment> expected = new ArrayList<>(paths);
+        Collections.shuffle(paths, new Random(3));
+        PathSorter.sort(paths);
+        for (int i = 0; i < paths.size(); i++) {
+            assertSame(expected.get(i), paths.get(i));
+        }
+    }
+
+    @Test
+    void testSortNestedPrefixesAmongShallowPaths() {
+        Random random = new Random(5);
+        List<PathSegment> paths = new ArrayList<>();
+        PathSegment chain = PathSegment.create("chain");
+        for (int i = 0; i < 60; i++) {
+            chain = chain.append(i % 3);
+            paths.add(chain);
+        }
+        for (int i = 0; i < 20_000; i++) {
+            paths.add(PathSegment.create("chain").append(random.nextInt(3)).append("k" + random.nextInt(100)));
+        }
+        List<PathSegment> expected = new ArrayList<>(paths);
+        Collections.sort(expected);
+        Collections.shuffle(paths, random);
+        PathSorter.sort(paths);
+        assertEquals(expected, paths);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> PathSorter.sort((PathSegment[]) null));
+        assertThrows(IllegalArgumentException.class, () -> PathSorter.sort((List<PathSegment>) null));
+        assertThrows(IllegalArgumentException.class, () -> PathSorter.sort(new PathSegment[]{null}));
+        PathSorter.sort(new PathSegment[0]);
+    }
+}
@@ -0,0 +1,195 @@
+package br.louiz.path;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathTrieTest {
+
+    private static List<PathSegment> keys(PathTrie<?> trie) {
+        List<PathSegment> result = new ArrayList<>();
+        for (PathSegment key : trie) {
+            result.add(key);
+        }
+        return result;
+    }
+
+    @Test
+    void testPutAndGet() {
+        PathTrie<String> trie = new PathTrie<>();
+        PathSegment ab = PathSegment.create("a").append("b");
+
+        assertNull(trie.put(ab, "ab"));
+        assertEquals("ab", trie.put(ab, "AB"));
+        assertEquals("AB", trie.get(PathSegment.fromString("/a/b")));
+        assertNull(trie.get(PathSegment.create("a")));
+        assertFalse(trie.containsKey(PathSegment.create("a")));
+        assertTrue(trie.containsKey(ab));
+        assertEquals(1, trie.size());
+
+        trie.put(MissingSegment.INSTANCE, "root");
+        assertEquals("root", trie.get(MissingSegment.INSTANCE));
+        assertEquals(2, trie.size());
+
+        trie.put(PathSegment.create("a"), null);
+        assertTrue(trie.containsKey(PathSegment.create("a")));
+        assertEquals(3, trie.size());
+        assertThrows(IllegalArgumentException.class, () -> trie.get(null));
+    }
+
+    @Test
+    void testIndexKeys() {
+        PathTrie<Integer> trie = new PathTrie<>();
+        PathSegment list = PathSegment.create("list");
+        trie.put(list.append(3), 3);
+        trie.put(list.append(1_000_000), 1_000_000);
+        trie.put(list.append("10"), 10);
+        for (int i = 0; i < 100; i++) {
+            trie.put(list.append("name" + i), -i);
+        }
+
+        assertEquals((Integer) 3, trie.get(list.append("3")), "indexes should be found by name.");
+        assertEquals((Integer) 10, trie.get(list.append(10)), "names should be found by index.");
+        assertEquals((Integer) 1_000_000, trie.get(list.append(1_000_000)));
+        assertEquals((Integer) 1_000_000, trie.get(list.append("1000000")));
+        assertNull(trie.get(list.append("03")));
+        assertEquals((Integer) (-42), trie.get(list.append("name42")));
+
+        for (int i = 0; i < 20; i++) {
+            trie.put(list.append(i * 2), i * 2);
+        }
+        assertEquals((Integer) 1_000_000, trie.get(list.append(1_000_000)));
+        assertEquals((Integer) 10, trie.get(list.append(10)));
+        assertEquals(122, trie.size());
+    }
+
+    @Test
+    void testRemove() {
+        PathTrie<String> trie = new PathTrie<>();
+        PathSegment a = PathSegment.create("a");
+        PathSegment ab = a.append("b");
+        PathSegment ab0 = ab.append(0);
+        trie.put(a, "a");
+        trie.put(ab0, "ab0");
+        trie.put(a.append(100), "a100");
+
+        assertNull(trie.remove(ab));
+        assertEquals("ab0", trie.remove(ab0));
+        assertNull(trie.remove(ab0));
+        assertNull(trie.get(ab0));
+        assertEquals(2, trie.size());
+        assertEquals("a100", trie.remove(a.append("100")));
+        assertEquals("a", trie.remove(a));
+        assertTrue(trie.isEmpty());
+        assertFalse(trie.iterator().hasNext());
+    }
+
+    @Test
+    void testRemoveFromWideNode() {
+        PathTrie<Integer> trie = new PathTrie<>();
+        PathSegment wide = PathSegment.create("wide");
+        int count = 20_000;
+        for (int i = 0; i < count; i++) {
+            trie.put(wide.append("k" + i), i);
+        }
+        trie.put(wide.append(5_000_000), -1);
+
+        for (int i = 0; i < count; i += 2) {
+            assertEquals((Integer) i, trie.remove(wide.append("k" + i)));
+        }
+        assertEquals(count / 2 + 1, trie.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i % 2 == 0 ? null : (Integer) i, trie.get(wide.append("k" + i)));
+        }
+        assertEquals((Integer) (-1), trie.get(wide.append(5_000_000)));
+
+        for (int i = 1; i < count; i += 2) {
+            assertEquals((Integer) i, trie.remove(wide.append("k" + i)));
+        }
+        assertEquals((Integer) (-1), trie.remove(wide.append(5_000_000)));
+        assertTrue(trie.isEmpty());
+        assertNull(trie.put(wide.append("k1"), 1));
+        assertEquals((Integer) 1, trie.get(wide.append("k1")));
+    }
+
+    @Test
+    void testOrderedIteration() {
+        PathTrie<String> trie = new PathTrie<>();
+        PathSegment a = PathSegment.create("a");
+        trie.put(a.append("z"), "");
+        trie.put(a.append(10), "");
+        trie.put(a.append(2), "");
+        trie.put(a.append("b").append(0), "");
+        trie.put(a, "");
+        trie.put(a.append(5_000_000), "");
+        trie.put(PathSegment.create(1), "");
+
+        List<PathSegment> expected = Arrays.asList(
+                PathSegment.create(1),
+                a,
+                a.append(2),
+                a.append(10),
+                a.append(5_000_000),
+                a.append("b").append(0),
+                a.append("z")
+        );
+        List<PathSegment> keys = keys(trie);
+        assertEquals(expected, keys);
+        assertTrue(keys.get(2).isIndex(), "keys should keep the type they were inserted with.");
+        assertTrue(keys.get(6).isName());
+
+        List<String> visited = new ArrayList<>();
+        trie.forEach((key, value) -> visited.add(key.toString()));
+        assertEquals(Arrays.asList("/1", "/a", "/a/2", "/a/10", "/a/5000000", "/a/b/0", "/a/z"), visited);
+    }
+
+    @Test
+    void testSubtree() {
+        PathTrie<String> trie = new PathTrie<>();
+        PathSegment a = PathSegment.create("a");
+        PathSegment ab = a.append("b");
+        trie.put(a, "a");
+        trie.put(ab.append(0), "ab0");
+        trie.put(ab.append(1), "ab1");
+        trie.put(a.append("c"), "ac");
+        trie.put(PathSegment.create("b"), "b");
+
+        PathTrie<String> subtree = trie.subtree(ab);
+        assertEquals(2, subtree.size());
+        assertEquals(Arrays.asList(ab.append(0), ab.append(1)), keys(subtree));
+        assertEquals("ab0", subtree.get(ab.append(0)));
+        assertNull(subtree.get(a));
+
+        subtree.put(ab, "ab");
+        assertEquals("ab", trie.get(ab), "subtrees should be views.");
+        assertEquals(3, subtree.size());
+        assertEquals(6, trie.size());
+        assertThrows(IllegalArgumentException.class, () -> subtree.put(a, "a"));
+
+        assertEquals(0, trie.subtree(PathSegment.create("x")).size());
+        assertFalse(trie.subtree(PathSegment.create("x")).iterator().hasNext());
+    }
+
+    @Test
+    void testLongestPrefixMatch() {
+        PathTrie<String> trie = new PathTrie<>();
+        PathSegment a = PathSegment.create("a");
+        PathSegment abc = a.append("b").append("c");
+        trie.put(a, "a");
+        trie.put(abc, "abc");
+
+        PathSegment path = abc.append(0).append("d");
+        assertSame(abc, path.get(2));
+        assertEquals(abc, trie.longestPrefixMatch(path));
+        assertSame(path.get(2), trie.longestPrefixMatch(path), "should be taken from the given path.");
+        assertEquals(a, trie.longestPrefixMatch(a.append("b")));
+        assertEquals(abc, trie.longestPrefixMatch(abc));
+        assertTrue(trie.longestPrefixMatch(PathSegment.create("b")).isMissing());
+        assertEquals(abc, trie.subtree(a.append("b")).longestPrefixMatch(path));
+        assertTrue(trie.subtree(a.append("b")).longestPrefixMatch(a.append("b")).isMissing());
+    }
+}
@@ -0,0 +1,116 @@
+package br.louiz.path;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PointerResolverTest {
+
+    private static Map<String, Object> document() {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("foo", Arrays.asList("bar", "baz"));
+        document.put("", 0);
+        document.put("a/b", 1);
+        document.put("m~n", 8);
+        document.put("3", "three");
+        document.put("numbers", new int[]{10, 20, 30});
+        document.put("nested", Collections.singletonMap("items", new Object[]{Collections.singletonMap("id", 7)}));
+        document.put("nothing", null);
+        return document;
+    }
+
+    @Test
+    void testResolve() {
+        Map<String, Object> document = document();
+
+        assertSame(document, PointerResolver.resolve(document, MissingSegment.INSTANCE));
+        assertEquals(Arrays.asList("bar", "baz"), PointerResolver.resolve(document, PathParser.NAMES.parse("/foo")));
+        assertEquals("baz", PointerResolver.resolve(document, PathParser.NAMES.parse("/foo/1")));
+        assertEquals("bar", PointerResolver.resolve(document, PathSegment.create("foo").append(0)));
+        assertEquals(0, PointerResolver.resolve(document, PathParser.NAMES.parse("/")));
+        assertEquals(1, PointerResolver.resolve(document, PathParser.NAMES.parse("/a~1b")));
+        assertEquals(8, PointerResolver.resolve(document, PathParser.NAMES.parse("/m~0n")));
+        assertEquals("three", PointerResolver.resolve(document, PathSegment.create(3)), "indexes are keys on maps.");
+        assertEquals(20, PointerResolver.resolve(document, PathParser.INDEXES.parse("/numbers/1")));
+        assertEquals(7, PointerResolver.resolve(document, PathParser.INDEXES.parse("/nested/items/0/id")));
+    }
+
+    @Test
+    void testUnresolvable() {
+        Map<String, Object> document = document();
+
+        assertNull(PointerResolver.resolve(document, PathParser.NAMES.parse("/missing")));
+        assertNull(PointerResolver.resolve(document, PathParser.NAMES.parse("/foo/2")));
+        assertNull(PointerResolver.resolve(document, PathParser.NAMES.parse("/foo/01")));
+        assertNull(PointerResolver.resolve(document, PathParser.NAMES.parse("/foo/-")));
+        assertNull(PointerResolver.resolve(document, PathParser.NAMES.parse("/foo/0/bar")));
+        assertNull(PointerResolver.resolve(document, PathParser.NAMES.parse("/numbers/3")));
+        assertNull(PointerResolver.resolve(document, PathParser.NAMES.parse("/nothing/deeper")));
+        assertNull(PointerResolver.resolve(null, PathParser.NAMES.parse("/foo")));
+        assertThrows(IllegalArgumentException.class, () -> PointerResolver.resolve(document, null));
+    }
+
+    @Test
+    void testResolveAll() {
+        Map<String, Object> document = document();
+        List<PathSegment> pointers = Arrays.asList(
+                PathParser.INDEXES.parse("/foo/1"),
+                PathParser.INDEXES.parse("/foo/0"),
+                PathParser.INDEXES.parse("/missing/0"),
+                PathParser.INDEXES.parse("/missing/1"),
+                PathParser.INDEXES.parse("/nested/items/0/id"),
+                MissingSegment.INSTANCE);
+
+        List<Object> values = PointerResolver.resolveAll(document, pointers);
+        assertEquals(Arrays.asList("baz", "bar", null, null, 7, document), values);
+        for (int i = 0; i < pointers.size(); i++) {
+            assertEquals(PointerResolver.resolve(document, pointers.get(i)), values.get(i));
+        }
+
+        assertEquals(Collections.singletonList(null), PointerResolver.resolveAll(null, pointers.subList(0, 1)));
+        assertThrows(IllegalArgumentException.class, () -> PointerResolver.resolveAll(document, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> PointerResolver.resolveAll(document, Collections.singletonList(null)));
+    }
+
+    @Test
+    void testResolveAllSharesAncestors() {
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) items.add(i * 2);
+        Map<String, Object> root = new HashMap<>();
+        root.put("items", items);
+        CountingMap document = new CountingMap(Collections.singletonMap("data", root));
+
+        PathSegment parent = PathSegment.create("data").append("items");
+        List<PathSegment> pointers = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) pointers.add(parent.append(i));
+
+        List<Object> values = PointerResolver.resolveAll(document, pointers);
+        assertEquals(items, values);
+        assertEquals(1, document.lookups, "the shared prefix should be resolved once.");
+    }
+
+    private static final class CountingMap extends HashMap<String, Object> {
+        private static final long serialVersionUID = 1L;
+
+        int lookups;
+
+        CountingMap(Map<String, Object> values) {
+            super(values);
+        }
+
+        @Override
+        public Object get(Object key) {
+            lookups++;
+            return super.get(key);
+        }
+    }
+}
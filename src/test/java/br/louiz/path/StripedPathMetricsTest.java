@@ -0,0 +1,75 @@
+package br.louiz.path;
+
+import br.louiz.path.PathMetrics.Lookup;
+import br.louiz.path.PathMetrics.Operation;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedPathMetricsTest {
+
+    @Test
+    void testRecord() {
+        StripedPathMetrics metrics = new StripedPathMetrics();
+        metrics.recordOperation(Operation.FIND, 0);
+        metrics.recordOperation(Operation.FIND, 1);
+        metrics.recordOperation(Operation.FIND, 1000);
+        metrics.recordOperation(Operation.FIND, Long.MAX_VALUE);
+
+        assertEquals(4, metrics.getCount(Operation.FIND));
+        assertEquals(0, metrics.getCount(Operation.APPEND));
+        long[] latencies = metrics.getLatencyHistogram(Operation.FIND);
+        assertEquals(StripedPathMetrics.LATENCY_BUCKETS, latencies.length);
+        assertEquals(1, latencies[0]);
+        assertEquals(1, latencies[1]);
+        assertEquals(1, latencies[10]);
+        assertEquals(1, latencies[63]);
+
+        metrics.recordDepth(3);
+        metrics.recordDepth(1000);
+        metrics.recordSegmentLength(5);
+        assertEquals(1, metrics.getDepthHistogram()[3]);
+        assertEquals(1, metrics.getDepthHistogram()[StripedPathMetrics.LINEAR_BUCKETS - 1]);
+        assertEquals(1, metrics.getSegmentLengthHistogram()[5]);
+
+        assertEquals(1.0, metrics.getHitRate(Lookup.CACHE));
+        metrics.recordLookup(Lookup.CACHE, true);
+        metrics.recordLookup(Lookup.CACHE, true);
+        metrics.recordLookup(Lookup.CACHE, true);
+        metrics.recordLookup(Lookup.CACHE, false);
+        assertEquals(0.75, metrics.getHitRate(Lookup.CACHE));
+        assertEquals(0, metrics.getHitCount(Lookup.INTERNER));
+
+        metrics.reset();
+        assertEquals(0, metrics.getCount(Operation.FIND));
+        assertEquals(0, metrics.getTotalNanos(Operation.FIND));
+        assertEquals(0, metrics.getDepthHistogram()[3]);
+        assertEquals(0, metrics.getMissCount(Lookup.CACHE));
+    }
+
+    @Test
+    void testConcurrentRecord() throws InterruptedException {
+        StripedPathMetrics metrics = new StripedPathMetrics();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    metrics.recordOperation(Operation.EQUALS, i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(40_000, metrics.getCount(Operation.EQUALS));
+    }
+
+    @Test
+    void testNotInstalled() {
+        assertFalse(Metrics.ENABLED);
+        assertSame(PathMetrics.NOOP, PathMetrics.active());
+    }
+}